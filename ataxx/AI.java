@@ -1,8 +1,14 @@
 package ataxx;
 
 import java.util.ArrayList;
-
-import static ataxx.PieceColor.RED;
+import java.util.EnumSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /** A Player that computes its own moves.
  *  @author Ahmad Badary
@@ -14,86 +20,531 @@ class AI extends Player {
      */
     private static final int MAX_DEPTH = 4;
     /**
-     * A position magnitude indicating a win (for red if positive, blue
-     * if negative).
-     */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 1;
-    /**
-     * A magnitude greater than a normal value.
+     * Largest number of search threads an AI may use.
      */
-    private static final int INFTY = Integer.MAX_VALUE;
+    static final int MAX_THREADS = 64;
 
     /**
      * A new AI for GAME that will play MYCOLOR.
      */
     AI(Game game, PieceColor myColor) {
         super(game, myColor);
+        _table = sharedTable();
+        _searcher = new Searcher(_table);
+        configure(_searcher);
+    }
+
+    /**
+     * Make the transposition table shared by AIs created from now on
+     * have MEGABYTES megabytes.
+     */
+    static synchronized void setTableSize(int megabytes) {
+        _sharedTable = new TranspositionTable(megabytes);
+    }
+
+    /**
+     * Return the transposition table shared by new AIs, creating one of
+     * the default size if needed.
+     */
+    private static synchronized TranspositionTable sharedTable() {
+        if (_sharedTable == null) {
+            _sharedTable =
+                new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES);
+        }
+        return _sharedTable;
+    }
+
+    /**
+     * Use TABLE as my transposition table.
+     */
+    void setTable(TranspositionTable table) {
+        _table = table;
+        _searcher.setTable(table);
+        for (Searcher helper : _helpers) {
+            helper.setTable(table);
+        }
+    }
+
+    /**
+     * Make AIs created from now on evaluate positions with EVALUATOR.
+     */
+    static synchronized void setDefaultEvaluator(Evaluator evaluator) {
+        defaultEvaluator = evaluator;
+    }
+
+    /**
+     * Evaluate the positions at the leaves of my searches with
+     * EVALUATOR (the default set by setDefaultEvaluator if not called).
+     */
+    void setEvaluator(Evaluator evaluator) {
+        _evaluator = evaluator;
+        configureAll();
+    }
+
+    /**
+     * Use TECHNIQUE in my searches iff ON (all are used by default).
+     */
+    void setEnabled(Searcher.Technique technique, boolean on) {
+        if (on) {
+            _techniques.add(technique);
+        } else {
+            _techniques.remove(technique);
+        }
+        configureAll();
+    }
+
+    /**
+     * Make SEARCHER search as I have been told to.
+     */
+    private void configure(Searcher searcher) {
+        searcher.setEvaluator(_evaluator);
+        for (Searcher.Technique technique : Searcher.Technique.values()) {
+            searcher.setEnabled(technique,
+                                _techniques.contains(technique));
+        }
+    }
+
+    /**
+     * Make all my searchers search as I have been told to.
+     */
+    private void configureAll() {
+        configure(_searcher);
+        for (Searcher helper : _helpers) {
+            configure(helper);
+        }
+        if (_ponderer != null) {
+            configure(_ponderer);
+        }
+    }
+
+    /**
+     * Make AIs created from now on search with THREADS threads.
+     */
+    static synchronized void setDefaultThreads(int threads) {
+        defaultThreads = Math.max(1, Math.min(threads, MAX_THREADS));
+    }
+
+    /**
+     * Search with THREADS threads (the default set by setDefaultThreads
+     * if not called).  All threads search the current position to
+     * successive depths, sharing my transposition table, which lets
+     * each profit from the others' results ("lazy SMP"); the move
+     * chosen is that of the thread that calls findMove.
+     */
+    void setThreads(int threads) {
+        _threads = Math.max(1, Math.min(threads, MAX_THREADS));
+    }
+
+    /**
+     * Make AIs created from now on ponder iff PONDER.
+     */
+    static synchronized void setDefaultPondering(boolean ponder) {
+        defaultPondering = ponder;
+    }
+
+    /**
+     * Ponder iff PONDER (the default set by setDefaultPondering if not
+     * called): after choosing each move, go on searching in the
+     * background, while the opponent thinks, the position after the
+     * reply my search expects (or, if there is none, the position
+     * after my move).  That fills my transposition table for the
+     * next search, and if the opponent does make the expected reply
+     * and pondering has searched as deep as I would have, I play the
+     * move it found at once.  With a time limit, I ponder for at most
+     * as long as I was allowed for my own move.
+     */
+    void setPondering(boolean ponder) {
+        _pondering = ponder;
+        if (!ponder) {
+            stopPondering();
+        }
+    }
+
+    /**
+     * Give AIs created from now on GAMEMILLIS milliseconds for all their
+     * moves in a game (no limit if 0) and MOVEMILLIS for each move (no
+     * limit if 0).
+     */
+    static synchronized void setDefaultTimeLimits(long gameMillis,
+                                                  long moveMillis) {
+        defaultGameMillis = gameMillis;
+        defaultMoveMillis = moveMillis;
+    }
+
+    /**
+     * Allow myself GAMEMILLIS milliseconds for all my moves from now on
+     * (no limit if 0), and MOVEMILLIS for each move (no limit if 0).
+     * By default, these are the limits set by setDefaultTimeLimits.
+     * With either limit, I search as deep as my TimeManager allows,
+     * unless setDepth limits my depth.  The search always returns a
+     * move by the limit on each move.
+     */
+    void setTimeLimits(long gameMillis, long moveMillis) {
+        _time = new TimeManager(gameMillis, moveMillis);
+    }
+
+    /**
+     * Make AIs created from now on use BOOK as their opening book (none
+     * if null).
+     */
+    static synchronized void setDefaultBook(OpeningBook book) {
+        defaultBook = book;
+    }
+
+    /**
+     * Use BOOK as my opening book (none if null): in positions it
+     * has moves for, I play one of them without searching.
+     */
+    void setBook(OpeningBook book) {
+        _book = book;
+    }
+
+    /**
+     * Make AIs created from now on solve positions with at most EMPTIES
+     * empty squares exactly.
+     */
+    static synchronized void setDefaultEndgameThreshold(int empties) {
+        defaultEndgameThreshold = Math.max(0, empties);
+    }
+
+    /**
+     * Solve positions with at most EMPTIES empty squares exactly with an
+     * EndgameSolver, rather than searching them (the default set by
+     * setDefaultEndgameThreshold if not called).  If the solver gives
+     * up, I search as usual.
+     */
+    void setEndgameThreshold(int empties) {
+        _endgameThreshold = Math.max(0, empties);
     }
 
     @Override
     Move myMove() {
+        _time.startMove(board());
+        long allowance =
+            _time.limited() ? _time.hardDeadline() - System.nanoTime() : 0;
+        Move move = stopPondering();
         if (!board().canMove(myColor())) {
-            return Move.pass();
+            move = Move.pass();
+        } else if (move == null && _book != null) {
+            move = _book.choose(board(), game());
+        }
+        if (move == null) {
+            move = solveEndgame();
+        }
+        if (move == null) {
+            move = findMove();
+        }
+        _time.endMove();
+        if (_pondering) {
+            startPondering(move, allowance);
         }
-        Move move = findMove();
         return move;
     }
 
+    /**
+     * Stop pondering, so that no search of mine runs while the game
+     * is over or after I am replaced.
+     */
+    @Override
+    void finish() {
+        stopPondering();
+    }
+
+    /**
+     * Set the depth of the deepest iteration of the search to DEPTH
+     * (by default, as deep as my time limits allow, or MAX_DEPTH if I
+     * have none).
+     */
+    void setDepth(int depth) {
+        _depth = Math.max(1, Math.min(depth, Searcher.MAX_PLY - 1));
+        _depthSet = true;
+    }
+
+    /**
+     * Return the depth of the deepest iteration of my searches.
+     */
+    private int searchDepth() {
+        if (timed()) {
+            return Searcher.MAX_PLY - 1;
+        }
+        return _depth;
+    }
+
+    /**
+     * Return true iff the depth of my searches is left to my
+     * TimeManager.
+     */
+    private boolean timed() {
+        return _time.limited() && !_depthSet;
+    }
+
+    /**
+     * Return a best move for me from the current position if it has
+     * few enough empty squares and the endgame solver can solve it,
+     * and otherwise null.  A position only proven lost is left to the
+     * search, which at least plays for the opponent's mistakes.
+     */
+    private Move solveEndgame() {
+        if (board().numEmpties() > _endgameThreshold) {
+            return null;
+        }
+        if (_solver == null) {
+            _solver = new EndgameSolver(EndgameSolver.DEFAULT_BUDGET);
+        }
+        if (_solver.solve(board())
+            && (_solver.exact() || _solver.score() > 0)) {
+            return _solver.move();
+        }
+        return null;
+    }
+
     /**
      * Return a move for me from the current position, assuming there
      * is a move.
      */
     private Move findMove() {
-        Board b = new Board(board());
-        if (myColor() == RED) {
-            findMove(b, MAX_DEPTH, true, 1, -INFTY, INFTY);
+        _table.newSearch();
+        ScheduledFuture<?> alarm = null;
+        _searcher.resume();
+        if (_time.limited()) {
+            _searcher.setTimeManager(_time);
+            alarm = alarms().schedule(_searcher::stop,
+                                      _time.hardDeadline()
+                                      - System.nanoTime(),
+                                      TimeUnit.NANOSECONDS);
         } else {
-            findMove(b, MAX_DEPTH, true, -1, -INFTY, INFTY);
+            _searcher.setTimeManager(null);
+        }
+        long start = System.nanoTime();
+        ArrayList<Future<?>> helpers = startHelpers();
+        Move move = null;
+        try {
+            move = _searcher.search(new Board(board()), 1, searchDepth());
+            _lastDepth = _searcher.finishedDepth();
+            if (move == null) {
+                int[] moves = new int[Board.MAX_MOVES];
+                board().generateMoves(moves);
+                move = Move.move(moves[0]);
+            }
+            return move;
+        } finally {
+            if (alarm != null) {
+                alarm.cancel(false);
+            }
+            for (Searcher helper : _helpers) {
+                helper.stop();
+            }
+            for (Future<?> helper : helpers) {
+                try {
+                    helper.get();
+                } catch (InterruptedException | ExecutionException excp) {
+                    throw new Error("helper search failed", excp);
+                }
+            }
+            if (move != null) {
+                Searcher[] helping =
+                    helpers.isEmpty() ? new Searcher[0] : _helpers;
+                _lastStats =
+                    new SearchStats(_searcher, helping,
+                                    System.nanoTime() - start,
+                                    _searcher.principalVariation(
+                                        new Board(board()), move,
+                                        Searcher.MAX_PLY));
+            }
         }
-        return _lastFoundMove;
     }
 
     /**
-     * Used to communicate best moves found by findMove, when asked for.
+     * Analyze the current position for MILLIS milliseconds, reporting
+     * the LINES best moves for the player on move to LISTENER after
+     * each iteration of the search (see Searcher.analyze).  The
+     * analysis shares my transposition table, so it profits from my
+     * earlier searches and mine from it.  Assumes that the player on
+     * move has a legal move other than a pass.
+     */
+    void analyze(int lines, long millis, Searcher.Listener listener) {
+        _table.newSearch();
+        _searcher.resume();
+        ScheduledFuture<?> alarm =
+            alarms().schedule(_searcher::stop, millis, TimeUnit.MILLISECONDS);
+        try {
+            _searcher.analyze(new Board(board()), lines,
+                              Searcher.MAX_PLY - 1, listener);
+        } finally {
+            alarm.cancel(false);
+        }
+    }
+
+    /**
+     * Return the statistics of my last search, or null if I have not
+     * searched.  Moves from the opening book or the endgame solver
+     * involve no search.
+     */
+    SearchStats lastStats() {
+        return _lastStats;
+    }
+
+    /**
+     * Start _threads - 1 helper searches of the current position, and
+     * return their Futures.  Alternate helpers start one ply deeper,
+     * so that the threads are less often all at the same depth.
      */
-    private Move _lastFoundMove;
+    private ArrayList<Future<?>> startHelpers() {
+        ArrayList<Future<?>> result = new ArrayList<>();
+        if (_threads == 1) {
+            return result;
+        }
+        if (_helpers.length != _threads - 1) {
+            _helpers = new Searcher[_threads - 1];
+            for (int i = 0; i < _helpers.length; i += 1) {
+                _helpers[i] = new Searcher(_table);
+                configure(_helpers[i]);
+            }
+        }
+        ExecutorService pool = searchPool();
+        for (int i = 0; i < _helpers.length; i += 1) {
+            Searcher helper = _helpers[i];
+            helper.resume();
+            Board b = new Board(board());
+            int first = Math.min(1 + (i + 1) % 2, searchDepth());
+            int last = Searcher.MAX_PLY - 1;
+            result.add(pool.submit(() -> helper.search(b, first, last)));
+        }
+        return result;
+    }
 
     /**
-     * Find a move from position BOARD and return its value, recording
-     * the move found in _lastFoundMove iff SAVEMOVE. The move
-     * should have maximal value or have value >= BETA if SENSE==1,
-     * and minimal value or value <= ALPHA if SENSE==-1. Searches up to
-     * DEPTH levels before using a static estimate.
+     * Start pondering the position expected after my move MOVE from
+     * the current position, for at most ALLOWANCE nanoseconds (with no
+     * limit if 0).  If that finishes before the opponent moves, and
+     * the expected reply is a guess, go on to search all the
+     * opponent's replies.
      */
-    private int findMove(Board board, int depth, boolean saveMove, int sense,
-                         int alpha, int beta) {
-        Board currBoard = board;
-        _lastFoundMove = new Move();
-        ArrayList<Move> allMoves = availableMoves(currBoard, myColor());
-        for (Move mv : allMoves) {
-            if (staticScore(currBoard, mv) > alpha) {
-                _lastFoundMove = mv;
-                alpha = staticScore(currBoard, mv);
+    private void startPondering(Move move, long allowance) {
+        Board b = new Board(board());
+        b.makeMove(move.packed());
+        if (b.gameOver()) {
+            return;
+        }
+        Board others = null;
+        int[] replies = new int[Board.MAX_MOVES];
+        int n = b.generateMoves(replies);
+        long entry = _table.probe(b.zobrist());
+        int reply = TranspositionTable.move(entry);
+        if (n == 0) {
+            b.makeMove(Move.PACKED_PASS);
+        } else if (entry != 0) {
+            for (int i = 0; i < n; i += 1) {
+                if (replies[i] == reply) {
+                    others = new Board(b);
+                    b.makeMove(reply);
+                    break;
+                }
             }
         }
-        return 0;
+        if (b.gameOver()) {
+            return;
+        }
+        if (_ponderer == null) {
+            _ponderer = new Searcher(_table);
+        }
+        _ponderer.setTable(_table);
+        configure(_ponderer);
+        _ponderer.resume();
+        _ponderBoard = b;
+        Board copy = new Board(b);
+        int depth = searchDepth();
+        _table.newSearch();
+        Board allReplies = others;
+        _ponderResult = searchPool().submit(() -> {
+            Move result = _ponderer.search(copy, 1, depth);
+            _ponderDepth = _ponderer.finishedDepth();
+            if (allReplies != null) {
+                _ponderer.search(allReplies, 1, depth + 1);
+            }
+            return result;
+        });
+        if (allowance > 0) {
+            _ponderAlarm = alarms().schedule(_ponderer::stop, allowance,
+                                             TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stop pondering, if I am.  Return the move found by pondering if
+     * it was for the current position and searched as deep as a
+     * normal search, and otherwise null.  When my TimeManager decides
+     * how deep I search, pondering need only see as many plies ahead
+     * of my last move as my last search did, which is two fewer from
+     * the position two plies on.
+     */
+    private Move stopPondering() {
+        if (_ponderResult == null) {
+            return null;
+        }
+        if (_ponderAlarm != null) {
+            _ponderAlarm.cancel(false);
+            _ponderAlarm = null;
+        }
+        _ponderer.stop();
+        Move move;
+        try {
+            move = _ponderResult.get();
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new Error("pondering failed", excp);
+        }
+        _ponderResult = null;
+        int depth =
+            timed() ? Math.max(1, _lastDepth - 2) : searchDepth();
+        if (move != null && _ponderDepth >= depth
+            && samePosition(_ponderBoard, board())) {
+            return move;
+        }
+        return null;
+    }
+
+    /**
+     * Return true iff B0 and B1 hold the same position: the same pieces
+     * and player on move, and the same counters that decide when the
+     * game ends, so that a search of one holds for the other.
+     */
+    private static boolean samePosition(Board b0, Board b1) {
+        return b0.zobrist() == b1.zobrist()
+            && b0.jumpCount() == b1.jumpCount()
+            && b0.lastExtended() == b1.lastExtended();
+    }
+
+    /**
+     * Return the executor that stops searches at their deadlines,
+     * creating it if needed.
+     */
+    private static synchronized ScheduledExecutorService alarms() {
+        if (_alarms == null) {
+            _alarms = Executors.newSingleThreadScheduledExecutor(AI::daemon);
+        }
+        return _alarms;
     }
 
     /**
-     * Return a heuristic value for BOARD.
-     * @param  board is the current board.
-     * @param move is the move to evaluate.
-     * @return int is the current static score.
+     * Return the thread pool that runs the helper and pondering
+     * searches of all AIs, creating it if needed.  Its threads are
+     * created as needed and end when idle for a while, so that AIs
+     * that are no longer used leave no threads behind.
      */
-    private int staticScore(Board board, Move move) {
-        Board tempBoard = new Board(board);
-        tempBoard.makeMove(move);
-        int totalScore;
-        int sizeAdvantage = tempBoard.numPieces(myColor())
-                -
-                tempBoard.numPieces(myColor().opposite());
-        totalScore = sizeAdvantage;
-        return totalScore;
+    private static synchronized ExecutorService searchPool() {
+        if (_searchPool == null) {
+            _searchPool = Executors.newCachedThreadPool(AI::daemon);
+        }
+        return _searchPool;
+    }
+
+    /**
+     * Return a daemon thread for the search thread pools, to run R.
+     */
+    private static Thread daemon(Runnable r) {
+        Thread thread = new Thread(r, "ataxx-search");
+        thread.setDaemon(true);
+        return thread;
     }
 
     /**
@@ -104,12 +555,175 @@ class AI extends Player {
      **/
     public ArrayList<Move> availableMoves(Board board, PieceColor player) {
         ArrayList<Move> allMoves = new ArrayList<>();
-        for (int i = (board.EXTENDED_SIDE * 2 + 2);
-             i <= (board.EXTENDED_SIDE * 9 - 3); i++) {
-            if (board.get(i) == myColor()) {
-                board.allocateAllMoves(allMoves, i, myColor());
-            }
+        int[] packed = new int[Board.MAX_MOVES];
+        int n = board.generateMoves(packed);
+        for (int i = 0; i < n; i += 1) {
+            allMoves.add(Move.move(packed[i]));
         }
         return allMoves;
     }
+
+    /**
+     * Depth of the deepest iteration of the search.
+     */
+    private int _depth = MAX_DEPTH;
+
+    /**
+     * True iff setDepth has been called.
+     */
+    private boolean _depthSet;
+
+    /**
+     * Limit on each move used by AIs by default, in milliseconds.  It
+     * keeps a whole game between AIs well inside the time limits of
+     * test scripts.
+     */
+    static final long DEFAULT_MOVE_MILLIS = 500;
+
+    /**
+     * Time limits on the whole game and on each move of AIs created
+     * from now on, in milliseconds (none if 0).
+     */
+    private static long defaultGameMillis = 0,
+        defaultMoveMillis = DEFAULT_MOVE_MILLIS;
+
+    /**
+     * Decides how long I think about each move.
+     */
+    private TimeManager _time =
+        new TimeManager(defaultGameMillis, defaultMoveMillis);
+
+    /**
+     * Statistics of my last search, or null.
+     */
+    private SearchStats _lastStats;
+
+    /**
+     * Stops searches at their deadlines.  Created when first needed.
+     */
+    private static ScheduledExecutorService _alarms;
+
+    /**
+     * Runs the helper and pondering searches of all AIs.  Created when
+     * first needed.
+     */
+    private static ExecutorService _searchPool;
+
+    /**
+     * The transposition table shared by AIs that are not given their
+     * own.
+     */
+    private static TranspositionTable _sharedTable;
+
+    /**
+     * My transposition table.
+     */
+    private TranspositionTable _table;
+
+    /**
+     * My static evaluation.
+     */
+    private Evaluator _evaluator = defaultEvaluator;
+
+    /**
+     * Static evaluation of AIs created from now on.
+     */
+    private static Evaluator defaultEvaluator = new Evaluator();
+
+    /**
+     * The search techniques I use.
+     */
+    private final EnumSet<Searcher.Technique> _techniques =
+        EnumSet.allOf(Searcher.Technique.class);
+
+    /**
+     * Number of search threads, including the one that calls findMove.
+     */
+    private int _threads = defaultThreads;
+
+    /**
+     * Number of search threads used by AIs created from now on.
+     */
+    private static int defaultThreads = 1;
+
+    /**
+     * The Searcher run by the thread that calls findMove.
+     */
+    private final Searcher _searcher;
+
+    /**
+     * Searchers run by the helper threads, one per helper.
+     */
+    private Searcher[] _helpers = new Searcher[0];
+
+
+    /**
+     * My opening book, or null if I have none.
+     */
+    private OpeningBook _book = defaultBook;
+
+    /**
+     * Opening book of AIs created from now on.
+     */
+    private static OpeningBook defaultBook;
+
+    /**
+     * Largest number of empty squares for which I use _solver.
+     */
+    private int _endgameThreshold = defaultEndgameThreshold;
+
+    /**
+     * Largest number of empty squares for which AIs created from now
+     * on use an endgame solver.
+     */
+    private static int defaultEndgameThreshold =
+        EndgameSolver.DEFAULT_THRESHOLD;
+
+    /**
+     * My endgame solver, created when first needed.
+     */
+    private EndgameSolver _solver;
+
+    /**
+     * True iff I ponder.
+     */
+    private boolean _pondering = defaultPondering;
+
+    /**
+     * True iff AIs created from now on ponder.
+     */
+    private static boolean defaultPondering = false;
+
+    /**
+     * The Searcher used for pondering, created when first needed.
+     */
+    private Searcher _ponderer;
+
+    /**
+     * Depth of the deepest finished iteration of pondering the expected
+     * position.
+     */
+    private int _ponderDepth;
+
+    /**
+     * Depth of the deepest finished iteration of my last search.
+     */
+    private int _lastDepth;
+
+    /**
+     * Stops the current pondering when its time is up, or null if it
+     * has no limit.
+     */
+    private ScheduledFuture<?> _ponderAlarm;
+
+    /**
+     * The position being pondered.
+     */
+    private Board _ponderBoard;
+
+    /**
+     * The result of the current pondering, or null if I am not
+     * pondering.
+     */
+    private Future<Move> _ponderResult;
 }
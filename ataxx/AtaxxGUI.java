@@ -91,6 +91,10 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
     public void moveMsg(String format, Object... args) {
     }
 
+    @Override
+    public void infoMsg(String format, Object... args) {
+    }
+
     @Override
     public void update(Observable obs, Object arg) {
         if (obs == _model) {
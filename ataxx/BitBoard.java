@@ -0,0 +1,588 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static ataxx.GameException.error;
+import static ataxx.PieceColor.*;
+
+/** An Ataxx board that keeps its 49 playable squares in three 64-bit
+ *  words: one bit per square for red pieces, blue pieces, and blocks.
+ *  Square (c, r), where 0 <= c, r < SIDE, is bit r * SIDE + c, so that
+ *  a1 is bit 0 and g7 is bit 48.
+ *
+ *  BitBoard offers the same get/makeMove/undo/numPieces surface as
+ *  Board (squares are still named by column and row characters or by
+ *  the linearized index of the extended 11x11 board, and the border is
+ *  reported as BLOCKED), so that code written against a Board can be
+ *  pointed at a BitBoard unchanged.  Like Board, it is a Position:
+ *  it generates moves packed as by Move.packed and keeps the same
+ *  Zobrist key, so that searches of the move tree, such as Perft's,
+ *  can run on either.  Captures come from precomputed neighborhood
+ *  masks, piece counts from Long.bitCount, and moves and mobility
+ *  from masking and shifting whole bitboards, so none of these
+ *  operations loops over squares.
+ *  @author Ahmad Badary
+ */
+class BitBoard implements Position {
+
+    /** Number of squares on a side of the board. */
+    static final int SIDE = Board.SIDE;
+
+    /** Number of playable squares. */
+    static final int SQUARES = SIDE * SIDE;
+
+    /** Mask of all playable squares. */
+    static final long ALL = (1L << SQUARES) - 1;
+
+    /** For each square, the squares at distance exactly 1 (the
+     *  targets of extends). */
+    static final long[] EXTENDS = new long[SQUARES];
+
+    /** For each square, the squares at distance exactly 2 (the
+     *  targets of jumps). */
+    static final long[] JUMPS = new long[SQUARES];
+
+    /** A new, cleared board at the start of the game. */
+    BitBoard() {
+        clear();
+    }
+
+    /** A copy of B. */
+    BitBoard(BitBoard b) {
+        _red = b._red;
+        _blue = b._blue;
+        _blocked = b._blocked;
+        _whoseMove = b._whoseMove;
+        _numMoves = b._numMoves;
+        _numNPMoves = b._numNPMoves;
+        _maxJumps = b._maxJumps;
+        _extend = b._extend;
+        _key = b._key;
+    }
+
+    /** A copy of the position on B, with the same counters that
+     *  new Board(B) would copy. */
+    BitBoard(Board b) {
+        for (int bit = 0; bit < SQUARES; bit += 1) {
+            switch (b.get(EXT_OF[bit])) {
+            case RED:
+                _red |= 1L << bit;
+                break;
+            case BLUE:
+                _blue |= 1L << bit;
+                break;
+            case BLOCKED:
+                _blocked |= 1L << bit;
+                break;
+            default:
+                break;
+            }
+        }
+        _whoseMove = b.whoseMove();
+        _numMoves = b.numMoves();
+        _numNPMoves = b.numJumps();
+        _maxJumps = b.jumpCount();
+        _extend = b.lastExtended();
+        _key = b.zobrist();
+    }
+
+    /** Return the bit number of the square with linearized index SQ on
+     *  the extended board, or -1 if SQ is in the border. */
+    static int bit(int sq) {
+        return BIT_OF[sq];
+    }
+
+    /** Return the linearized index on the extended board of bit BIT. */
+    static int index(int bit) {
+        return EXT_OF[bit];
+    }
+
+    /** Return BITS with every square within distance 1 of one of its
+     *  squares added. */
+    static long grow(long bits) {
+        long row = bits | ((bits << 1) & NOT_COL_A)
+            | ((bits >>> 1) & NOT_COL_G);
+        return (row | (row << SIDE) | (row >>> SIDE)) & ALL;
+    }
+
+    /** Clear me to my starting state, with pieces in their initial
+     *  positions and no blocks. */
+    void clear() {
+        _red = (1L << (SIDE - 1)) | (1L << (SQUARES - SIDE));
+        _blue = 1L | (1L << (SQUARES - 1));
+        _blocked = 0;
+        _whoseMove = RED;
+        _numMoves = _numNPMoves = _maxJumps = 0;
+        _extend = false;
+        _undoTop = 0;
+        _moves.clear();
+        rehash();
+    }
+
+    @Override
+    public BitBoard copy() {
+        return new BitBoard(this);
+    }
+
+    /** Return true iff the game is over: i.e., if neither side has
+     *  any moves, if one side has no pieces, if the board is full, or
+     *  if there have been JUMP_LIMIT jumps without intervening
+     *  extends. */
+    @Override
+    public boolean gameOver() {
+        if (_red == 0 || _blue == 0) {
+            return true;
+        } else if ((_red | _blue | _blocked) == ALL) {
+            return true;
+        } else if (_maxJumps >= Board.JUMP_LIMIT) {
+            return true;
+        }
+        return !canMove(RED) && !canMove(BLUE);
+    }
+
+    /** Return number of red pieces on the board. */
+    int redPieces() {
+        return Long.bitCount(_red);
+    }
+
+    /** Return number of blue pieces on the board. */
+    int bluePieces() {
+        return Long.bitCount(_blue);
+    }
+
+    /** Return number of COLOR pieces on the board. */
+    int numPieces(PieceColor color) {
+        return Long.bitCount(pieces(color));
+    }
+
+    /** Return number of blocked squares on the board. */
+    int numBlocks() {
+        return Long.bitCount(_blocked);
+    }
+
+    /** Return the set of squares holding COLOR pieces. */
+    long pieces(PieceColor color) {
+        return color == RED ? _red : _blue;
+    }
+
+    /** Return the set of blocked squares. */
+    long blocks() {
+        return _blocked;
+    }
+
+    /** Return the set of empty squares. */
+    long empties() {
+        return ~(_red | _blue | _blocked) & ALL;
+    }
+
+    /** The current contents of square CR, where 'a'-2 <= C <= 'g'+2, and
+     *  '1'-2 <= R <= '7'+2.  Squares outside the range a1-g7 are all
+     *  BLOCKED. */
+    PieceColor get(char c, char r) {
+        return get(Board.index(c, r));
+    }
+
+    /** Return the current contents of the square with linearized index
+     *  SQ on the extended board. */
+    PieceColor get(int sq) {
+        int b = BIT_OF[sq];
+        if (b < 0) {
+            return BLOCKED;
+        }
+        long m = 1L << b;
+        if ((_red & m) != 0) {
+            return RED;
+        } else if ((_blue & m) != 0) {
+            return BLUE;
+        } else if ((_blocked & m) != 0) {
+            return BLOCKED;
+        }
+        return EMPTY;
+    }
+
+    /** Return the color of the player who has the next move.  The
+     *  value is arbitrary if gameOver(). */
+    @Override
+    public PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return total number of moves and passes since the last
+     *  clear or the creation of the board. */
+    int numMoves() {
+        return _numMoves;
+    }
+
+    /** Return number of non-pass moves made in the current game since
+     *  the start of the game, as for Board.numJumps. */
+    int numJumps() {
+        return _numNPMoves;
+    }
+
+    @Override
+    public int jumpCount() {
+        return _maxJumps;
+    }
+
+    @Override
+    public boolean lastExtended() {
+        return _extend;
+    }
+
+    @Override
+    public long zobrist() {
+        return _key;
+    }
+
+    /** Return true iff player WHO can move, ignoring whether it is
+     *  that player's move and whether the game is over. */
+    boolean canMove(PieceColor who) {
+        return (grow(grow(pieces(who))) & empties()) != 0;
+    }
+
+    /** Return the number of empty squares that player WHO could move
+     *  to, ignoring whether it is that player's move. */
+    int mobility(PieceColor who) {
+        return Long.bitCount(grow(grow(pieces(who))) & empties());
+    }
+
+    /** Throw a GameException unless MOVE is legal on the current
+     *  board. */
+    void legalMove(Move move) {
+        if (!isLegalMove(move)) {
+            throw new GameException("Illegal move.");
+        }
+    }
+
+    /** Return true iff MOVE is legal on the current board. */
+    boolean isLegalMove(Move move) {
+        if (move == null) {
+            return false;
+        }
+        if (move.isPass()) {
+            return !canMove(_whoseMove);
+        }
+        int from = BIT_OF[move.fromIndex()], to = BIT_OF[move.toIndex()];
+        if (from < 0 || to < 0) {
+            return false;
+        }
+        return (pieces(_whoseMove) & (1L << from)) != 0
+            && (empties() & (1L << to)) != 0
+            && ((EXTENDS[from] | JUMPS[from]) & (1L << to)) != 0;
+    }
+
+    /** Perform the move C0R0-C1R1, or pass if C0 is '-'.  For moves
+     *  other than pass, assumes that legalMove(C0, R0, C1, R1). */
+    void makeMove(char c0, char r0, char c1, char r1) {
+        if (c0 == '-') {
+            makeMove(Move.pass());
+        } else {
+            makeMove(Move.move(c0, r0, c1, r1));
+        }
+    }
+
+    /** Make the MOVE on this board, assuming it is legal. */
+    void makeMove(Move move) {
+        legalMove(move);
+        makeMove(move.packed());
+    }
+
+    /** Make the move whose packed form is PACKED, as for
+     *  Board.makeMove(int): unchecked, for searches to use together
+     *  with retract. */
+    @Override
+    public void makeMove(int packed) {
+        pushUndo();
+        _moves.add(Move.move(packed));
+        _numMoves += 1;
+        _key ^= Board.ZOBRIST_BLUE_TO_MOVE;
+        if (packed == Move.PACKED_PASS) {
+            _whoseMove = _whoseMove.opposite();
+            return;
+        }
+        int to = BIT_OF[Move.toIndex(packed)];
+        long[] ownKeys = Board.ZOBRIST[_whoseMove.ordinal()],
+            oppKeys = Board.ZOBRIST[_whoseMove.opposite().ordinal()];
+        long own = pieces(_whoseMove), opp = pieces(_whoseMove.opposite());
+        long flips = EXTENDS[to] & opp;
+        if (Move.isJump(packed)) {
+            int from = Move.fromIndex(packed);
+            own &= ~(1L << BIT_OF[from]);
+            _key ^= ownKeys[from];
+            if (!_extend) {
+                _maxJumps += 1;
+            } else {
+                _maxJumps = 0;
+                _extend = false;
+            }
+        } else {
+            _extend = true;
+        }
+        own |= (1L << to) | flips;
+        opp &= ~flips;
+        _key ^= ownKeys[EXT_OF[to]];
+        for (; flips != 0; flips &= flips - 1) {
+            int sq = EXT_OF[Long.numberOfTrailingZeros(flips)];
+            _key ^= ownKeys[sq] ^ oppKeys[sq];
+        }
+        if (_whoseMove == RED) {
+            _red = own;
+            _blue = opp;
+        } else {
+            _blue = own;
+            _red = opp;
+        }
+        _whoseMove = _whoseMove.opposite();
+        _numNPMoves += 1;
+    }
+
+    /** Undo the last move, or clear the board if there is none. */
+    void undo() {
+        if (_undoTop == 0) {
+            clear();
+        } else {
+            retract();
+        }
+    }
+
+    @Override
+    public void retract() {
+        _undoTop -= UNDO_FRAME;
+        _red = _undo[_undoTop];
+        _blue = _undo[_undoTop + 1];
+        long meta = _undo[_undoTop + 2];
+        _key = _undo[_undoTop + 3];
+        _numMoves = (int) (meta & COUNTER_MASK);
+        _numNPMoves = (int) ((meta >>> COUNTER_BITS) & COUNTER_MASK);
+        _maxJumps = (int) ((meta >>> (2 * COUNTER_BITS)) & JUMPS_MASK);
+        _extend = (meta & EXTEND_FLAG) != 0;
+        _whoseMove = (meta & BLUE_FLAG) != 0 ? BLUE : RED;
+        _moves.remove(_moves.size() - 1);
+    }
+
+    /** Return true iff it is legal to place a block at C R. */
+    boolean legalBlock(char c, char r) {
+        return get(c, r) == EMPTY;
+    }
+
+    /** Set a block on the square C R and its reflections across the
+     *  middle row and/or column, as for Board.setBlock. */
+    void setBlock(char c, char r) {
+        if (!legalBlock(c, r)) {
+            throw error("illegal block placement");
+        }
+        char opRow = (char) ('1' + '7' - r);
+        char opCol = (char) ('a' + 'g' - c);
+        _blocked |= (1L << BIT_OF[Board.index(c, r)])
+            | (1L << BIT_OF[Board.index(c, opRow)])
+            | (1L << BIT_OF[Board.index(opCol, r)])
+            | (1L << BIT_OF[Board.index(opCol, opRow)]);
+        _blocked &= ~(_red | _blue);
+        rehash();
+    }
+
+    /** Place a block at CR. */
+    void setBlock(String cr) {
+        setBlock(cr.charAt(0), cr.charAt(1));
+    }
+
+    /** Add all legal non-pass moves for the player to move to MOVES. */
+    void legalMoves(List<Move> moves) {
+        int[] packed = new int[Board.MAX_MOVES];
+        for (int k = 0, n = generateMoves(packed); k < n; k += 1) {
+            moves.add(Move.move(packed[k]));
+        }
+    }
+
+    /** Store the legal non-pass moves for the player on move in MOVES,
+     *  packed and ordered as by Board.generateMoves, and return how
+     *  many there are.  The targets of each piece are its neighborhood
+     *  masks less the occupied squares, so this allocates nothing and
+     *  examines only the squares that are moved to. */
+    @Override
+    public int generateMoves(int[] moves) {
+        long empty = empties();
+        int n = 0;
+        for (long own = pieces(_whoseMove); own != 0; own &= own - 1) {
+            int from = Long.numberOfTrailingZeros(own);
+            int sq = EXT_OF[from];
+            for (long to = EXTENDS[from] & empty; to != 0; to &= to - 1) {
+                int target = EXT_OF[Long.numberOfTrailingZeros(to)];
+                moves[n] = Move.pack(sq, target, false);
+                n += 1;
+            }
+            for (long to = JUMPS[from] & empty; to != 0; to &= to - 1) {
+                int target = EXT_OF[Long.numberOfTrailingZeros(to)];
+                moves[n] = Move.pack(sq, target, true);
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    /** Return a list of all moves made since the last clear (or start of
+     *  game). */
+    List<Move> allMoves() {
+        return _moves;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BitBoard)) {
+            return false;
+        }
+        BitBoard other = (BitBoard) obj;
+        return _red == other._red && _blue == other._blue
+            && _blocked == other._blocked
+            && _whoseMove == other._whoseMove;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = _red * 31 + _blue;
+        h = h * 31 + _blocked;
+        return Long.hashCode(h) ^ _whoseMove.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (char r = '7'; r >= '1'; r -= 1) {
+            out.append(" ");
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                switch (get(c, r)) {
+                case RED:
+                    out.append(" r");
+                    break;
+                case BLUE:
+                    out.append(" b");
+                    break;
+                case BLOCKED:
+                    out.append(" X");
+                    break;
+                default:
+                    out.append(" -");
+                    break;
+                }
+            }
+            out.append("\n");
+        }
+        return out.toString();
+    }
+
+    /** Save the current position and counters on the undo stack. */
+    private void pushUndo() {
+        if (_undoTop == _undo.length) {
+            _undo = Arrays.copyOf(_undo, 2 * _undo.length);
+        }
+        long meta = _numMoves | ((long) _numNPMoves << COUNTER_BITS)
+            | ((long) _maxJumps << (2 * COUNTER_BITS));
+        if (_extend) {
+            meta |= EXTEND_FLAG;
+        }
+        if (_whoseMove == BLUE) {
+            meta |= BLUE_FLAG;
+        }
+        _undo[_undoTop] = _red;
+        _undo[_undoTop + 1] = _blue;
+        _undo[_undoTop + 2] = meta;
+        _undo[_undoTop + 3] = _key;
+        _undoTop += UNDO_FRAME;
+    }
+
+    /** Recompute my Zobrist key from scratch. */
+    private void rehash() {
+        _key = _whoseMove == BLUE ? Board.ZOBRIST_BLUE_TO_MOVE : 0;
+        for (int b = 0; b < SQUARES; b += 1) {
+            _key ^= Board.ZOBRIST[get(EXT_OF[b]).ordinal()][EXT_OF[b]];
+        }
+    }
+
+    /** Number of longs saved on the undo stack per move. */
+    private static final int UNDO_FRAME = 4;
+
+    /** Width of the move counters packed into an undo frame. */
+    private static final int COUNTER_BITS = 24;
+
+    /** Mask for one packed move counter. */
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+
+    /** Mask for the packed jump counter. */
+    private static final long JUMPS_MASK = 0xff;
+
+    /** Undo-frame flag recording that the last move was an extend. */
+    private static final long EXTEND_FLAG = 1L << 56;
+
+    /** Undo-frame flag recording that blue was on move. */
+    private static final long BLUE_FLAG = 1L << 57;
+
+    /** Mask of all squares not in column a. */
+    private static final long NOT_COL_A;
+
+    /** Mask of all squares not in column g. */
+    private static final long NOT_COL_G;
+
+    /** Bit number of each linearized index of the extended board, or
+     *  -1 for border squares. */
+    private static final int[] BIT_OF =
+        new int[Board.EXTENDED_SIDE * Board.EXTENDED_SIDE];
+
+    /** Linearized index on the extended board of each bit. */
+    private static final int[] EXT_OF = new int[SQUARES];
+
+    static {
+        long colA = 0, colG = 0;
+        Arrays.fill(BIT_OF, -1);
+        for (int r = 0; r < SIDE; r += 1) {
+            colA |= 1L << (r * SIDE);
+            colG |= 1L << (r * SIDE + SIDE - 1);
+            for (int c = 0; c < SIDE; c += 1) {
+                int b = r * SIDE + c;
+                EXT_OF[b] = (r + 2) * Board.EXTENDED_SIDE + c + 2;
+                BIT_OF[EXT_OF[b]] = b;
+            }
+        }
+        NOT_COL_A = ALL & ~colA;
+        NOT_COL_G = ALL & ~colG;
+        for (int b = 0; b < SQUARES; b += 1) {
+            int c0 = b % SIDE, r0 = b / SIDE;
+            for (int t = 0; t < SQUARES; t += 1) {
+                int dist = Math.max(Math.abs(t % SIDE - c0),
+                                    Math.abs(t / SIDE - r0));
+                if (dist == 1) {
+                    EXTENDS[b] |= 1L << t;
+                } else if (dist == 2) {
+                    JUMPS[b] |= 1L << t;
+                }
+            }
+        }
+    }
+
+    /** Red pieces. */
+    private long _red;
+    /** Blue pieces. */
+    private long _blue;
+    /** Blocked squares. */
+    private long _blocked;
+    /** Player that is on move. */
+    private PieceColor _whoseMove;
+    /** Number of moves and passes since the beginning of the game. */
+    private int _numMoves;
+    /** Number of non-pass moves since the beginning of the game. */
+    private int _numNPMoves;
+    /** Number of jumps counted toward JUMP_LIMIT, as in Board. */
+    private int _maxJumps;
+    /** True iff the last piece move counted by _maxJumps was an
+     *  extend. */
+    private boolean _extend;
+    /** Zobrist key of the position, as for Board.zobrist. */
+    private long _key;
+    /** Saved positions and counters, UNDO_FRAME longs per move. */
+    private long[] _undo = new long[UNDO_FRAME * 64];
+    /** Number of longs in use in _undo. */
+    private int _undoTop;
+    /** The moves made since the last clear. */
+    private final ArrayList<Move> _moves = new ArrayList<>();
+}
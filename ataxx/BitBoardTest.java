@@ -0,0 +1,160 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the BitBoard class, mostly by playing the same games on a
+ *  BitBoard and on a Board and comparing the results.
+ *  @author Ahmad Badary
+ */
+public class BitBoardTest {
+
+    /** Check that B and BB describe the same position. */
+    private static void checkSame(String msg, Board b, BitBoard bb) {
+        for (char r = '1' - 2; r <= '7' + 2; r += 1) {
+            for (char c = 'a' - 2; c <= 'g' + 2; c += 1) {
+                assertEquals(msg + " at " + c + r, b.get(c, r), bb.get(c, r));
+            }
+        }
+        assertEquals(msg + ": red", b.redPieces(), bb.redPieces());
+        assertEquals(msg + ": blue", b.bluePieces(), bb.bluePieces());
+        assertEquals(msg + ": to move", b.whoseMove(), bb.whoseMove());
+        assertEquals(msg + ": red mobility", b.canMove(PieceColor.RED),
+                     bb.canMove(PieceColor.RED));
+        assertEquals(msg + ": blue mobility", b.canMove(PieceColor.BLUE),
+                     bb.canMove(PieceColor.BLUE));
+        assertEquals(msg + ": red reach", b.mobility(PieceColor.RED),
+                     bb.mobility(PieceColor.RED));
+        assertEquals(msg + ": blue reach", b.mobility(PieceColor.BLUE),
+                     bb.mobility(PieceColor.BLUE));
+        assertEquals(msg + ": game over", b.gameOver(), bb.gameOver());
+        assertEquals(msg + ": key", b.zobrist(), bb.zobrist());
+        assertEquals(msg + ": jumps", b.jumpCount(), bb.jumpCount());
+        assertEquals(msg + ": extended", b.lastExtended(),
+                     bb.lastExtended());
+    }
+
+    /** Return the legal moves on B, as found by Board.allocateAllMoves. */
+    private static HashSet<String> boardMoves(Board b) {
+        ArrayList<Move> moves = new ArrayList<>();
+        for (char r = '1'; r <= '7'; r += 1) {
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                if (b.get(c, r) == b.whoseMove()) {
+                    b.allocateAllMoves(moves, Board.index(c, r),
+                                       b.whoseMove());
+                }
+            }
+        }
+        HashSet<String> result = new HashSet<>();
+        for (Move mv : moves) {
+            result.add(mv.toString());
+        }
+        return result;
+    }
+
+    /** Return the legal moves on BB. */
+    private static HashSet<String> bitBoardMoves(BitBoard bb) {
+        ArrayList<Move> moves = new ArrayList<>();
+        bb.legalMoves(moves);
+        HashSet<String> result = new HashSet<>();
+        for (Move mv : moves) {
+            assertTrue("illegal move generated: " + mv, bb.isLegalMove(mv));
+            result.add(mv.toString());
+        }
+        return result;
+    }
+
+    @Test public void testInitial() {
+        checkSame("initial", new Board(), new BitBoard());
+        assertEquals(new Board().get('a', '7'), PieceColor.RED);
+        assertEquals(new BitBoard().get('g', '7'), PieceColor.BLUE);
+    }
+
+    @Test public void testBlocks() {
+        Board b = new Board();
+        BitBoard bb = new BitBoard();
+        for (String sq : new String[] { "b7", "c5", "d4", "a4" }) {
+            b.setBlock(sq);
+            bb.setBlock(sq);
+        }
+        checkSame("blocks", b, bb);
+        assertEquals(new BitBoard(b), bb);
+    }
+
+    @Test public void testRandomGames() {
+        Random rand = new Random(61);
+        for (int game = 0; game < 40; game += 1) {
+            Board b = new Board();
+            BitBoard bb = new BitBoard();
+            if (game % 2 == 1) {
+                b.setBlock("c3");
+                bb.setBlock("c3");
+            }
+            BitBoard start = new BitBoard(bb);
+            int plies = 0;
+            while (!b.gameOver() && plies < 200) {
+                HashSet<String> expected = boardMoves(b);
+                assertEquals("moves differ", expected, bitBoardMoves(bb));
+                ArrayList<Move> moves = new ArrayList<>();
+                bb.legalMoves(moves);
+                Move mv = moves.isEmpty() ? Move.pass()
+                    : moves.get(rand.nextInt(moves.size()));
+                b.makeMove(mv);
+                bb.makeMove(mv);
+                plies += 1;
+                checkSame("after " + mv, b, bb);
+            }
+            for (int k = 0; k < plies; k += 1) {
+                b.undo();
+                bb.undo();
+                checkSame("after undo", b, bb);
+            }
+            assertEquals("undo failed", start, bb);
+        }
+    }
+
+    @Test public void testPackedMoves() {
+        Random rand = new Random(67);
+        int[] expected = new int[Board.MAX_MOVES];
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int game = 0; game < 20; game += 1) {
+            Board b = new Board();
+            if (game % 2 == 1) {
+                b.setBlock("b2");
+            }
+            BitBoard bb = new BitBoard(b);
+            while (!b.gameOver()) {
+                int n = b.generateMoves(expected);
+                assertEquals("number of moves", n, bb.generateMoves(moves));
+                for (int k = 0; k < n; k += 1) {
+                    assertEquals("move " + k, expected[k], moves[k]);
+                }
+                int mv = n == 0 ? Move.PACKED_PASS
+                    : expected[rand.nextInt(n)];
+                b.makeMove(mv);
+                bb.makeMove(mv);
+                checkSame("after " + Move.move(mv), b, bb);
+            }
+            while (!b.allMoves().isEmpty()) {
+                b.retract();
+                bb.retract();
+                checkSame("after retract", b, bb);
+            }
+        }
+    }
+
+    @Test public void testUndo() {
+        BitBoard b0 = new BitBoard();
+        b0.makeMove('a', '7', 'b', '7');
+        BitBoard b1 = new BitBoard(b0);
+        b0.makeMove('g', '7', 'e', '5');
+        b0.undo();
+        assertEquals("failed to undo jump", b1, b0);
+        b0.undo();
+        assertEquals("failed to return to start", new BitBoard(), b0);
+    }
+}
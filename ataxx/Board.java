@@ -8,6 +8,7 @@ import java.util.Arrays;
 import java.util.Formatter;
 import java.util.List;
 import java.util.Observable;
+import java.util.Random;
 
 import static ataxx.GameException.error;
 import static ataxx.PieceColor.*;
@@ -34,7 +35,7 @@ import static java.lang.Math.abs;
  *  Moves on this board are denoted by Moves.
  *  @author Ahmad Badary
  */
-class Board extends Observable {
+class Board extends Observable implements Position {
 
     /**
      * Number of squares on a side of the board.
@@ -63,6 +64,10 @@ class Board extends Observable {
      */
     Board() {
         _board = new PieceColor[EXTENDED_SIDE * EXTENDED_SIDE];
+        _reach[RED.ordinal()] = new int[_board.length];
+        _reach[BLUE.ordinal()] = new int[_board.length];
+        _adjacent[RED.ordinal()] = new int[_board.length];
+        _adjacent[BLUE.ordinal()] = new int[_board.length];
         clear();
     }
 
@@ -76,7 +81,55 @@ class Board extends Observable {
         numReds = b.numReds;
         numMoves = b.numMoves;
         numNPMoves = b.numNPMoves;
+        maxJumps = b.maxJumps;
+        extend = b.extend;
         _whoseMove = b._whoseMove;
+        _zobrist = b._zobrist;
+        _reach[RED.ordinal()] = b._reach[RED.ordinal()].clone();
+        _reach[BLUE.ordinal()] = b._reach[BLUE.ordinal()].clone();
+        _mobility = b._mobility.clone();
+        _adjacent[RED.ordinal()] = b._adjacent[RED.ordinal()].clone();
+        _adjacent[BLUE.ordinal()] = b._adjacent[BLUE.ordinal()].clone();
+        _frontier = b._frontier.clone();
+        _exposed = b._exposed.clone();
+        _edges = b._edges.clone();
+        _corners = b._corners.clone();
+        if (b._accumulator != null) {
+            _accumulator = new NeuralEvaluator.Accumulator(b._accumulator);
+        }
+    }
+
+    /**
+     * Return the board whose squares are described by SQUARES, with the
+     * player denoted by SIDE ('r' or 'b') on move.  SQUARES gives the
+     * 49 squares, rows 7 to 1 and within each row columns a to g, as
+     * 'r' (red), 'b' (blue), 'X' (block), or '-' (empty).  Throws a
+     * GameException if SQUARES or SIDE is malformed.
+     */
+    static Board parse(String squares, char side) {
+        if (!squares.matches("[-rbX]{" + SIDE * SIDE + "}")
+            || (side != 'r' && side != 'b')) {
+            throw error("bad position: %s %c", squares, side);
+        }
+        long red = 0, blue = 0, blocks = 0;
+        for (int i = 0; i < SIDE * SIDE; i += 1) {
+            int row = SIDE - 1 - i / SIDE;
+            long bit = 1L << (row * SIDE + i % SIDE);
+            switch (squares.charAt(i)) {
+            case 'r':
+                red |= bit;
+                break;
+            case 'b':
+                blue |= bit;
+                break;
+            case 'X':
+                blocks |= bit;
+                break;
+            default:
+                break;
+            }
+        }
+        return new Board(red, blue, blocks, side == 'r' ? RED : BLUE);
     }
 
     /**
@@ -99,36 +152,9 @@ class Board extends Observable {
      * positions and no blocks.
      */
     void clear() {
-        for (int i = 0; i < EXTENDED_SIDE * EXTENDED_SIDE; i++) {
-            if (i <= (EXTENDED_SIDE * 2 + 1) || i >= (EXTENDED_SIDE * 9 - 2)) {
-                _board[i] = BLOCKED;
-            } else if ((i >= (EXTENDED_SIDE * 3 - 2)
-                    &&
-                    i <= (EXTENDED_SIDE * 3 + 1))
-                    ||
-                    (i >= (EXTENDED_SIDE * 4 - 2)
-                            &&
-                            i <= (EXTENDED_SIDE * 4 + 1))
-                    ||
-                    (i >= (EXTENDED_SIDE * 5 - 2)
-                            &&
-                            i <= (EXTENDED_SIDE * 5 + 1))
-                    ||
-                    (i >= (EXTENDED_SIDE * 6 - 2)
-                            &&
-                            i <= (EXTENDED_SIDE * 6 + 1))
-                    ||
-                    (i >= (EXTENDED_SIDE * 7 - 2)
-                            &&
-                            i <= (EXTENDED_SIDE * 7 + 1))
-                    ||
-                    (i >= (EXTENDED_SIDE * 8 - 2)
-                            &&
-                            i <= (EXTENDED_SIDE * 8 + 1))) {
-                _board[i] = BLOCKED;
-            } else {
-                _board[i] = EMPTY;
-            }
+        Arrays.fill(_board, BLOCKED);
+        for (int sq : PLAYABLE) {
+            _board[sq] = EMPTY;
         }
         int begR = EXTENDED_SIDE * 8 + 2;
         int begB = EXTENDED_SIDE * 9 - 3;
@@ -140,6 +166,61 @@ class Board extends Observable {
         numBlocks = 0;
         numBlues = 2;
         numReds = 2;
+        reset();
+    }
+
+    /**
+     * A board with no history, holding red pieces, blue pieces, and
+     * blocks on the squares in RED, BLUE, and BLOCKS (bitboards
+     * numbered as for BitBoard.bit), with WHOSEMOVE on move.
+     */
+    Board(long red, long blue, long blocks, PieceColor whoseMove) {
+        this();
+        Arrays.fill(_board, BLOCKED);
+        for (int sq : PLAYABLE) {
+            long mask = 1L << BitBoard.bit(sq);
+            _board[sq] = (red & mask) != 0 ? RED
+                : (blue & mask) != 0 ? BLUE
+                : (blocks & mask) != 0 ? BLOCKED : EMPTY;
+        }
+        _whoseMove = whoseMove;
+        numReds = Long.bitCount(red & BitBoard.ALL);
+        numBlues = Long.bitCount(blue & ~red & BitBoard.ALL);
+        numBlocks = Long.bitCount(blocks & ~(red | blue) & BitBoard.ALL);
+        reset();
+    }
+
+    /**
+     * Start a new history from the contents of my squares, setting my
+     * move counters to 0 and recomputing everything else that depends
+     * on my squares.
+     */
+    private void reset() {
+        numMoves = numNPMoves = maxJumps = 0;
+        extend = false;
+        _undoTop = _undoFrameTop = 0;
+        allMovesL.clear();
+        _zobrist = 0;
+        Arrays.fill(_reach[RED.ordinal()], 0);
+        Arrays.fill(_reach[BLUE.ordinal()], 0);
+        Arrays.fill(_mobility, 0);
+        Arrays.fill(_adjacent[RED.ordinal()], 0);
+        Arrays.fill(_adjacent[BLUE.ordinal()], 0);
+        Arrays.fill(_frontier, 0);
+        Arrays.fill(_exposed, 0);
+        Arrays.fill(_edges, 0);
+        Arrays.fill(_corners, 0);
+        _accumulator = null;
+        for (int i = 0; i < _board.length; i += 1) {
+            _zobrist ^= ZOBRIST[_board[i].ordinal()][i];
+            if (_board[i].isPiece()) {
+                addReach(i, _board[i]);
+                addAdjacent(i, _board[i]);
+            }
+        }
+        if (_whoseMove == BLUE) {
+            _zobrist ^= ZOBRIST_BLUE_TO_MOVE;
+        }
         setChanged();
         notifyObservers();
     }
@@ -149,7 +230,8 @@ class Board extends Observable {
      * any moves, if one side has no pieces, or if there have been
      * MAX_JUMPS consecutive jumps without intervening extends.
      */
-    boolean gameOver() {
+    @Override
+    public boolean gameOver() {
         if (redPieces() == 0 || bluePieces() == 0) {
             return true;
         } else if (redPieces() + bluePieces() == (7 * 7 - numBlocks)) {
@@ -226,21 +308,153 @@ class Board extends Observable {
      */
     private void set(int sq, PieceColor v) {
         undoable = true;
-        _board[sq] = v;
+        addUndo(sq, v);
+        put(sq, v);
     }
 
     /**
      * Set square at C R to V (not undoable).
      */
     private void unrecordedSet(char c, char r, PieceColor v) {
-        _board[index(c, r)] = v;
+        unrecordedSet(index(c, r), v);
     }
 
     /**
      * Set square at linearized index SQ to V (not undoable).
      */
     private void unrecordedSet(int sq, PieceColor v) {
+        put(sq, v);
+    }
+
+    /**
+     * Set square at linearized index SQ to V, keeping the Zobrist key
+     * and the evaluation features up to date.
+     */
+    private void put(int sq, PieceColor v) {
+        PieceColor old = _board[sq];
+        _zobrist ^= ZOBRIST[old.ordinal()][sq] ^ ZOBRIST[v.ordinal()][sq];
+        if (old.isPiece()) {
+            removeReach(sq, old);
+            removeAdjacent(sq, old);
+        } else if (old == EMPTY) {
+            countEmpty(sq, -1);
+        }
         _board[sq] = v;
+        if (_accumulator != null) {
+            _accumulator.update(sq, old, v);
+        }
+        if (v.isPiece()) {
+            addReach(sq, v);
+            addAdjacent(sq, v);
+        } else if (v == EMPTY) {
+            countEmpty(sq, 1);
+        }
+    }
+
+    /**
+     * Record that the square with linearized index SQ, which is
+     * empty, has been filled (if DELTA is -1) or that it has become
+     * empty (if DELTA is 1) in the mobility, frontier and exposure
+     * counts.
+     */
+    private void countEmpty(int sq, int delta) {
+        for (PieceColor who = RED; who != null;
+             who = who == RED ? BLUE : null) {
+            int me = who.ordinal(), opp = who.opposite().ordinal();
+            if (_reach[me][sq] > 0) {
+                _mobility[me] += delta;
+                _exposed[opp] += delta * _adjacent[opp][sq];
+            }
+            if (_adjacent[me][sq] > 0) {
+                _frontier[me] += delta;
+            }
+        }
+    }
+
+    /**
+     * Record in the mobility and exposure counts that a WHO piece now
+     * occupies the square with linearized index SQ.
+     */
+    private void addReach(int sq, PieceColor who) {
+        int[] reach = _reach[who.ordinal()];
+        int[] exposed = _adjacent[who.opposite().ordinal()];
+        for (int k : MOVE_TARGETS[sq]) {
+            reach[k] += 1;
+            if (reach[k] == 1 && _board[k] == EMPTY) {
+                _mobility[who.ordinal()] += 1;
+                _exposed[who.opposite().ordinal()] += exposed[k];
+            }
+        }
+    }
+
+    /**
+     * Record in the mobility and exposure counts that a WHO piece no
+     * longer occupies the square with linearized index SQ.
+     */
+    private void removeReach(int sq, PieceColor who) {
+        int[] reach = _reach[who.ordinal()];
+        int[] exposed = _adjacent[who.opposite().ordinal()];
+        for (int k : MOVE_TARGETS[sq]) {
+            reach[k] -= 1;
+            if (reach[k] == 0 && _board[k] == EMPTY) {
+                _mobility[who.ordinal()] -= 1;
+                _exposed[who.opposite().ordinal()] -= exposed[k];
+            }
+        }
+    }
+
+    /**
+     * Record in the frontier, exposure and square-class counts that a
+     * WHO piece now occupies the square with linearized index SQ.
+     */
+    private void addAdjacent(int sq, PieceColor who) {
+        int me = who.ordinal();
+        int[] adjacent = _adjacent[me];
+        int[] threats = _reach[who.opposite().ordinal()];
+        for (int k : EXTEND_TARGETS[sq]) {
+            adjacent[k] += 1;
+            if (_board[k] == EMPTY) {
+                if (adjacent[k] == 1) {
+                    _frontier[me] += 1;
+                }
+                if (threats[k] > 0) {
+                    _exposed[me] += 1;
+                }
+            }
+        }
+        if (EXTEND_TARGETS[sq].length < 8) {
+            _edges[me] += 1;
+            if (EXTEND_TARGETS[sq].length == 3) {
+                _corners[me] += 1;
+            }
+        }
+    }
+
+    /**
+     * Record in the frontier, exposure and square-class counts that a
+     * WHO piece no longer occupies the square with linearized index SQ.
+     */
+    private void removeAdjacent(int sq, PieceColor who) {
+        int me = who.ordinal();
+        int[] adjacent = _adjacent[me];
+        int[] threats = _reach[who.opposite().ordinal()];
+        for (int k : EXTEND_TARGETS[sq]) {
+            adjacent[k] -= 1;
+            if (_board[k] == EMPTY) {
+                if (adjacent[k] == 0) {
+                    _frontier[me] -= 1;
+                }
+                if (threats[k] > 0) {
+                    _exposed[me] -= 1;
+                }
+            }
+        }
+        if (EXTEND_TARGETS[sq].length < 8) {
+            _edges[me] -= 1;
+            if (EXTEND_TARGETS[sq].length == 3) {
+                _corners[me] -= 1;
+            }
+        }
     }
 
     /**
@@ -315,46 +529,89 @@ class Board extends Observable {
      * that player's move and whether the game is over.
      */
     boolean canMove(PieceColor who) {
-        for (int i = 0; i < _board.length; i++) {
-            if (_board[i] == who) {
-                int k;
-                for (k = (i - (EXTENDED_SIDE * 2 + 2));
-                     k <= (i - (EXTENDED_SIDE * 2 - 2)); k++) {
-                    if (isMove(k)) {
-                        return true;
-                    }
-                }
-                for (k = (i - 13); k <= (i - 9); k++) {
-                    if (isMove(k)) {
-                        return true;
-                    }
-                }
-                for (k = (i - 2); k <= (i + 2); k++) {
-                    if (isMove(k)) {
-                        return true;
-                    }
-                }
-                for (k = (i + 9); k <= (i + 13); k++) {
-                    if (isMove(k)) {
-                        return true;
-                    }
-                }
-                for (k = (i + (EXTENDED_SIDE * 2 - 2));
-                     k <= (i + (EXTENDED_SIDE * 2 + 2)); k++) {
-                    if (isMove(k)) {
-                        return true;
-                    }
-                }
+        return _mobility[who.ordinal()] > 0;
+    }
+
+    /**
+     * Return the number of empty squares that player WHO could move
+     * to, ignoring whether it is that player's move.  This count is
+     * kept up to date as squares change, so it costs constant time.
+     */
+    int mobility(PieceColor who) {
+        return _mobility[who.ordinal()];
+    }
+
+    /**
+     * Return the number of empty squares adjacent to WHO's pieces: those
+     * WHO could extend to.
+     */
+    int frontier(PieceColor who) {
+        return _frontier[who.ordinal()];
+    }
+
+    /**
+     * Return the exposure of WHO's pieces: the sum, over the empty
+     * squares the opponent could move to, of the number of WHO's
+     * pieces adjacent to them (that is, that a move there would
+     * capture).
+     */
+    int exposure(PieceColor who) {
+        return _exposed[who.ordinal()];
+    }
+
+    /**
+     * Return the number of WHO's pieces on the edges of the board,
+     * including the corners.
+     */
+    int edgePieces(PieceColor who) {
+        return _edges[who.ordinal()];
+    }
+
+    /**
+     * Return the number of WHO's pieces in the corners of the board.
+     */
+    int cornerPieces(PieceColor who) {
+        return _corners[who.ordinal()];
+    }
+
+    /**
+     * Return the neural-network sums kept up to date for me, or null if
+     * there are none.
+     */
+    NeuralEvaluator.Accumulator accumulator() {
+        return _accumulator;
+    }
+
+    /**
+     * Keep ACC, which holds a network's sums for my current position,
+     * up to date as my squares change from now on (or stop keeping
+     * any, if ACC is null).
+     */
+    void setAccumulator(NeuralEvaluator.Accumulator acc) {
+        _accumulator = acc;
+    }
+
+    /**
+     * Return the number of pieces that a move by the player on move to
+     * the square with linearized index SQ would capture.
+     */
+    int captures(int sq) {
+        PieceColor opponent = _whoseMove.opposite();
+        int n = 0;
+        for (int k : EXTEND_TARGETS[sq]) {
+            if (_board[k] == opponent) {
+                n += 1;
             }
         }
-        return false;
+        return n;
     }
 
     /**
      * Return the color of the player who has the next move.  The
      * value is arbitrary if gameOver().
      */
-    PieceColor whoseMove() {
+    @Override
+    public PieceColor whoseMove() {
         return _whoseMove;
     }
 
@@ -375,6 +632,31 @@ class Board extends Observable {
         return numNPMoves;
     }
 
+    /**
+     * Return the number of empty squares.
+     */
+    int numEmpties() {
+        return SIDE * SIDE - numBlocks - redPieces() - bluePieces();
+    }
+
+    /**
+     * Return the number of consecutive jumps counted toward
+     * JUMP_LIMIT.
+     */
+    @Override
+    public int jumpCount() {
+        return maxJumps;
+    }
+
+    /**
+     * Return true iff the last piece move that affects jumpCount was an
+     * extend, in which case the next jump starts a new count.
+     */
+    @Override
+    public boolean lastExtended() {
+        return extend;
+    }
+
     /**
      * Perform the move C0R0-C1R1, or pass if C0 is '-'.  For moves
      * other than pass, assumes that legalMove(C0, R0, C1, R1).
@@ -392,38 +674,53 @@ class Board extends Observable {
      */
     void makeMove(Move move) {
         legalMove(move);
-        lastBoard = null;
-        lastBoard = new Board(this);
-        lastMove = move;
+        apply(move);
+        setChanged();
+        notifyObservers();
+    }
+
+    /**
+     * Make the move whose packed form (see Move.packed) is PACKED,
+     * assuming it is legal.  Unlike makeMove(Move), this neither
+     * checks the move nor notifies observers, which makes it the form
+     * for searches to use, together with retract.
+     */
+    @Override
+    public void makeMove(int packed) {
+        apply(Move.move(packed));
+    }
+
+    /**
+     * Perform MOVE, assuming it is legal, recording it for undo.
+     */
+    private void apply(Move move) {
+        startUndo();
+        numMoves += 1;
+        allMovesL.add(move);
         if (move.isPass()) {
-            pass();
-            numMoves += 1;
-            allMovesL.add(move);
+            _whoseMove = _whoseMove.opposite();
+            _zobrist ^= ZOBRIST_BLUE_TO_MOVE;
             return;
         }
-        if (move.isJump()) {
+        if (Move.isJump(move.packed())) {
             turn(move.toIndex());
-            _board[move.fromIndex()] = EMPTY;
+            set(move.fromIndex(), EMPTY);
             if (!extend) {
                 maxJumps += 1;
             } else {
                 maxJumps = 0;
                 extend = false;
             }
-        }
-        if (move.isExtend()) {
+        } else {
             incrPieces(whoseMove(), 1);
             turn(move.toIndex());
             extend = true;
         }
-        _board[move.toIndex()] = _whoseMove;
+        set(move.toIndex(), _whoseMove);
         PieceColor opponent = _whoseMove.opposite();
         _whoseMove = opponent;
+        _zobrist ^= ZOBRIST_BLUE_TO_MOVE;
         numNPMoves += 1;
-        numMoves += 1;
-        allMovesL.add(move);
-        setChanged();
-        notifyObservers();
     }
 
     /**
@@ -434,6 +731,7 @@ class Board extends Observable {
         PieceColor opponent = _whoseMove.opposite();
         legalMove(new Move());
         _whoseMove = opponent;
+        _zobrist ^= ZOBRIST_BLUE_TO_MOVE;
         setChanged();
         notifyObservers();
     }
@@ -442,32 +740,59 @@ class Board extends Observable {
      * Undo the last move.
      */
     void undo() {
-        if (lastMove == null) {
+        if (_undoFrameTop == 0) {
             clear();
             return;
         }
-        if (lastMove.isExtend()) {
-            decrPieces(get(lastMove.toIndex()), 1);
-        }
-        _board = lastBoard._board.clone();
-        numBlues = lastBoard.numBlues;
-        numBlocks = lastBoard.numBlocks;
-        numReds = lastBoard.numReds;
-        numMoves = lastBoard.numMoves;
-        numNPMoves = lastBoard.numNPMoves;
-        _whoseMove = lastBoard.whoseMove();
-        lastMove = lastBoard.lastMove;
-        lastBoard = lastBoard.lastBoard;
-
-
+        retract();
         setChanged();
         notifyObservers();
     }
 
+    /**
+     * Undo the last move, assuming there is one, without notifying
+     * observers.
+     */
+    @Override
+    public void retract() {
+        _undoFrameTop -= UNDO_FRAME;
+        int start = _undoFrames[_undoFrameTop];
+        while (_undoTop > start) {
+            _undoTop -= 1;
+            int action = _undoActions[_undoTop];
+            put(action >> 2, COLORS[action & 3]);
+        }
+        numReds = _undoFrames[_undoFrameTop + 1];
+        numBlues = _undoFrames[_undoFrameTop + 2];
+        numMoves = _undoFrames[_undoFrameTop + 3];
+        numNPMoves = _undoFrames[_undoFrameTop + 4];
+        maxJumps = _undoFrames[_undoFrameTop + 5];
+        extend = (_undoFrames[_undoFrameTop + 6] & 1) != 0;
+        PieceColor mover =
+            (_undoFrames[_undoFrameTop + 6] & 2) != 0 ? BLUE : RED;
+        if (mover != _whoseMove) {
+            _whoseMove = mover;
+            _zobrist ^= ZOBRIST_BLUE_TO_MOVE;
+        }
+        allMovesL.remove(allMovesL.size() - 1);
+    }
+
     /**
      * Indicate beginning of a move in the undo stack.
      */
     private void startUndo() {
+        if (_undoFrameTop == _undoFrames.length) {
+            _undoFrames = Arrays.copyOf(_undoFrames, 2 * _undoFrames.length);
+        }
+        _undoFrames[_undoFrameTop] = _undoTop;
+        _undoFrames[_undoFrameTop + 1] = numReds;
+        _undoFrames[_undoFrameTop + 2] = numBlues;
+        _undoFrames[_undoFrameTop + 3] = numMoves;
+        _undoFrames[_undoFrameTop + 4] = numNPMoves;
+        _undoFrames[_undoFrameTop + 5] = maxJumps;
+        _undoFrames[_undoFrameTop + 6] =
+            (extend ? 1 : 0) | (_whoseMove == BLUE ? 2 : 0);
+        _undoFrameTop += UNDO_FRAME;
     }
 
     /**
@@ -475,6 +800,12 @@ class Board extends Observable {
      * board.
      */
     private void addUndo(int sq, PieceColor newColor) {
+        if (_undoTop == _undoActions.length) {
+            _undoActions =
+                Arrays.copyOf(_undoActions, 2 * _undoActions.length);
+        }
+        _undoActions[_undoTop] = (sq << 2) | _board[sq].ordinal();
+        _undoTop += 1;
     }
 
     /**
@@ -506,20 +837,20 @@ class Board extends Observable {
         if (!legalBlock(c, r)) {
             throw error("illegal block placement");
         }
-        _board[index(c, r)] = BLOCKED;
+        unrecordedSet(c, r, BLOCKED);
         numBlocks += 1;
         char opRow = (char) (abs((int) (r - '0') - 8) + '0');
         char opCol = (char) (abs((int) (c - 'a') - 7) - 1 + 'a');
         if (legalBlock(c, opRow)) {
-            _board[index(c, opRow)] = BLOCKED;
+            unrecordedSet(c, opRow, BLOCKED);
             numBlocks += 1;
         }
         if (legalBlock(opCol, r)) {
-            _board[index(opCol, r)] = BLOCKED;
+            unrecordedSet(opCol, r, BLOCKED);
             numBlocks += 1;
         }
         if (legalBlock(opCol, opRow)) {
-            _board[index(opCol, opRow)] = BLOCKED;
+            unrecordedSet(opCol, opRow, BLOCKED);
             numBlocks += 1;
         }
 
@@ -551,12 +882,43 @@ class Board extends Observable {
     @Override
     public boolean equals(Object obj) {
         Board other = (Board) obj;
-        return Arrays.equals(_board, other._board);
+        return squaresKey() == other.squaresKey()
+            && Arrays.equals(_board, other._board);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(_board);
+        return Long.hashCode(squaresKey());
+    }
+
+    /**
+     * Return the 64-bit Zobrist key of this position: the exclusive or
+     * of a fixed random number for the contents of each non-empty
+     * square and one for blue being on move.  It is maintained
+     * incrementally by every operation that changes a square or the
+     * player on move, so this costs nothing, and equal positions have
+     * equal keys across boards and runs of the program.
+     */
+    @Override
+    public long zobrist() {
+        return _zobrist;
+    }
+
+    /**
+     * Return a copy of me, as for new Board(this).
+     */
+    @Override
+    public Board copy() {
+        return new Board(this);
+    }
+
+    /**
+     * Return the part of zobrist() that depends only on the squares
+     * (and not on whose move it is).
+     */
+    private long squaresKey() {
+        return _whoseMove == BLUE ? _zobrist ^ ZOBRIST_BLUE_TO_MOVE
+            : _zobrist;
     }
 
     /**
@@ -592,6 +954,82 @@ class Board extends Observable {
      */
     private PieceColor _whoseMove;
 
+    /**
+     * Zobrist key of the current position.
+     */
+    private long _zobrist;
+
+    /**
+     * _reach[C.ordinal()][SQ] is the number of C pieces within two rows
+     * and columns of the square with linearized index SQ (allocated
+     * for RED and BLUE only).
+     */
+    private final int[][] _reach = new int[COLORS.length][];
+
+    /**
+     * _mobility[C.ordinal()] is the number of empty squares SQ with
+     * _reach[C.ordinal()][SQ] > 0: those a C piece could move to.
+     */
+    private int[] _mobility = new int[COLORS.length];
+
+    /**
+     * _adjacent[C.ordinal()][SQ] is the number of C pieces adjacent to
+     * the square with linearized index SQ (allocated for RED and BLUE
+     * only).
+     */
+    private final int[][] _adjacent = new int[COLORS.length][];
+
+    /**
+     * _frontier[C.ordinal()] is the number of empty squares SQ with
+     * _adjacent[C.ordinal()][SQ] > 0.
+     */
+    private int[] _frontier = new int[COLORS.length];
+
+    /**
+     * _exposed[C.ordinal()] is the sum of _adjacent[C.ordinal()][SQ] over
+     * the empty squares SQ that C's opponent reaches.
+     */
+    private int[] _exposed = new int[COLORS.length];
+
+    /**
+     * _edges[C.ordinal()] and _corners[C.ordinal()] are the numbers of C
+     * pieces on edge squares (including corners) and on corners.
+     */
+    private int[] _edges = new int[COLORS.length],
+        _corners = new int[COLORS.length];
+
+    /**
+     * Neural-network sums for the current position, updated as squares
+     * change, or null.
+     */
+    private NeuralEvaluator.Accumulator _accumulator;
+
+    /**
+     * ZOBRIST[C.ordinal()][SQ] is the Zobrist number for square SQ
+     * containing C.  Entries for EMPTY and for the border are 0.
+     */
+    static final long[][] ZOBRIST =
+        new long[PieceColor.values().length][EXTENDED_SIDE * EXTENDED_SIDE];
+
+    /**
+     * Zobrist number for blue being on move.
+     */
+    static final long ZOBRIST_BLUE_TO_MOVE;
+
+    /* The numbers come from a fixed seed, so that keys (and anything
+     * stored under them) are the same from one run to the next. */
+    static {
+        Random random = new Random(0x61BA7A77L);
+        for (char r = '1'; r <= '7'; r += 1) {
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                ZOBRIST[RED.ordinal()][index(c, r)] = random.nextLong();
+                ZOBRIST[BLUE.ordinal()][index(c, r)] = random.nextLong();
+                ZOBRIST[BLOCKED.ordinal()][index(c, r)] = random.nextLong();
+            }
+        }
+        ZOBRIST_BLUE_TO_MOVE = random.nextLong();
+    }
+
     /**
      * Number of RED pieces.
      */
@@ -643,54 +1081,51 @@ class Board extends Observable {
     private int numNPMoves = 0;
 
     /**
-     * The last move performed on the board.
+     * Undo log: one entry per square changed by a move, holding the
+     * square's linearized index shifted left 2 and the ordinal of its
+     * previous contents.
      */
-    private Move lastMove;
+    private int[] _undoActions = new int[256];
 
     /**
-     * The last BOARD before the latest move.
+     * Number of entries in use in _undoActions.
      */
-    private Board lastBoard = null;
+    private int _undoTop;
 
     /**
-     * Function to check if a move is viable.
-     * @param ind The index of the current players move.
-     * @return  boolean Can we move.
+     * One frame of UNDO_FRAME ints per move made: the value of _undoTop
+     * at the start of the move, numReds, numBlues, numMoves,
+     * numNPMoves, maxJumps, and flags for extend (1) and blue on
+     * move (2).
      */
-    private boolean isMove(int ind) {
-        if (_board[ind] == BLOCKED || _board[ind] != EMPTY) {
-            return false;
-        }
-        return true;
-    }
+    private int[] _undoFrames = new int[UNDO_FRAME * 64];
 
+    /**
+     * Number of ints in use in _undoFrames.
+     */
+    private int _undoFrameTop;
+
+    /**
+     * Size of one frame in _undoFrames.
+     */
+    private static final int UNDO_FRAME = 7;
+
+    /**
+     * The PieceColors, indexed by ordinal.
+     */
+    private static final PieceColor[] COLORS = PieceColor.values();
 
     /**
      * Function to change the pieces around you after a jump.
      * @param ind The index of the current players move.
      */
     private void turn(int ind) {
-        int k;
-        for (k = (ind - 12); k <= (ind - 10); k++) {
-            if (_board[k] == whoseMove().opposite() && k != ind) {
-                _board[k] = whoseMove();
-                incrPieces(whoseMove(), 1);
-                decrPieces(whoseMove().opposite(), 1);
-            }
-        }
-        for (k = (ind - 1); k <= (ind + 1); k++) {
-            if (_board[k] == whoseMove().opposite() && k != ind) {
-                _board[k] = whoseMove();
-                incrPieces(whoseMove(), 1);
-                decrPieces(whoseMove().opposite(), 1);
-            }
-        }
-
-        for (k = (ind + 10); k <= (ind + 12); k++) {
-            if (_board[k] == whoseMove().opposite() && k != ind) {
-                _board[k] = whoseMove();
-                incrPieces(whoseMove(), 1);
-                decrPieces(whoseMove().opposite(), 1);
+        PieceColor me = whoseMove(), opponent = me.opposite();
+        for (int k : EXTEND_TARGETS[ind]) {
+            if (_board[k] == opponent) {
+                set(k, me);
+                incrPieces(me, 1);
+                decrPieces(opponent, 1);
             }
         }
     }
@@ -713,60 +1148,134 @@ class Board extends Observable {
      * @param who The player.
      */
     void allocateAllMoves(ArrayList<Move> arr, int ind, PieceColor who) {
-        int k;
-        int cf = ((ind % 11) - 1) + 1;
-        int rf = ((ind - cf - 2) / 11) + 1;
-        for (k = (ind - (EXTENDED_SIDE * 2 + 2));
-             k <= (ind - (EXTENDED_SIDE * 2 - 2)); k++) {
-            int ct = ((((k % 11) - 1)) + 1);
-            int rt = (((k - ct - 2) / 11) + 1);
-            if (ct < 2 || rt < 2) {
-                continue;
-            }
-            if (islegalMove(new Move(cf, rf, ct, rt))) {
-                arr.add(new Move(cf, rf, ct, rt));
-            }
+        if (_board[ind] != whoseMove()) {
+            return;
         }
-        for (k = (ind - 13); k <= (ind - 9); k++) {
-            int ct = ((((k % 11) - 1)) + 1);
-            int rt = (((k - ct - 2) / 11) + 1);
-            if (ct < 2 || rt < 2) {
-                continue;
-            }
-            if (islegalMove(new Move(cf, rf, ct, rt))) {
-                arr.add(new Move(cf, rf, ct, rt));
+        int[] targets = MOVE_TARGETS[ind];
+        int numExtends = EXTEND_TARGETS[ind].length;
+        for (int k = 0; k < targets.length; k += 1) {
+            if (_board[targets[k]] == EMPTY) {
+                arr.add(Move.move(Move.pack(ind, targets[k],
+                                            k >= numExtends)));
             }
         }
-        for (k = (ind - 2); k <= (ind + 2); k++) {
-            int ct = ((((k % 11) - 1)) + 1);
-            int rt = (((k - ct - 2) / 11) + 1);
-            if (ct < 2 || rt < 2) {
+    }
+
+    /**
+     * Store the legal moves other than pass for the player on move in
+     * MOVES, packed as by Move.packed, and return how many there are
+     * (0 if the player must pass or has no pieces).  Extends for each
+     * piece come before its jumps.  MOVES must have room for MAX_MOVES
+     * entries.  Allocates nothing, so it is the generator to use in
+     * searches; Move.move(int) maps the results back to Moves.
+     */
+    @Override
+    public int generateMoves(int[] moves) {
+        PieceColor who = _whoseMove;
+        int n = 0;
+        for (int sq : PLAYABLE) {
+            if (_board[sq] != who) {
                 continue;
             }
-            if (islegalMove(new Move(cf, rf, ct, rt))) {
-                arr.add(new Move(cf, rf, ct, rt));
+            int[] targets = MOVE_TARGETS[sq];
+            int numExtends = EXTEND_TARGETS[sq].length;
+            for (int k = 0; k < targets.length; k += 1) {
+                if (_board[targets[k]] == EMPTY) {
+                    moves[n] = Move.pack(sq, targets[k], k >= numExtends);
+                    n += 1;
+                }
             }
         }
-        for (k = (ind + 9); k <= (ind + 13); k++) {
-            int ct = ((((k % 11) - 1)) + 1);
-            int rt = (((k - ct - 2) / 11) + 1);
-            if (ct < 2 || rt < 2) {
-                continue;
-            }
-            if (islegalMove(new Move(cf, rf, ct, rt))) {
-                arr.add(new Move(cf, rf, ct, rt));
+        return n;
+    }
+
+    /**
+     * Upper bound on the number of legal moves in any position.
+     */
+    static final int MAX_MOVES = SIDE * SIDE * 24;
+
+    /**
+     * The linearized indices of the playable squares (those not in the
+     * border), in row-major order from a1.
+     */
+    static final int[] PLAYABLE = new int[SIDE * SIDE];
+
+    /**
+     * EXTEND_TARGETS[SQ] lists the linearized indices of the playable
+     * squares adjacent to the square with linearized index SQ: those
+     * one could extend to from SQ, and those whose pieces a move to SQ
+     * captures.  It is empty for border squares.
+     */
+    static final int[][] EXTEND_TARGETS =
+        new int[EXTENDED_SIDE * EXTENDED_SIDE][];
+
+    /**
+     * JUMP_TARGETS[SQ] lists the linearized indices of the playable
+     * squares exactly two rows or columns away from the square with
+     * linearized index SQ: those one could jump to from SQ.  It is
+     * empty for border squares.
+     */
+    static final int[][] JUMP_TARGETS =
+        new int[EXTENDED_SIDE * EXTENDED_SIDE][];
+
+    /**
+     * MOVE_TARGETS[SQ] is EXTEND_TARGETS[SQ] followed by
+     * JUMP_TARGETS[SQ].
+     */
+    static final int[][] MOVE_TARGETS =
+        new int[EXTENDED_SIDE * EXTENDED_SIDE][];
+
+    /* Like the Move.ALL_MOVES tables, these are built once, when the
+     * class is initialized. */
+    static {
+        int n = 0;
+        for (char r = '1'; r <= '7'; r += 1) {
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                PLAYABLE[n] = index(c, r);
+                n += 1;
             }
         }
-        for (k = (ind + (EXTENDED_SIDE * 2 - 2));
-             k <= (ind + (EXTENDED_SIDE * 2 + 2)); k++) {
-            int ct = ((((k % 11) - 1)) + 1);
-            int rt = (((k - ct - 2) / 11) + 1);
-            if (ct < 2 || rt < 2) {
-                continue;
-            }
-            if (islegalMove(new Move(cf, rf, ct, rt))) {
-                arr.add(new Move(cf, rf, ct, rt));
+        for (int sq = 0; sq < EXTENDED_SIDE * EXTENDED_SIDE; sq += 1) {
+            EXTEND_TARGETS[sq] = targets(sq, 1);
+            JUMP_TARGETS[sq] = targets(sq, 2);
+            MOVE_TARGETS[sq] = Arrays.copyOf(EXTEND_TARGETS[sq],
+                                             EXTEND_TARGETS[sq].length
+                                             + JUMP_TARGETS[sq].length);
+            System.arraycopy(JUMP_TARGETS[sq], 0, MOVE_TARGETS[sq],
+                             EXTEND_TARGETS[sq].length,
+                             JUMP_TARGETS[sq].length);
+        }
+    }
+
+    /**
+     * Return the linearized indices of the playable squares exactly
+     * DIST rows or columns from the square with linearized index SQ,
+     * or an empty array if SQ is not playable.
+     */
+    private static int[] targets(int sq, int dist) {
+        int col = sq % EXTENDED_SIDE, row = sq / EXTENDED_SIDE;
+        if (!playable(col, row)) {
+            return new int[0];
+        }
+        int[] result = new int[8 * dist];
+        int n = 0;
+        for (int dr = -dist; dr <= dist; dr += 1) {
+            for (int dc = -dist; dc <= dist; dc += 1) {
+                if (Math.max(abs(dc), abs(dr)) == dist
+                    && playable(col + dc, row + dr)) {
+                    result[n] = neighbor(sq, dc, dr);
+                    n += 1;
+                }
             }
         }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Return true iff column COL and row ROW of the extended board are
+     * outside the border.
+     */
+    private static boolean playable(int col, int row) {
+        return col >= 2 && col < SIDE + 2 && row >= 2 && row < SIDE + 2;
     }
 }
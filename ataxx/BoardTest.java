@@ -1,7 +1,12 @@
 package ataxx;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
+import static ataxx.PieceColor.*;
 
 /** Tests of the Board class.
  *  @author Ahmad Badary
@@ -91,4 +96,198 @@ public class BoardTest {
         }
         assertEquals("failed to return to start", b1, b0);
     }
+
+    @Test public void testZobrist() {
+        Board b0 = new Board();
+        Board b1 = new Board();
+        long start = b0.zobrist();
+        makeMoves(b0, new String[] { "a7-a6", "g7-g6", "g1-g2", "a1-a2" });
+        makeMoves(b1, new String[] { "g1-g2", "a1-a2", "a7-a6", "g7-g6" });
+        assertEquals("transposed positions differ", b0.zobrist(),
+                     b1.zobrist());
+        assertNotEquals("moves did not change key", start, b0.zobrist());
+        BitBoard bits = new BitBoard(b1);
+        assertNotEquals("side to move not in key",
+                        new Board(bits.pieces(RED), bits.pieces(BLUE),
+                                  bits.blocks(), RED).zobrist(),
+                        new Board(bits.pieces(RED), bits.pieces(BLUE),
+                                  bits.blocks(), BLUE).zobrist());
+        b0.makeMove('a', '6', 'a', '4');
+        assertNotEquals("jump did not change key", b1.zobrist(),
+                        b0.zobrist());
+        for (int i = 0; i < 5; i += 1) {
+            b0.undo();
+        }
+        assertEquals("undo did not restore key", start, b0.zobrist());
+        b1.clear();
+        b1.setBlock("c3");
+        b0.setBlock("c3");
+        assertEquals("blocks keyed differently", b1.zobrist(), b0.zobrist());
+        assertNotEquals("blocks not in key", start, b0.zobrist());
+    }
+
+    @Test public void testUndoCounters() {
+        Board b0 = new Board();
+        makeMoves(b0, GAME1);
+        b0.undo();
+        b0.undo();
+        b0.undo();
+        assertEquals("wrong move count after undo", 3, b0.numMoves());
+        assertEquals("wrong move list after undo", 3, b0.allMoves().size());
+        assertEquals("wrong player after undo", PieceColor.BLUE,
+                     b0.whoseMove());
+        assertEquals("wrong red count after undo", 4, b0.redPieces());
+        assertEquals("wrong blue count after undo", 3, b0.bluePieces());
+    }
+
+    @Test public void testGenerateMoves() {
+        Random rand = new Random(1);
+        int[] packed = new int[Board.MAX_MOVES];
+        for (int game = 0; game < 20; game += 1) {
+            Board b0 = new Board();
+            while (!b0.gameOver()) {
+                ArrayList<Move> moves = new ArrayList<>();
+                new BitBoard(b0).legalMoves(moves);
+                HashSet<Move> expected = new HashSet<>(moves);
+                int n = b0.generateMoves(packed);
+                HashSet<Move> generated = new HashSet<>();
+                for (int i = 0; i < n; i += 1) {
+                    Move mv = Move.move(packed[i]);
+                    assertEquals("wrong jump bit", mv.isJump(),
+                                 Move.isJump(packed[i]));
+                    generated.add(mv);
+                }
+                assertEquals("generators differ", expected, generated);
+                assertEquals("duplicate moves", n, generated.size());
+                b0.makeMove(n == 0 ? Move.pass()
+                            : Move.move(packed[rand.nextInt(n)]));
+            }
+        }
+    }
+
+    @Test public void testFeatures() {
+        Random rand = new Random(2);
+        int[] packed = new int[Board.MAX_MOVES];
+        for (int game = 0; game < 20; game += 1) {
+            Board b0 = new Board();
+            if (game % 2 == 1) {
+                b0.setBlock("c3");
+            }
+            while (!b0.gameOver()) {
+                checkFeatures(b0);
+                int n = b0.generateMoves(packed);
+                b0.makeMove(n == 0 ? Move.PACKED_PASS
+                            : packed[rand.nextInt(n)]);
+                if (rand.nextInt(4) == 0) {
+                    b0.retract();
+                    checkFeatures(b0);
+                    b0.makeMove(n == 0 ? Move.PACKED_PASS
+                                : packed[rand.nextInt(n)]);
+                }
+            }
+            checkFeatures(b0);
+            checkFeatures(new Board(b0));
+        }
+    }
+
+    @Test public void testPositionConstructor() {
+        Random rand = new Random(3);
+        int[] packed = new int[Board.MAX_MOVES];
+        Board b0 = new Board();
+        b0.setBlock("c3");
+        while (!b0.gameOver()) {
+            BitBoard bits = new BitBoard(b0);
+            Board b1 = new Board(bits.pieces(RED), bits.pieces(BLUE),
+                                 bits.blocks(), b0.whoseMove());
+            assertEquals("wrong squares", b0, b1);
+            assertEquals("wrong key", b0.zobrist(), b1.zobrist());
+            assertEquals("wrong player", b0.whoseMove(), b1.whoseMove());
+            assertEquals("wrong empties", b0.numEmpties(), b1.numEmpties());
+            assertEquals("history kept", 0, b1.numMoves());
+            for (PieceColor who : new PieceColor[] { RED, BLUE }) {
+                for (int f = 0; f < Evaluator.FEATURES; f += 1) {
+                    assertEquals("wrong feature " + f,
+                                 Evaluator.feature(b0, f, who),
+                                 Evaluator.feature(b1, f, who));
+                }
+            }
+            checkFeatures(b1);
+            int n = b0.generateMoves(packed);
+            b0.makeMove(n == 0 ? Move.PACKED_PASS : packed[rand.nextInt(n)]);
+        }
+    }
+
+    @Test public void testParse() {
+        Board b0 = new Board();
+        b0.setBlock("c3");
+        b0.makeMove('a', '7', 'b', '6');
+        Board b1 = Board.parse("r-----b" + "-r-----" + "--X-X--" + "-------"
+                               + "--X-X--" + "-------" + "b-----r", 'b');
+        assertEquals("wrong squares", b0, b1);
+        assertEquals("wrong player", BLUE, b1.whoseMove());
+        for (String bad : new String[] { "r", "r-----b" + "?".repeat(42) }) {
+            try {
+                Board.parse(bad, 'r');
+                fail("accepted " + bad);
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        }
+        try {
+            Board.parse("-".repeat(49), 'x');
+            fail("accepted bad side");
+        } catch (GameException excp) {
+            /* Expected. */
+        }
+    }
+
+    /** Check the incrementally kept features of B against a count from
+     *  scratch. */
+    private static void checkFeatures(Board b) {
+        for (PieceColor who : new PieceColor[] { RED, BLUE }) {
+            int frontier = 0, exposure = 0, edges = 0, corners = 0;
+            for (int sq : Board.PLAYABLE) {
+                int adjacent = 0;
+                for (int k : Board.EXTEND_TARGETS[sq]) {
+                    adjacent += b.get(k) == who ? 1 : 0;
+                }
+                boolean reached = false;
+                for (int k : Board.MOVE_TARGETS[sq]) {
+                    reached |= b.get(k) == who.opposite();
+                }
+                if (b.get(sq) == EMPTY) {
+                    frontier += adjacent > 0 ? 1 : 0;
+                    exposure += reached ? adjacent : 0;
+                } else if (b.get(sq) == who) {
+                    int size = Board.EXTEND_TARGETS[sq].length;
+                    edges += size < 8 ? 1 : 0;
+                    corners += size == 3 ? 1 : 0;
+                }
+            }
+            assertEquals("wrong frontier", frontier, b.frontier(who));
+            assertEquals("wrong exposure", exposure, b.exposure(who));
+            assertEquals("wrong edge count", edges, b.edgePieces(who));
+            assertEquals("wrong corner count", corners,
+                         b.cornerPieces(who));
+        }
+    }
+
+    @Test public void testNeighborTables() {
+        assertEquals("corner extends", 3,
+                     Board.EXTEND_TARGETS[Board.index('a', '1')].length);
+        assertEquals("corner jumps", 5,
+                     Board.JUMP_TARGETS[Board.index('a', '1')].length);
+        assertEquals("center extends", 8,
+                     Board.EXTEND_TARGETS[Board.index('d', '4')].length);
+        assertEquals("center jumps", 16,
+                     Board.JUMP_TARGETS[Board.index('d', '4')].length);
+        assertEquals("border square has targets", 0,
+                     Board.MOVE_TARGETS[0].length);
+        assertEquals("playable squares", 49, Board.PLAYABLE.length);
+        for (int sq : Board.PLAYABLE) {
+            for (int k : Board.MOVE_TARGETS[sq]) {
+                assertTrue("target in border", BitBoard.bit(k) >= 0);
+            }
+        }
+    }
 }
@@ -14,7 +14,7 @@ class Command {
      *  programmer writes. */
     static enum Type {
         /* Start-up state only. */
-        AUTO("(?i)auto\\s+(red|blue)"),
+        AUTO("(?i)auto\\s+(red|blue)(?:\\s+(ai|mcts))?"),
         BLOCK("(?i)block\\s+([a-g][1-7])"),
         MANUAL("(?i)manual\\s+(red|blue)"),
         SEED("(?i)seed\\s+([0-9]+)"),
@@ -24,7 +24,9 @@ class Command {
         PIECEMOVE("([a-g])([1-7])-([a-g])([1-7])"),
         /* Valid at any time. */
         LOAD("(?i)load\\s+(.*)"),
-        QUIT, CLEAR, DUMP, HELP,
+        ANALYZE("(?i)analyze\\s+([0-9]+)(?:\\s+([0-9]+(?:\\.[0-9]*)?))?"),
+        PERFT("(?i)perft\\s+([0-9]+)(?:\\s+(divide))?"),
+        QUIT, CLEAR, DUMP, HELP, STATS,
         /* Special "commands" internally generated. */
         /** Syntax error in command. */
         ERROR(".*"),
@@ -69,7 +71,8 @@ class Command {
 
     /** Parse COMMAND, returning the command and its operands.
      *  COMMAND is assumed to be trimmed of all leading and
-     *  trailing whitespace.  */
+     *  trailing whitespace.  Optional operands that are absent at the
+     *  end of COMMAND are left out of the operands.  */
     static Command parseCommand(String command) {
         if (command == null) {
             return new Command(Type.EOF);
@@ -78,7 +81,11 @@ class Command {
         for (Type type : Type.values()) {
             Matcher mat = type._pattern.matcher(command);
             if (mat.matches()) {
-                String[] operands = new String [mat.groupCount()];
+                int n = mat.groupCount();
+                while (n > 0 && mat.group(n) == null) {
+                    n -= 1;
+                }
+                String[] operands = new String [n];
                 for (int i = 1; i <= operands.length; i += 1) {
                     operands[i - 1] = mat.group(i);
                 }
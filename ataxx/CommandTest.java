@@ -31,6 +31,9 @@ public class CommandTest {
     @Test public void testAUTO() {
         check("auto red", AUTO, "red");
         check("auto blue", AUTO, "blue");
+        check("auto blue mcts", AUTO, "blue", "mcts");
+        check("auto red ai", AUTO, "red", "ai");
+        checkError("auto red mcts foo");
         checkError("auto green");
         checkError("auto");
         checkError("auto red foo");
@@ -69,6 +72,28 @@ public class CommandTest {
         checkError("clear foo");
     }
 
+    @Test public void testSTATS() {
+        check("stats", STATS);
+        checkError("stats foo");
+    }
+
+    @Test public void testANALYZE() {
+        check("analyze 3", ANALYZE, "3");
+        check("analyze 3 2.5", ANALYZE, "3", "2.5");
+        check("Analyze  10 7", ANALYZE, "10", "7");
+        checkError("analyze");
+        checkError("analyze x");
+        checkError("analyze 3 -1");
+    }
+
+    @Test public void testPERFT() {
+        check("perft 4", PERFT, "4");
+        check("Perft 3  divide", PERFT, "3", "divide");
+        checkError("perft");
+        checkError("perft x");
+        checkError("perft 3 all");
+    }
+
     @Test public void testMOVE() {
         check("a3-b3", PIECEMOVE, "a", "3", "b", "3");
         checkError("a3b3");
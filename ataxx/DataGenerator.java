@@ -0,0 +1,204 @@
+package ataxx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ataxx.PieceColor.*;
+
+/** Generates training data from fast self-play: games between shallow
+ *  searches, after a few random opening plies, on all processors at
+ *  once.  Every position in which the player on move searched is
+ *  recorded with the value the search found and the game's result, in
+ *  the binary shards described in TrainingData.  Each thread plays
+ *  whole games with its own transposition table, and hands each
+ *  finished game's records to the shared writer at once.
+ *  @author Ahmad Badary
+ */
+public class DataGenerator {
+
+    /** Generate data.  ARGS are options followed by the prefix of the
+     *  names of the shards: '--games=N' (default 1000), '--depth=N'
+     *  (search depth; default 3), '--random-plies=N' (random opening
+     *  plies; default 8), '--seed=N' (seed for the random plies),
+     *  '--threads=N' (default: one per processor), '--hash=MB' (size
+     *  of each thread's transposition table; default 4), and
+     *  '--shard-records=N' (records per shard; default 2^20). */
+    public static void main(String[] args) {
+        int games = DEFAULT_GAMES, depth = DEFAULT_DEPTH;
+        int randomPlies = DEFAULT_RANDOM_PLIES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int megabytes = DEFAULT_MEGABYTES;
+        long seed = 0, perShard = DEFAULT_SHARD_RECORDS;
+        if (args.length == 0) {
+            OPTIONS.usage();
+        }
+        for (int i = 0; i < args.length - 1; i += 1) {
+            String arg = args[i];
+            if (arg.startsWith("--games=")) {
+                games = OPTIONS.intOption(arg);
+            } else if (arg.startsWith("--depth=")) {
+                depth = Math.max(1, OPTIONS.intOption(arg));
+            } else if (arg.startsWith("--random-plies=")) {
+                randomPlies = OPTIONS.intOption(arg);
+            } else if (arg.startsWith("--seed=")) {
+                seed = OPTIONS.intOption(arg);
+            } else if (arg.startsWith("--threads=")) {
+                threads = Math.max(1, OPTIONS.intOption(arg));
+            } else if (arg.startsWith("--hash=")) {
+                megabytes = OPTIONS.intOption(arg);
+            } else if (arg.startsWith("--shard-records=")) {
+                perShard = Math.max(1, OPTIONS.intOption(arg));
+            } else {
+                OPTIONS.usage();
+            }
+        }
+        DataGenerator generator =
+            new DataGenerator(depth, randomPlies, seed, megabytes);
+        long start = System.nanoTime();
+        try (TrainingData.Writer writer =
+             new TrainingData.Writer(args[args.length - 1], perShard)) {
+            generator.run(games, threads, writer);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d games, %d positions in %d shards,"
+                              + " %.1f s (%.0f positions/s)%n", games,
+                              writer.records(), writer.shards(), seconds,
+                              writer.records() / seconds);
+        } catch (IOException excp) {
+            System.err.printf("Could not write data: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** A generator of games that search to depth DEPTH after RANDOMPLIES
+     *  random plies chosen using SEED, with transposition tables of
+     *  MEGABYTES megabytes. */
+    DataGenerator(int depth, int randomPlies, long seed, int megabytes) {
+        _depth = depth;
+        _randomPlies = randomPlies;
+        _seed = seed;
+        _megabytes = megabytes;
+    }
+
+    /** Play games 0 .. GAMES-1 on THREADS threads, writing their records
+     *  to WRITER.  The records of each game are written together, but
+     *  the games are in no particular order. */
+    void run(int games, int threads, TrainingData.Writer writer)
+        throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger next = new AtomicInteger();
+        ArrayList<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t += 1) {
+            workers.add(pool.submit(() -> {
+                TranspositionTable table = new TranspositionTable(_megabytes);
+                for (int game = next.getAndIncrement(); game < games;
+                     game = next.getAndIncrement()) {
+                    play(game, table, writer);
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException excp) {
+            throw new Error("data generation interrupted", excp);
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof IOException) {
+                throw (IOException) excp.getCause();
+            }
+            throw new Error("data generation failed", excp.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Play game number GAME, searching with TABLE as the transposition
+     *  table, and write its records to WRITER.  Its random plies come
+     *  from a generator seeded from _seed and GAME alone, and it starts
+     *  with an empty table and a new Searcher, so that the games do
+     *  not depend on how they are divided among threads.  A game still
+     *  going after MAX_PLIES plies is decided by the piece count. */
+    void play(int game, TranspositionTable table,
+              TrainingData.Writer writer) throws IOException {
+        table.clear();
+        Searcher searcher = new Searcher(table);
+        SplittableRandom random =
+            new SplittableRandom(_seed * GAME_STRIDE + game);
+        Board board = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        long[] reds = new long[MAX_PLIES], blues = new long[MAX_PLIES];
+        int[] scores = new int[MAX_PLIES], plies = new int[MAX_PLIES];
+        PieceColor[] sides = new PieceColor[MAX_PLIES];
+        int count = 0;
+        long blocks = TrainingData.bits(board, BLOCKED);
+        for (int ply = 0; ply < MAX_PLIES && !board.gameOver(); ply += 1) {
+            int n = board.generateMoves(moves);
+            int move;
+            if (n == 0) {
+                move = Move.PACKED_PASS;
+            } else if (ply < _randomPlies) {
+                move = moves[random.nextInt(n)];
+            } else {
+                table.newSearch();
+                move = searcher.search(board, 1, _depth).packed();
+                reds[count] = TrainingData.bits(board, RED);
+                blues[count] = TrainingData.bits(board, BLUE);
+                sides[count] = board.whoseMove();
+                scores[count] = searcher.score();
+                plies[count] = ply;
+                count += 1;
+            }
+            board.makeMove(move);
+        }
+        int diff = board.redPieces() - board.bluePieces();
+        int redResult = diff > 0 ? 2 : diff < 0 ? 0 : 1;
+        synchronized (writer) {
+            for (int k = 0; k < count; k += 1) {
+                writer.append(reds[k], blues[k], blocks, sides[k], plies[k],
+                              _depth, scores[k],
+                              sides[k] == RED ? redResult : 2 - redResult);
+            }
+        }
+    }
+
+    /** Parses my options, giving my usage message if they are bad. */
+    private static final Options OPTIONS =
+        new Options("Usage: java ataxx.DataGenerator [--games=N]"
+                    + " [--depth=N] [--random-plies=N] [--seed=N]"
+                    + " [--threads=N] [--hash=MB]"
+                    + " [--shard-records=N] PREFIX");
+
+    /** Default number of games. */
+    static final int DEFAULT_GAMES = 1000;
+    /** Default search depth. */
+    static final int DEFAULT_DEPTH = 3;
+    /** Default number of random opening plies. */
+    static final int DEFAULT_RANDOM_PLIES = 8;
+    /** Default size of each thread's transposition table, in
+     *  megabytes. */
+    static final int DEFAULT_MEGABYTES = 4;
+    /** Default number of records per shard. */
+    static final long DEFAULT_SHARD_RECORDS = 1 << 20;
+    /** Longest game, in plies, before it is decided by piece count. */
+    static final int MAX_PLIES = Tournament.MAX_PLIES;
+    /** Separates the seeds of the games of runs with different
+     *  seeds. */
+    private static final long GAME_STRIDE = 1L << 32;
+
+    /** Search depth. */
+    private final int _depth;
+    /** Number of random opening plies. */
+    private final int _randomPlies;
+    /** Seed of the random plies. */
+    private final long _seed;
+    /** Size of each thread's transposition table, in megabytes. */
+    private final int _megabytes;
+}
@@ -0,0 +1,90 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the DataGenerator and TrainingData classes.
+ *  @author Ahmad Badary
+ */
+public class DataGeneratorTest {
+
+    @Test public void testShards() throws IOException {
+        Path dir = Files.createTempDirectory("ataxx");
+        try {
+            TrainingData.Writer writer =
+                new TrainingData.Writer(dir.resolve("data").toString(), 50);
+            new DataGenerator(1, 4, 3, 1).run(4, 2, writer);
+            writer.close();
+            assertTrue("too few records", writer.records() > 100);
+            assertEquals("wrong number of shards",
+                         (writer.records() + 49) / 50, writer.shards());
+            long total = 0;
+            Tuner tuner = new Tuner(new ForkJoinPool(1));
+            for (int k = 0; k < writer.shards(); k += 1) {
+                Path shard = writer.shard(k);
+                assertTrue("not a shard", TrainingData.isShard(shard));
+                assertEquals("wrong shard size", 0,
+                             (Files.size(shard) - TrainingData.HEADER_BYTES)
+                             % TrainingData.RECORD_BYTES);
+                ArrayList<Board> boards = new ArrayList<>();
+                TrainingData.read(shard, (red, blue, blocks, side, score,
+                                          result) -> {
+                        assertEquals("pieces overlap", 0, red & blue);
+                        assertTrue("bad result", result >= 0 && result <= 2);
+                        assertTrue("bad score",
+                                   Math.abs(score)
+                                   <= TrainingData.SCORE_LIMIT);
+                        boards.add(new Board(red, blue, blocks, side));
+                    });
+                for (Board b : boards) {
+                    assertTrue("recorded position has no moves",
+                               b.canMove(b.whoseMove()));
+                }
+                total += boards.size();
+                tuner.read(shard);
+            }
+            assertEquals("records lost", writer.records(), total);
+            assertEquals("tuner lost records", total, tuner.size());
+        } finally {
+            for (Path file : Files.newDirectoryStream(dir)) {
+                Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test public void testReproducible() throws IOException {
+        Path dir = Files.createTempDirectory("ataxx");
+        try {
+            long[] sizes = new long[2];
+            for (int t = 1; t <= 2; t += 1) {
+                TrainingData.Writer writer =
+                    new TrainingData.Writer(dir.resolve("run" + t)
+                                            .toString(), 1 << 20);
+                new DataGenerator(2, 6, 9, 1).run(3, t, writer);
+                writer.close();
+                sizes[t - 1] = writer.records();
+            }
+            assertEquals("games depend on threads", sizes[0], sizes[1]);
+            long[] sums = new long[2];
+            for (int t = 1; t <= 2; t += 1) {
+                int k = t - 1;
+                TrainingData.read(dir.resolve("run" + t + "-00000.bin"),
+                                  (red, blue, blocks, side, score, result)
+                                  -> sums[k] += red * 31 + blue + score);
+            }
+            assertEquals("records depend on threads", sums[0], sums[1]);
+        } finally {
+            for (Path file : Files.newDirectoryStream(dir)) {
+                Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+}
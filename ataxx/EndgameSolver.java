@@ -0,0 +1,312 @@
+package ataxx;
+
+import java.util.Arrays;
+
+import static ataxx.BitBoard.ALL;
+import static ataxx.BitBoard.EXTENDS;
+import static ataxx.BitBoard.JUMPS;
+import static ataxx.BitBoard.grow;
+
+/** An exact solver for positions with few empty squares.  It searches
+ *  to the end of the game, first with a null window around 0 to find
+ *  whether the player on move wins, draws, or loses, and then for the
+ *  final margin (the mover's pieces less the opponent's) with best
+ *  play, together with a move that achieves it.
+ *
+ *  The solver works directly on bitboards laid out as in BitBoard,
+ *  kept from the point of view of the player on move (own and
+ *  opponent's pieces), so that a move is made by computing two new
+ *  longs and unmade by simply discarding them.  All extends to the
+ *  same square have the same effect, so only one is tried.  Moves are
+ *  tried in order of the number of pieces they gain, after the best
+ *  move from the solver's own cache of earlier results, which also
+ *  serves as a transposition table.  Since jumps do not fill squares,
+ *  even small endgames can last up to JUMP_LIMIT jumps per empty
+ *  square, so a solve gives up after visiting a given number of
+ *  positions, proving nothing (or only the outcome).
+ *  @author Ahmad Badary
+ */
+class EndgameSolver {
+
+    /** Default largest number of empty squares for which AIs call the
+     *  solver. */
+    static final int DEFAULT_THRESHOLD = 4;
+
+    /** Default number of positions a solve may visit before giving
+     *  up. */
+    static final long DEFAULT_BUDGET = 500000;
+
+    /** A new solver that gives up after visiting BUDGET positions. */
+    EndgameSolver(long budget) {
+        _budget = budget;
+    }
+
+    /** Solve the position on BOARD, in which the player on move has a
+     *  move other than a pass.  First find whether it is a win, draw,
+     *  or loss, and then, within what remains of the budget, the exact
+     *  final margin.  Return true iff at least the outcome was proven,
+     *  in which case score(), exact() and move() give the result. */
+    boolean solve(Board board) {
+        BitBoard b = new BitBoard(board);
+        PieceColor me = board.whoseMove();
+        if (b.blocks() != _blocked) {
+            _blocked = b.blocks();
+            Arrays.fill(_data, 0);
+        }
+        long own = b.pieces(me), opp = b.pieces(me.opposite());
+        int jumps = board.jumpCount();
+        boolean extend = board.lastExtended();
+        _nodes = 0;
+        _aborted = false;
+        _bestMove = NO_MOVE;
+        int outcome = solve(own, opp, jumps, extend, -1, 1, 0);
+        if (_aborted || _bestMove == NO_MOVE) {
+            return false;
+        }
+        _score = outcome;
+        _exact = outcome == 0;
+        int move = _bestMove;
+        if (!_exact) {
+            int alpha = outcome > 0 ? 0 : -INFTY;
+            int beta = outcome > 0 ? INFTY : 0;
+            int margin = solve(own, opp, jumps, extend, alpha, beta, 0);
+            if (!_aborted) {
+                _score = margin;
+                _exact = true;
+                move = _bestMove;
+            }
+        }
+        _bestMove = move;
+        return true;
+    }
+
+    /** Return the result of the last successful solve, as a final
+     *  margin (the pieces of the player on move less those of the
+     *  opponent) with best play.  This is exact if exact(), and
+     *  otherwise only its sign is: positive for a win, negative for a
+     *  loss. */
+    int score() {
+        return _score;
+    }
+
+    /** Return true iff the last successful solve found the exact final
+     *  margin, and not just the outcome. */
+    boolean exact() {
+        return _exact;
+    }
+
+    /** Return a best move in the position of the last successful
+     *  solve: one that achieves score() if exact(), and otherwise one
+     *  that achieves the outcome. */
+    Move move() {
+        int from = BitBoard.index(_bestMove & SQUARE_MASK);
+        int to = BitBoard.index((_bestMove >>> TO_SHIFT) & SQUARE_MASK);
+        return Move.move(Move.pack(from, to, (_bestMove & JUMP) != 0));
+    }
+
+    /** Return the number of positions visited by the last solve. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the final margin, for the player on move, of the position
+     *  in which OWN are the pieces of the player on move and OPP those
+     *  of the opponent, JUMPS and EXTEND are as for Board.jumpCount and
+     *  Board.lastExtended, and there are PLY moves between it and the
+     *  root, searching with the window ALPHA..BETA.  As for
+     *  AI's search, the result is exact only inside the window. */
+    private int solve(long own, long opp, int jumps, boolean extend,
+                      int alpha, int beta, int ply) {
+        _nodes += 1;
+        if (_nodes > _budget || ply >= MAX_SOLVE_PLY) {
+            _aborted = true;
+            return 0;
+        }
+        long empty = ~(own | opp | _blocked) & ALL;
+        int margin = Long.bitCount(own) - Long.bitCount(opp);
+        if (own == 0 || opp == 0 || empty == 0
+            || jumps >= Board.JUMP_LIMIT) {
+            return margin;
+        }
+        if ((grow(grow(own)) & empty) == 0) {
+            if ((grow(grow(opp)) & empty) == 0) {
+                return margin;
+            }
+            return -solve(opp, own, jumps, extend, -beta, -alpha, ply + 1);
+        }
+
+        int slot = slot(own, opp, jumps, extend);
+        int state = (jumps << 1) | (extend ? 1 : 0);
+        int hashMove = NO_MOVE;
+        long data = _data[slot];
+        if (_own[slot] == own && _opp[slot] == opp && data != 0
+            && (int) (data >>> STATE_SHIFT & STATE_MASK) == state) {
+            hashMove = (int) (data >>> MOVE_SHIFT & MOVE_MASK);
+            int value = (int) (data & SCORE_MASK) - SCORE_BIAS;
+            int bound = (int) (data >>> BOUND_SHIFT & BOUND_MASK);
+            if (ply > 0
+                && (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && value >= beta)
+                    || (bound == TranspositionTable.UPPER
+                        && value <= alpha))) {
+                return value;
+            }
+        }
+
+        int[] moves = moves(ply), scores = _scores[ply];
+        int n = 0;
+        for (long t = grow(own) & empty; t != 0; t &= t - 1) {
+            int to = Long.numberOfTrailingZeros(t);
+            int from = Long.numberOfTrailingZeros(EXTENDS[to] & own);
+            moves[n] = from | to << TO_SHIFT;
+            scores[n] = 2 * Long.bitCount(EXTENDS[to] & opp) + 3;
+            n += 1;
+        }
+        for (long t = grow(grow(own)) & empty; t != 0; t &= t - 1) {
+            int to = Long.numberOfTrailingZeros(t);
+            int gain = 2 * Long.bitCount(EXTENDS[to] & opp);
+            for (long f = JUMPS[to] & own; f != 0; f &= f - 1) {
+                moves[n] = Long.numberOfTrailingZeros(f) | to << TO_SHIFT
+                    | JUMP;
+                scores[n] = gain;
+                n += 1;
+            }
+        }
+        for (int i = 0; i < n; i += 1) {
+            if (moves[i] == hashMove) {
+                scores[i] = Integer.MAX_VALUE;
+            }
+        }
+
+        int alpha0 = alpha;
+        int best = -INFTY, bestMove = NO_MOVE;
+        for (int i = 0; i < n; i += 1) {
+            int move = nextMove(moves, scores, i, n);
+            int from = move & SQUARE_MASK;
+            int to = (move >>> TO_SHIFT) & SQUARE_MASK;
+            long flips = EXTENDS[to] & opp;
+            long own1 = own | (1L << to) | flips, opp1 = opp & ~flips;
+            int jumps1 = jumps;
+            boolean extend1 = true;
+            if ((move & JUMP) != 0) {
+                own1 &= ~(1L << from);
+                extend1 = false;
+                jumps1 = extend ? 0 : jumps + 1;
+            }
+            int value = -solve(opp1, own1, jumps1, extend1, -beta, -alpha,
+                               ply + 1);
+            if (_aborted) {
+                return 0;
+            }
+            if (value > best) {
+                best = value;
+                bestMove = move;
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (ply == 0) {
+            _bestMove = bestMove;
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+            : best > alpha0 ? TranspositionTable.EXACT
+            : TranspositionTable.UPPER;
+        _own[slot] = own;
+        _opp[slot] = opp;
+        _data[slot] = (best + SCORE_BIAS)
+            | (long) bound << BOUND_SHIFT
+            | (long) bestMove << MOVE_SHIFT
+            | (long) state << STATE_SHIFT;
+        return best;
+    }
+
+    /** Return the move buffer for PLY, creating it if needed. */
+    private int[] moves(int ply) {
+        if (_moves[ply] == null) {
+            _moves[ply] = new int[Board.MAX_MOVES];
+            _scores[ply] = new int[Board.MAX_MOVES];
+        }
+        return _moves[ply];
+    }
+
+    /** Move the highest-scoring of MOVES[I .. N-1] (with scores
+     *  SCORES[I .. N-1]) to position I, and return it. */
+    private static int nextMove(int[] moves, int[] scores, int i, int n) {
+        int best = i;
+        for (int k = i + 1; k < n; k += 1) {
+            if (scores[k] > scores[best]) {
+                best = k;
+            }
+        }
+        int move = moves[best], score = scores[best];
+        moves[best] = moves[i];
+        scores[best] = scores[i];
+        moves[i] = move;
+        scores[i] = score;
+        return move;
+    }
+
+    /** Return the cache slot for the position described by OWN, OPP,
+     *  JUMPS and EXTEND. */
+    private static int slot(long own, long opp, int jumps, boolean extend) {
+        long h = own * 0x9E3779B97F4A7C15L ^ opp * 0xC2B2AE3D27D4EB4FL;
+        h ^= jumps * 0x165667B19E3779F9L ^ (extend ? 1 : 0);
+        return (int) (h >>> (Long.SIZE - CACHE_BITS));
+    }
+
+    /** A magnitude greater than any margin. */
+    private static final int INFTY = 64;
+    /** Largest number of moves a solve looks ahead. */
+    private static final int MAX_SOLVE_PLY = 1024;
+    /** Move denoting no move at all. */
+    private static final int NO_MOVE = -1;
+
+    /** Position and mask of a move's target square; its source square
+     *  is in the low bits. */
+    private static final int TO_SHIFT = 6, SQUARE_MASK = 0x3f;
+    /** Flag marking a move as a jump. */
+    private static final int JUMP = 1 << 12;
+
+    /** Log base 2 of the number of cache entries. */
+    private static final int CACHE_BITS = 17;
+    /** Offset and mask of the score in cache data. */
+    private static final int SCORE_BIAS = INFTY, SCORE_MASK = 0xff;
+    /** Position and mask of the bound type in cache data. */
+    private static final int BOUND_SHIFT = 8, BOUND_MASK = 0x3;
+    /** Position and mask of the best move in cache data. */
+    private static final int MOVE_SHIFT = 10, MOVE_MASK = 0x1fff;
+    /** Position and mask of the jump state in cache data. */
+    private static final int STATE_SHIFT = 23, STATE_MASK = 0x3f;
+
+    /** Pieces of the player on move in each cache entry. */
+    private final long[] _own = new long[1 << CACHE_BITS];
+    /** Pieces of the opponent in each cache entry. */
+    private final long[] _opp = new long[1 << CACHE_BITS];
+    /** Packed results in each cache entry (0 for none). */
+    private final long[] _data = new long[1 << CACHE_BITS];
+
+    /** Move buffers, one per ply, created when needed. */
+    private final int[][] _moves = new int[MAX_SOLVE_PLY][];
+    /** Ordering scores of the moves in _moves. */
+    private final int[][] _scores = new int[MAX_SOLVE_PLY][];
+
+    /** Number of positions a solve may visit. */
+    private final long _budget;
+    /** Blocked squares of the position being solved, and of those whose
+     *  results are in the cache. */
+    private long _blocked;
+    /** Number of positions visited by the current solve. */
+    private long _nodes;
+    /** True iff the current solve has given up. */
+    private boolean _aborted;
+    /** Best move found at the root, or NO_MOVE. */
+    private int _bestMove;
+    /** Result of the last solve. */
+    private int _score;
+    /** True iff _score is the exact margin. */
+    private boolean _exact;
+}
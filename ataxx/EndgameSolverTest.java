@@ -0,0 +1,129 @@
+package ataxx;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the EndgameSolver class.
+ *  @author Ahmad Badary
+ */
+public class EndgameSolverTest {
+
+    /** Return the final margin of B with best play for the player on
+     *  move, if it lies strictly between ALPHA and BETA (otherwise a
+     *  bound on the same side), found by a plain alpha-beta search on
+     *  B that gives up, returning null, after LIMIT[0] positions.
+     *  Extends are tried before jumps, and only one extend to each
+     *  square, as they are equivalent. */
+    private static Integer alphaBeta(Board b, int alpha, int beta,
+                                     long[] limit) {
+        PieceColor me = b.whoseMove();
+        if (b.gameOver()) {
+            return b.numPieces(me) - b.numPieces(me.opposite());
+        }
+        limit[0] -= 1;
+        if (limit[0] < 0) {
+            return null;
+        }
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.generateMoves(moves);
+        if (n == 0) {
+            moves[n++] = Move.PACKED_PASS;
+        }
+        int best = Integer.MIN_VALUE;
+        boolean[] extended = new boolean[Board.EXTENDED_SIDE
+                                         * Board.EXTENDED_SIDE];
+        for (int pass = 0; pass < 2; pass += 1) {
+            for (int i = 0; i < n && best < beta; i += 1) {
+                int to = Move.toIndex(moves[i]);
+                if (Move.isJump(moves[i]) != (pass == 1)) {
+                    continue;
+                } else if (pass == 0 && moves[i] != Move.PACKED_PASS) {
+                    if (extended[to]) {
+                        continue;
+                    }
+                    extended[to] = true;
+                }
+                b.makeMove(moves[i]);
+                Integer value = alphaBeta(b, -beta,
+                                          -Math.max(alpha, best), limit);
+                b.retract();
+                if (value == null) {
+                    return null;
+                }
+                best = Math.max(best, -value);
+            }
+        }
+        return best;
+    }
+
+    /** Return a board on which a random game, seeded by SEED, has been
+     *  played until at most EMPTIES empty squares remain, or null if
+     *  the game ended first. */
+    private static Board endgame(long seed, int empties) {
+        Random rand = new Random(seed);
+        Board b = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        while (!b.gameOver() && b.numEmpties() > empties) {
+            int n = b.generateMoves(moves);
+            int move = Move.PACKED_PASS;
+            for (int k = 0; k < 4 && n > 0; k += 1) {
+                move = moves[rand.nextInt(n)];
+                if (!Move.isJump(move)) {
+                    break;
+                }
+            }
+            b.makeMove(move);
+        }
+        if (b.gameOver() || !b.canMove(b.whoseMove())) {
+            return null;
+        }
+        return b;
+    }
+
+    @Test public void testAgainstMinimax() {
+        EndgameSolver solver = new EndgameSolver(Long.MAX_VALUE);
+        int solved = 0;
+        for (long seed = 0; seed < 40; seed += 1) {
+            Board b = endgame(seed, 1);
+            if (b == null) {
+                continue;
+            }
+            Board b0 = new Board(b);
+            assertTrue("not solved", solver.solve(b));
+            assertTrue("not exact", solver.exact());
+            Integer expected = alphaBeta(b, -MARGIN, MARGIN,
+                                         new long[] { REFERENCE_LIMIT });
+            if (expected == null) {
+                continue;
+            }
+            assertEquals("wrong margin", (int) expected, solver.score());
+            Move mv = solver.move();
+            assertTrue("illegal move " + mv, b.islegalMove(mv));
+            b.makeMove(mv);
+            Integer value = alphaBeta(b, -MARGIN, MARGIN,
+                                      new long[] { REFERENCE_LIMIT });
+            assertEquals("move does not achieve margin", (int) expected,
+                         -value);
+            b.undo();
+            assertEquals("board changed", b0, b);
+            solved += 1;
+        }
+        assertTrue("too few endgames", solved > 10);
+    }
+
+    @Test public void testBudget() {
+        EndgameSolver solver = new EndgameSolver(10);
+        Board b = endgame(3, 6);
+        assertNotNull(b);
+        assertFalse("solved too easily", solver.solve(b));
+        assertTrue(solver.nodes() <= 11);
+    }
+
+    /** A bound on the magnitude of any margin. */
+    private static final int MARGIN = 50;
+
+    /** Number of positions the reference search may visit. */
+    private static final long REFERENCE_LIMIT = 200000;
+}
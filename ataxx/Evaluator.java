@@ -0,0 +1,153 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** A static evaluation of Ataxx positions: a weighted sum of features
+ *  of the position, each the difference between its value for the
+ *  player on move and for the opponent.  The features are those Board
+ *  keeps up to date as moves are made and retracted, so that an
+ *  evaluation costs a few array reads, and needs neither a copy of the
+ *  board nor a scan of its squares.
+ *  @author Ahmad Badary
+ */
+class Evaluator {
+
+    /** Feature numbers: pieces (MATERIAL); empty squares the player can
+     *  move to (MOBILITY); empty squares adjacent to the player's
+     *  pieces (FRONTIER); pieces the opponent could capture, counted
+     *  once for each empty square from which the opponent could
+     *  capture them (EXPOSURE); pieces on the edges, including the
+     *  corners (EDGE); and pieces in the corners (CORNER). */
+    static final int MATERIAL = 0, MOBILITY = 1, FRONTIER = 2,
+        EXPOSURE = 3, EDGE = 4, CORNER = 5;
+
+    /** Number of features. */
+    static final int FEATURES = 6;
+
+    /** Names of the features in weights files, indexed by feature
+     *  number. */
+    static final String[] FEATURE_NAMES = {
+        "material", "mobility", "frontier", "exposure", "edge", "corner"
+    };
+
+    /** Weight of a piece, against which the other weights are
+     *  scaled. */
+    static final int PIECE_VALUE = 100;
+
+    /** Default weights, indexed by feature number. */
+    private static final int[] DEFAULT_WEIGHTS = {
+        PIECE_VALUE, 4, -3, -6, 4, 8
+    };
+
+    /** An evaluator using the default weights. */
+    Evaluator() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /** An evaluator using WEIGHTS, indexed by feature number. */
+    Evaluator(int[] weights) {
+        if (weights.length != FEATURES) {
+            throw new IllegalArgumentException("wrong number of weights");
+        }
+        _weights = weights.clone();
+    }
+
+    /** Return an evaluator using the weights in FILE, a text file with
+     *  a line 'NAME VALUE' for each feature, NAME being its name in
+     *  FEATURE_NAMES, in any order.  Blank lines and lines starting
+     *  with '#' are ignored.  Throws IOException if FILE cannot be read
+     *  or does not give each weight exactly once. */
+    static Evaluator load(Path file) throws IOException {
+        int[] weights = new int[FEATURES];
+        boolean[] seen = new boolean[FEATURES];
+        for (String line : Files.readAllLines(file)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            int f = Arrays.asList(FEATURE_NAMES).indexOf(fields[0]);
+            if (fields.length != 2 || f < 0 || seen[f]) {
+                throw new IOException(file + ": bad line: " + line);
+            }
+            try {
+                weights[f] = Integer.parseInt(fields[1]);
+            } catch (NumberFormatException excp) {
+                throw new IOException(file + ": bad weight: " + line);
+            }
+            seen[f] = true;
+        }
+        for (int f = 0; f < FEATURES; f += 1) {
+            if (!seen[f]) {
+                throw new IOException(file + ": no weight for "
+                                      + FEATURE_NAMES[f]);
+            }
+        }
+        return new Evaluator(weights);
+    }
+
+    /** Write my weights to FILE, replacing its contents, in the form
+     *  load reads, preceded by the comment COMMENT (none if null). */
+    void write(Path file, String comment) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (comment != null) {
+            lines.add("# " + comment);
+        }
+        for (int f = 0; f < FEATURES; f += 1) {
+            lines.add(FEATURE_NAMES[f] + " " + _weights[f]);
+        }
+        Files.write(file, lines);
+    }
+
+    /** Return a copy of my weights, indexed by feature number. */
+    int[] weights() {
+        return _weights.clone();
+    }
+
+    /** Return the value of feature FEATURE on BOARD for WHO. */
+    static int feature(Board board, int feature, PieceColor who) {
+        switch (feature) {
+        case MATERIAL:
+            return board.numPieces(who);
+        case MOBILITY:
+            return board.mobility(who);
+        case FRONTIER:
+            return board.frontier(who);
+        case EXPOSURE:
+            return board.exposure(who);
+        case EDGE:
+            return board.edgePieces(who);
+        case CORNER:
+            return board.cornerPieces(who);
+        default:
+            throw new IllegalArgumentException("no such feature");
+        }
+    }
+
+    /** Return the value of the position on BOARD for the player on
+     *  move, in units of 1/PIECE_VALUE pieces. */
+    int score(Board board) {
+        PieceColor me = board.whoseMove(), opp = me.opposite();
+        int[] w = _weights;
+        return w[MATERIAL] * (board.numPieces(me) - board.numPieces(opp))
+            + w[MOBILITY] * (board.mobility(me) - board.mobility(opp))
+            + w[FRONTIER] * (board.frontier(me) - board.frontier(opp))
+            + w[EXPOSURE] * (board.exposure(me) - board.exposure(opp))
+            + w[EDGE] * (board.edgePieces(me) - board.edgePieces(opp))
+            + w[CORNER] * (board.cornerPieces(me)
+                           - board.cornerPieces(opp));
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(_weights);
+    }
+
+    /** Weights, indexed by feature number. */
+    private final int[] _weights;
+}
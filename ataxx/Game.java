@@ -8,7 +8,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 
 import static ataxx.Command.Type.*;
@@ -53,14 +55,24 @@ class Game {
             _state = PLAYING;
             if (redISauto) {
                 if (currPlayer == red) {
-                    red = new AI(this, PieceColor.RED);
+                    red = autoPlayer(PieceColor.RED, redISmcts);
                     redISauto = false;
                     currPlayer = red;
                 } else {
-                    red = new AI(this, PieceColor.RED);
+                    red = autoPlayer(PieceColor.RED, redISmcts);
                     redISauto = false;
                 }
             }
+            if (blueISauto) {
+                if (currPlayer == blue) {
+                    blue = autoPlayer(PieceColor.BLUE, blueISmcts);
+                    blueISauto = false;
+                    currPlayer = blue;
+                } else {
+                    blue = autoPlayer(PieceColor.BLUE, blueISmcts);
+                    blueISauto = false;
+                }
+            }
             if (blueISman) {
                 if (currPlayer == blue) {
                     blue = new Manual(this, PieceColor.BLUE);
@@ -75,7 +87,7 @@ class Game {
                 try {
                     Move move = currPlayer.myMove();
                     if (_state == PLAYING) {
-                        if (currPlayer instanceof AI) {
+                        if (!(currPlayer instanceof Manual)) {
                             if (move.isPass()) {
                                 System.out.println(currPlayer.myColor()
                                         + " passes" + ".");
@@ -91,6 +103,7 @@ class Game {
                     System.out.println("Illegal move");
                 }
             }
+            finishPlayers();
             if (_state != SETUP) {
                 printResult(_board);
                 _state = FINISHED;
@@ -101,6 +114,29 @@ class Game {
         }
     }
 
+    /**
+     * Return a new automated player for COLOR: an MCTSPlayer if MCTS,
+     * and otherwise an AI.
+     */
+    private Player autoPlayer(PieceColor color, boolean mcts) {
+        if (mcts) {
+            return new MCTSPlayer(this, color);
+        }
+        return new AI(this, color);
+    }
+
+    /**
+     * Tell the players that they will not be asked for moves until the
+     * next game starts (see Player.finish).
+     */
+    private void finishPlayers() {
+        for (Player player : new Player[] { red, blue }) {
+            if (player != null) {
+                player.finish();
+            }
+        }
+    }
+
     /**
      * Return a view of my game board that should not be modified by
      * the caller.
@@ -182,11 +218,20 @@ class Game {
     /* Command Processors */
 
     /**
-     * Perform the command 'auto OPERANDS[0]'.
+     * Perform the command 'auto OPERANDS[0]', or 'auto OPERANDS[0]
+     * OPERANDS[1]', where OPERANDS[1] chooses between an AI ('ai', the
+     * default) and an MCTSPlayer ('mcts').
      */
     void doAuto(String[] operands) {
-        if (operands[0].equals("red")) {
+        boolean mcts = operands.length > 1
+            && operands[1].equalsIgnoreCase("mcts");
+        if (operands[0].equalsIgnoreCase("red")) {
             redISauto = true;
+            redISmcts = mcts;
+        } else {
+            blueISauto = true;
+            blueISman = false;
+            blueISmcts = mcts;
         }
     }
 
@@ -236,6 +281,7 @@ class Game {
     void doManual(String[] operands) {
         if (operands[0].equals("blue")) {
             blueISman = true;
+            blueISauto = false;
         }
     }
 
@@ -243,6 +289,7 @@ class Game {
      * Exit the program.
      */
     void doQuit(String[] unused) {
+        finishPlayers();
         System.exit(0);
     }
 
@@ -276,6 +323,7 @@ class Game {
      * Perform the command 'clear'.
      */
     void doClear(String[] unused) {
+        finishPlayers();
         _board.clear();
     }
 
@@ -286,6 +334,109 @@ class Game {
         naivePrint();
     }
 
+    /**
+     * Perform the command 'stats': report the statistics of the last
+     * search of each AI player.
+     */
+    void doStats(String[] unused) {
+        boolean any = false;
+        for (Player player : new Player[] { red, blue }) {
+            if (player instanceof AI && ((AI) player).lastStats() != null) {
+                ((AI) player).lastStats().report(_reporter,
+                                                 player.myColor() + ": ");
+                any = true;
+            }
+        }
+        if (!any) {
+            _reporter.infoMsg("No search statistics.");
+        }
+    }
+
+    /**
+     * Perform the command 'analyze OPERANDS[0] [OPERANDS[1]]': search
+     * the current position for OPERANDS[1] seconds (by default,
+     * ANALYSIS_SECONDS), reporting the OPERANDS[0] best moves for the
+     * player on move, with their values and principal variations, as
+     * each iteration of the search finishes.  Uses the player on move
+     * if it is an AI, and otherwise a new AI, which shares the
+     * transposition table of the AIs that use the shared table.
+     */
+    void doAnalyze(String[] operands) {
+        int lines = Integer.parseInt(operands[0]);
+        double seconds = operands.length > 1
+            ? Double.parseDouble(operands[1]) : ANALYSIS_SECONDS;
+        if (lines < 1) {
+            throw error("Must analyze at least one move.");
+        }
+        PieceColor who = _board.whoseMove();
+        if (_board.gameOver() || !_board.canMove(who)) {
+            _reporter.infoMsg("No moves to analyze.");
+            return;
+        }
+        AI analyst;
+        if (currPlayer instanceof AI && currPlayer.myColor() == who) {
+            analyst = (AI) currPlayer;
+        } else {
+            analyst = new AI(this, who);
+        }
+        long start = System.nanoTime();
+        analyst.analyze(lines, (long) (seconds * MILLIS), (depth, best) -> {
+            _reporter.infoMsg("depth %d (%.2f s):", depth,
+                              (System.nanoTime() - start) / 1e9);
+            for (int k = 0; k < best.size(); k += 1) {
+                StringBuilder pv = new StringBuilder();
+                for (Move mv : best.get(k).moves()) {
+                    pv.append(' ').append(mv);
+                }
+                _reporter.infoMsg("%3d. %9s %s", k + 1,
+                                  valueString(best.get(k).value()), pv);
+            }
+        });
+    }
+
+    /**
+     * Perform the command 'perft OPERANDS[0] [divide]': count the
+     * leaves of the tree of legal moves from the current position to
+     * depth OPERANDS[0] (see Perft), on all processors, and report the
+     * count and the rate at which leaves were counted, preceded, with
+     * 'divide', by the count under each legal move.
+     */
+    void doPerft(String[] operands) {
+        int depth = Integer.parseInt(operands[0]);
+        if (depth < 1) {
+            throw error("Perft depth must be at least 1.");
+        }
+        Perft perft =
+            new Perft(ForkJoinPool.commonPool(), Perft.DEFAULT_MEGABYTES);
+        long start = System.nanoTime();
+        long leaves = 0;
+        for (Map.Entry<Move, Long> entry
+                 : perft.divide(_board, depth).entrySet()) {
+            if (operands.length > 1) {
+                _reporter.infoMsg("%s: %d", entry.getKey(),
+                                  entry.getValue());
+            }
+            leaves += entry.getValue();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        _reporter.infoMsg("perft %d: %d leaves, %.2f s (%.0f leaves/s)",
+                          depth, leaves, seconds, leaves / seconds);
+    }
+
+    /**
+     * Return VALUE, a value found by a search for the player on move,
+     * as text: the value itself, or a win or loss and the number of
+     * plies to it.
+     */
+    private static String valueString(int value) {
+        if (value >= Searcher.WIN_THRESHOLD) {
+            return "win/" + (Searcher.WINNING_VALUE - value);
+        } else if (value <= -Searcher.WIN_THRESHOLD) {
+            return "loss/" + (Searcher.WINNING_VALUE + value);
+        }
+        return Integer.toString(value);
+    }
+
     /**
      * Execute 'seed OPERANDS[0]' command, where the operand is a string
      * of decimal digits. Silently substitutes another value if
@@ -351,6 +502,7 @@ class Game {
             new HashMap<>();
 
     {
+        _commands.put(ANALYZE, this::doAnalyze);
         _commands.put(AUTO, this::doAuto);
         _commands.put(BLOCK, this::doBlock);
         _commands.put(CLEAR, this::doClear);
@@ -358,8 +510,10 @@ class Game {
         _commands.put(HELP, this::doHelp);
         _commands.put(MANUAL, this::doManual);
         _commands.put(PASS, this::doPass);
+        _commands.put(PERFT, this::doPerft);
         _commands.put(PIECEMOVE, this::doMove);
         _commands.put(SEED, this::doSeed);
+        _commands.put(STATS, this::doStats);
         _commands.put(START, this::doStart);
         _commands.put(LOAD, this::doLoad);
         _commands.put(QUIT, this::doQuit);
@@ -367,6 +521,16 @@ class Game {
         _commands.put(EOF, this::doQuit);
     }
 
+    /**
+     * Seconds for which 'analyze' searches by default.
+     */
+    static final double ANALYSIS_SECONDS = 5;
+
+    /**
+     * Milliseconds per second.
+     */
+    private static final int MILLIS = 1000;
+
     /**
      * Input source.
      */
@@ -400,6 +564,18 @@ class Game {
      * Is blue man?.
      */
     private boolean redISauto = false;
+    /**
+     * Is blue to be made automatic?.
+     */
+    private boolean blueISauto = false;
+    /**
+     * Is red's automatic player an MCTSPlayer?.
+     */
+    private boolean redISmcts = false;
+    /**
+     * Is blue's automatic player an MCTSPlayer?.
+     */
+    private boolean blueISmcts = false;
 
     /**
      * helper to dump.
@@ -0,0 +1,411 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/** A Player that chooses its moves by Monte Carlo tree search: it
+ *  repeatedly descends a tree of positions, choosing at each node the
+ *  move with the best upper confidence bound (UCT), adds a node to the
+ *  tree, finishes the game from there with a quick, lightly guided
+ *  random playout, and credits the result to the nodes it passed
+ *  through.  It plays the move tried most often from the root.
+ *
+ *  Playouts run in parallel on several threads, each with its own
+ *  board, all sharing the tree.  A thread descending through a node
+ *  counts a lost visit there until its playout finishes ("virtual
+ *  loss"), which steers the other threads into different lines.  A
+ *  node's visits and wins are packed into one long that is updated
+ *  atomically, so that threads share the tree without locks and
+ *  always see a consistent pair.  The
+ *  tree is kept from one move to the next: at my next turn, the node
+ *  for the position reached (my move and the opponent's reply) becomes
+ *  the new root.
+ *  @author Ahmad Badary
+ */
+class MCTSPlayer extends Player {
+
+    /**
+     * Default number of playouts per move.
+     */
+    static final int DEFAULT_PLAYOUTS = 4000;
+
+    /**
+     * A new MCTSPlayer for GAME that will play MYCOLOR.
+     */
+    MCTSPlayer(Game game, PieceColor myColor) {
+        super(game, myColor);
+    }
+
+    /**
+     * Run PLAYOUTS playouts for each move (DEFAULT_PLAYOUTS by
+     * default).
+     */
+    void setPlayouts(int playouts) {
+        _playouts = Math.max(1, playouts);
+    }
+
+    /**
+     * Run playouts on THREADS threads (by default, one per processor).
+     */
+    void setThreads(int threads) {
+        _threads = Math.max(1, Math.min(threads, AI.MAX_THREADS));
+    }
+
+    /**
+     * Seed the generators of the playouts' random moves from SEED.
+     */
+    void setSeed(long seed) {
+        _seeds = new Random(seed);
+    }
+
+    @Override
+    Move myMove() {
+        if (!board().canMove(myColor())) {
+            return Move.pass();
+        }
+        reroot(board());
+        _remaining.set(_playouts);
+        ArrayList<Future<?>> helpers = new ArrayList<>();
+        if (_threads > 1) {
+            if (_pool == null || _pool.getParallelism() != _threads - 1) {
+                if (_pool != null) {
+                    _pool.shutdown();
+                }
+                _pool = new ForkJoinPool(_threads - 1);
+            }
+            for (int i = 1; i < _threads; i += 1) {
+                Board b = new Board(_rootBoard);
+                Random rand = new Random(_seeds.nextLong());
+                helpers.add(_pool.submit(() -> runPlayouts(b, rand)));
+            }
+        }
+        runPlayouts(new Board(_rootBoard), new Random(_seeds.nextLong()));
+        for (Future<?> helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException | ExecutionException excp) {
+                throw new Error("playout thread failed", excp);
+            }
+        }
+        return Move.move(_root.mostVisited().move());
+    }
+
+    /**
+     * Return the number of playouts that have passed through my root
+     * (0 before my first move), including those kept from earlier
+     * moves.
+     */
+    int rootVisits() {
+        return _root == null ? 0 : _root.visits();
+    }
+
+    /**
+     * Shut down my helper threads and drop my tree, since the next
+     * position I am asked about will not be in it.
+     */
+    @Override
+    void finish() {
+        if (_pool != null) {
+            _pool.shutdown();
+            _pool = null;
+        }
+        _root = null;
+        _rootBoard = null;
+    }
+
+    /**
+     * Make the node of my tree for the position on BOARD my root,
+     * starting a new tree if that position is not within two plies of
+     * the old root.
+     */
+    private void reroot(Board board) {
+        Node next = null;
+        if (_root != null && _rootBoard.numMoves() <= board.numMoves()) {
+            next = find(_root, _rootBoard, board, 2);
+        }
+        _rootBoard = new Board(board);
+        if (next == null) {
+            next = new Node(Move.PACKED_PASS);
+        }
+        _root = next;
+        _root.expand(_rootBoard);
+    }
+
+    /**
+     * Return the node for the position on TARGET in the subtree under
+     * NODE, whose position is on BOARD, looking at most PLIES plies
+     * down, or null if there is none.  BOARD is left as it was found.
+     */
+    private static Node find(Node node, Board board, Board target,
+                             int plies) {
+        if (board.zobrist() == target.zobrist() && board.equals(target)) {
+            return node;
+        }
+        Node[] children = node.children();
+        if (plies == 0 || children == null) {
+            return null;
+        }
+        for (Node child : children) {
+            board.makeMove(child.move());
+            Node result = find(child, board, target, plies - 1);
+            board.retract();
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Run playouts from the root position on BOARD, which holds a copy
+     * of that position, using RAND to choose moves, until my quota of
+     * playouts for this move has been used up.  BOARD is left as it
+     * was found.
+     */
+    private void runPlayouts(Board board, Random rand) {
+        int[] moves = new int[Board.MAX_MOVES];
+        Node[] path = new Node[MAX_PLAYOUT];
+        while (_remaining.getAndDecrement() > 0) {
+            int n = 0;
+            Node node = _root;
+            node.addVirtualLoss();
+            path[n++] = node;
+            while (node.children() != null && !board.gameOver()
+                   && n < MAX_PLAYOUT) {
+                node = node.select();
+                node.addVirtualLoss();
+                path[n++] = node;
+                board.makeMove(node.move());
+            }
+            if (node.visits() > 1 && !board.gameOver()) {
+                node.expand(board);
+            }
+            int plies = 0;
+            while (!board.gameOver() && n + plies < MAX_PLAYOUT) {
+                board.makeMove(playoutMove(board, moves, rand));
+                plies += 1;
+            }
+            PieceColor result = result(board);
+            for (; plies > 0; plies -= 1) {
+                board.retract();
+            }
+            for (int k = n - 1; k >= 0; k -= 1) {
+                path[k].update(result, board.whoseMove());
+                if (k > 0) {
+                    board.retract();
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a packed move for the player on move on BOARD, chosen for
+     * a playout using RAND: the better of two random moves, counting
+     * captures and preferring extends, or a pass if there is no move.
+     * MOVES is a buffer of length Board.MAX_MOVES.
+     */
+    private static int playoutMove(Board board, int[] moves, Random rand) {
+        int n = board.generateMoves(moves);
+        if (n == 0) {
+            return Move.PACKED_PASS;
+        }
+        int a = moves[rand.nextInt(n)], b = moves[rand.nextInt(n)];
+        return playoutScore(board, a) >= playoutScore(board, b) ? a : b;
+    }
+
+    /**
+     * Return the playout priority of the packed move MOVE on BOARD.
+     */
+    private static int playoutScore(Board board, int move) {
+        int score = 2 * board.captures(Move.toIndex(move));
+        return Move.isJump(move) ? score : score + 1;
+    }
+
+    /**
+     * Return the result of the playout that ended on BOARD: the color
+     * with more pieces, or EMPTY for a draw.
+     */
+    private static PieceColor result(Board board) {
+        int diff = board.redPieces() - board.bluePieces();
+        return diff > 0 ? PieceColor.RED
+            : diff < 0 ? PieceColor.BLUE : PieceColor.EMPTY;
+    }
+
+    /** A node of the search tree.  Its statistics are counted from the
+     *  point of view of the player who made the move leading to it. */
+    private static class Node {
+
+        /** A new node reached by the packed move MOVE. */
+        Node(int move) {
+            _move = move;
+        }
+
+        /** Return the packed move that leads to me. */
+        int move() {
+            return _move;
+        }
+
+        /** Return my children, or null if I have not been expanded. */
+        Node[] children() {
+            return _children;
+        }
+
+        /** Return the number of times I have been visited, including
+         *  visits by playouts still in progress. */
+        int visits() {
+            return visits(_stats);
+        }
+
+        /** Create my children, for the moves from the position on
+         *  BOARD, if that has not yet been done. */
+        void expand(Board board) {
+            if (_children != null) {
+                return;
+            }
+            int[] moves = new int[Board.MAX_MOVES];
+            int n = board.generateMoves(moves);
+            Node[] children = new Node[Math.max(n, 1)];
+            if (n == 0) {
+                children[0] = new Node(Move.PACKED_PASS);
+            }
+            for (int i = 0; i < n; i += 1) {
+                children[i] = new Node(moves[i]);
+            }
+            synchronized (this) {
+                if (_children == null) {
+                    _children = children;
+                }
+            }
+        }
+
+        /** Count a visit that is scored as a loss until update is
+         *  called. */
+        void addVirtualLoss() {
+            STATS.addAndGet(this, VISIT);
+        }
+
+        /** Finish a visit whose playout was won by WINNER (EMPTY for a
+         *  draw), given that the player on move at my position is
+         *  TOMOVE. */
+        void update(PieceColor winner, PieceColor toMove) {
+            if (winner == toMove.opposite()) {
+                STATS.addAndGet(this, 2);
+            } else if (winner == PieceColor.EMPTY) {
+                STATS.addAndGet(this, 1);
+            }
+        }
+
+        /** Return the child with the best upper confidence bound:
+         *  unvisited children first. */
+        Node select() {
+            double logVisits = Math.log(Math.max(1, visits()));
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (Node child : _children) {
+                long stats = child._stats;
+                int visits = visits(stats);
+                if (visits == 0) {
+                    return child;
+                }
+                double value = wins(stats) / (2.0 * visits)
+                    + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    best = child;
+                    bestValue = value;
+                }
+            }
+            return best;
+        }
+
+        /** Return my most visited child. */
+        Node mostVisited() {
+            Node best = _children[0];
+            for (Node child : _children) {
+                if (child.visits() > best.visits()) {
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /** The packed move leading to me. */
+        private final int _move;
+        /** My children, or null if not yet expanded. */
+        private volatile Node[] _children;
+        /** My statistics: the number of visits, including those in
+         *  progress, times VISIT, plus twice the number of finished
+         *  visits won, plus the number drawn, by the player who moved
+         *  to me. */
+        private volatile long _stats;
+
+        /** Return the number of visits recorded in the packed
+         *  statistics STATS. */
+        private static int visits(long stats) {
+            return (int) (stats >>> VISIT_SHIFT);
+        }
+
+        /** Return the wins (counted as for _stats) recorded in the
+         *  packed statistics STATS. */
+        private static int wins(long stats) {
+            return (int) stats;
+        }
+
+        /** Position of the visit count in _stats. */
+        private static final int VISIT_SHIFT = 32;
+        /** The amount one visit adds to _stats. */
+        private static final long VISIT = 1L << VISIT_SHIFT;
+        /** Updates _stats atomically. */
+        private static final AtomicLongFieldUpdater<Node> STATS =
+            AtomicLongFieldUpdater.newUpdater(Node.class, "_stats");
+    }
+
+    /**
+     * The UCT exploration constant.
+     */
+    private static final double EXPLORATION = 1.0;
+
+    /**
+     * Maximum length of a line of play, tree and playout together.
+     */
+    private static final int MAX_PLAYOUT = 512;
+
+    /**
+     * Number of playouts per move.
+     */
+    private int _playouts = DEFAULT_PLAYOUTS;
+
+    /**
+     * Number of playout threads, including the one that calls myMove.
+     */
+    private int _threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of playouts left to run for the current move.
+     */
+    private final AtomicInteger _remaining = new AtomicInteger();
+
+    /**
+     * Source of seeds for the playout threads' random generators.
+     */
+    private Random _seeds = new Random();
+
+    /**
+     * The root of my tree, or null before my first move.
+     */
+    private Node _root;
+
+    /**
+     * A copy of the position at _root.
+     */
+    private Board _rootBoard;
+
+    /**
+     * Runs the helper playout threads.  Created when first needed.
+     */
+    private ForkJoinPool _pool;
+}
@@ -0,0 +1,93 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the MCTSPlayer class.
+ *  @author Ahmad Badary
+ */
+public class MCTSPlayerTest {
+
+    /** Play PLIES plies on B, with PLAYER playing red and an AI blue,
+     *  checking that PLAYER's moves are legal. */
+    private static void play(Game game, Board b, MCTSPlayer player,
+                             int plies) {
+        AI blue = new AI(game, PieceColor.BLUE);
+        blue.setDepth(1);
+        for (int k = 0; k < plies && !b.gameOver(); k += 1) {
+            Move mv = b.whoseMove() == PieceColor.RED ? player.myMove()
+                : blue.myMove();
+            assertTrue("illegal move " + mv, b.islegalMove(mv));
+            b.makeMove(mv);
+        }
+    }
+
+    @Test public void testMoves() {
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        MCTSPlayer player = new MCTSPlayer(game, PieceColor.RED);
+        player.setPlayouts(200);
+        player.setThreads(1);
+        player.setSeed(61);
+        play(game, b, player, 10);
+    }
+
+    @Test public void testThreads() {
+        Board b = new Board();
+        b.setBlock("c3");
+        Game game = new Game(b, null, new TextReporter());
+        MCTSPlayer player = new MCTSPlayer(game, PieceColor.RED);
+        player.setPlayouts(200);
+        player.setThreads(3);
+        play(game, b, player, 10);
+    }
+
+    @Test public void testWinningCapture() {
+        for (int threads = 1; threads <= 3; threads += 2) {
+            Board b = new Board(1L << 16, (1L << 1) | (1L << 7) | (1L << 8),
+                                0L, PieceColor.RED);
+            Game game = new Game(b, null, new TextReporter());
+            MCTSPlayer player = new MCTSPlayer(game, PieceColor.RED);
+            player.setPlayouts(1000);
+            player.setThreads(threads);
+            player.setSeed(61);
+            assertEquals("missed the win on " + threads + " threads",
+                         Move.move('c', '3', 'a', '1'), player.myMove());
+            player.finish();
+        }
+    }
+
+    @Test public void testVisitCounts() {
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        MCTSPlayer player = new MCTSPlayer(game, PieceColor.RED);
+        player.setPlayouts(4000);
+        player.setThreads(4);
+        player.myMove();
+        assertEquals("visits lost", 4000, player.rootVisits());
+        player.finish();
+        assertEquals("tree kept after finish", 0, player.rootVisits());
+    }
+
+    @Test public void testReroot() {
+        Board b = new Board();
+        b.makeMove('a', '7', 'b', '6');
+        b.makeMove('g', '7', 'f', '6');
+        b.makeMove('g', '1', 'f', '2');
+        b.makeMove('a', '1', 'b', '2');
+        Game game = new Game(b, null, new TextReporter());
+        MCTSPlayer player = new MCTSPlayer(game, PieceColor.RED);
+        player.setPlayouts(2000);
+        player.setSeed(61);
+        Move mv = player.myMove();
+        assertTrue("illegal move " + mv, b.islegalMove(mv));
+        b.makeMove(mv);
+        assertEquals("wrong number of visits", 2000, player.rootVisits());
+        AI blue = new AI(game, PieceColor.BLUE);
+        blue.setDepth(2);
+        b.makeMove(blue.myMove());
+        mv = player.myMove();
+        assertTrue("illegal move after reroot " + mv, b.islegalMove(mv));
+        assertTrue("subtree not kept", player.rootVisits() > 2000);
+    }
+}
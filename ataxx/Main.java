@@ -4,6 +4,7 @@ import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.PipedReader;
 import java.io.PipedWriter;
+import java.nio.file.Paths;
 import java.awt.HeadlessException;
 
 /** The main program for Ataxx.
@@ -11,20 +12,56 @@ import java.awt.HeadlessException;
  */
 public class Main {
 
-    /** Run Ataxx game.  Use display if ARGS[k] is '--display'. */
+    /** Run Ataxx game.  Use display if ARGS[k] is '--display'.  An
+     *  argument '--hash=N' gives the AIs' transposition table N
+     *  megabytes, '--threads=N' makes each AI search with N
+     *  threads, '--ponder' makes AIs think on their opponents' time,
+     *  '--endgame=N' makes them solve positions with at most N
+     *  empty squares exactly, '--book=FILE' gives them the opening
+     *  book FILE, '--nnue=FILE' makes them evaluate positions with
+     *  the neural network whose weights are in FILE, '--weights=FILE'
+     *  makes them evaluate positions with the weights in FILE (as
+     *  written by Tuner), '--time=N' gives
+     *  each AI N seconds for all its moves in a game, and
+     *  '--move-time=N' limits each AI move to N seconds (by default,
+     *  AI.DEFAULT_MOVE_MILLIS milliseconds); AIs search as deep as
+     *  their limits allow. */
     public static void main(String[] args) {
         boolean useGUI;
         useGUI = false;
+        long gameMillis = 0, moveMillis = AI.DEFAULT_MOVE_MILLIS;
         for (int i = 0; i < args.length; i += 1) {
             switch (args[i]) {
             case "--display":
                 useGUI = true;
                 break;
+            case "--ponder":
+                AI.setDefaultPondering(true);
+                break;
             default:
-                usage();
+                if (args[i].startsWith("--hash=")) {
+                    AI.setTableSize(OPTIONS.intOption(args[i]));
+                } else if (args[i].startsWith("--threads=")) {
+                    AI.setDefaultThreads(OPTIONS.intOption(args[i]));
+                } else if (args[i].startsWith("--endgame=")) {
+                    AI.setDefaultEndgameThreshold(OPTIONS.intOption(args[i]));
+                } else if (args[i].startsWith("--book=")) {
+                    AI.setDefaultBook(book(args[i].substring(7)));
+                } else if (args[i].startsWith("--time=")) {
+                    gameMillis = MILLIS * OPTIONS.intOption(args[i]);
+                } else if (args[i].startsWith("--move-time=")) {
+                    moveMillis = MILLIS * OPTIONS.intOption(args[i]);
+                } else if (args[i].startsWith("--nnue=")) {
+                    AI.setDefaultEvaluator(network(args[i].substring(7)));
+                } else if (args[i].startsWith("--weights=")) {
+                    AI.setDefaultEvaluator(weights(args[i].substring(10)));
+                } else {
+                    OPTIONS.usage();
+                }
                 break;
             }
         }
+        AI.setDefaultTimeLimits(gameMillis, moveMillis);
 
         Game game;
         Board board = new Board();
@@ -58,13 +95,56 @@ public class Main {
         game.process(false);
     }
 
-    /** Give usage message and exit. */
-    static void usage() {
-        System.err.println("Usage: java ataxx.Main [--display] [--timing]"
-                           + " [--strict]");
-        System.exit(1);
+    /** Return the opening book in FILE, or report the error and exit
+     *  if it cannot be read. */
+    static OpeningBook book(String file) {
+        try {
+            return new OpeningBook(Paths.get(file));
+        } catch (IOException excp) {
+            System.err.printf("Cannot read book: %s%n", excp.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /** Return the neural evaluator whose weights are in FILE, or report
+     *  the error and exit if it cannot be read. */
+    static NeuralEvaluator network(String file) {
+        try {
+            return NeuralEvaluator.load(Paths.get(file));
+        } catch (IOException excp) {
+            System.err.printf("Cannot read network: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /** Return the evaluator whose weights are in FILE, or report the
+     *  error and exit if it cannot be read. */
+    static Evaluator weights(String file) {
+        try {
+            return Evaluator.load(Paths.get(file));
+        } catch (IOException excp) {
+            System.err.printf("Cannot read weights: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+            return null;
+        }
     }
 
+    /** Parses my options, giving my usage message if they are bad. */
+    private static final Options OPTIONS =
+        new Options("Usage: java ataxx.Main [--display] [--timing]"
+                    + " [--strict] [--hash=MB] [--threads=N]"
+                    + " [--ponder] [--endgame=N] [--book=FILE]"
+                    + " [--nnue=FILE] [--weights=FILE]"
+                    + " [--time=SECS]"
+                    + " [--move-time=SECS]");
+
+    /** Milliseconds per second. */
+    private static final long MILLIS = 1000;
+
     /** Size of the buffer for reading commands from a GUI (bytes). */
     private static final int BUFFER_LEN = 128;
 
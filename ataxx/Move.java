@@ -24,12 +24,15 @@ class Move {
         _row1 = (char) (row1 + '1' - 2);
         _fromIndex = row0 * EXTENDED_SIDE + col0;
         _toIndex = row1 * EXTENDED_SIDE + col1;
+        _packed = pack(_fromIndex, _toIndex,
+                       abs(col1 - col0) > 1 || abs(row1 - row0) > 1);
     }
 
     /** A pass. */
     protected Move() {
         _col0 = _col1 = _row0 = _row1 = 0;
         _fromIndex = _toIndex = -1;
+        _packed = PACKED_PASS;
     }
 
     /** A factory method that returns a Move from COL0 ROW0 to COL1 ROW1,
@@ -49,6 +52,41 @@ class Move {
         return PASS;
     }
 
+    /** Return the move whose packed form (see packed()) is PACKED. */
+    static Move move(int packed) {
+        return PACKED_MOVES[packed];
+    }
+
+    /** Return the packed form of the move from linearized index FROM to
+     *  linearized index TO, which is a jump iff JUMP. */
+    static int pack(int from, int to, boolean jump) {
+        return from | (to << INDEX_BITS) | (jump ? PACKED_JUMP : 0);
+    }
+
+    /** Return the linearized 'from' index of the packed move PACKED. */
+    static int fromIndex(int packed) {
+        return packed & INDEX_MASK;
+    }
+
+    /** Return the linearized 'to' index of the packed move PACKED. */
+    static int toIndex(int packed) {
+        return (packed >>> INDEX_BITS) & INDEX_MASK;
+    }
+
+    /** Return true iff the packed move PACKED is a jump. */
+    static boolean isJump(int packed) {
+        return (packed & PACKED_JUMP) != 0;
+    }
+
+    /** Return my packed form: my 'from' index in the low INDEX_BITS bits,
+     *  my 'to' index in the next INDEX_BITS bits, and PACKED_JUMP set iff
+     *  I am a jump.  A pass packs to PACKED_PASS.  Moves are often
+     *  handled in this form during searches, since ints need no
+     *  allocation and fit in primitive arrays. */
+    int packed() {
+        return _packed;
+    }
+
     /** Return true iff I am a pass. */
     boolean isPass() {
         return (_fromIndex == -1 && _toIndex == -1);
@@ -115,6 +153,19 @@ class Move {
     /** Size of side of a board plus 2-deep boundary. */
     static final int EXTENDED_SIDE = SIDE + 4;
 
+    /** Number of bits used for each linearized index in a packed
+     *  move. */
+    static final int INDEX_BITS = 7;
+
+    /** Mask for one linearized index in a packed move. */
+    static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+
+    /** Bit set in the packed form of jumps. */
+    static final int PACKED_JUMP = 1 << (2 * INDEX_BITS);
+
+    /** The packed form of a pass. */
+    static final int PACKED_PASS = 0;
+
     /** The pass. */
     static final Move PASS = new Move();
 
@@ -124,12 +175,18 @@ class Move {
     /** From and two squares, or 0s if a pass. */
     private char _col0, _row0, _col1, _row1;
 
+    /** My packed form. */
+    private final int _packed;
+
 
     /** The set of all Moves other than pass, indexed by from and to row and
      *  column positions. */
     private static final Move[][][][] ALL_MOVES =
         new Move[EXTENDED_SIDE][EXTENDED_SIDE][EXTENDED_SIDE][EXTENDED_SIDE];
 
+    /** The set of all Moves, indexed by packed form. */
+    private static final Move[] PACKED_MOVES = new Move[2 * PACKED_JUMP];
+
     /* A "static initializer".  These code sections are run when the class
      * is initialized and are intended to initialize static variables. */
     static {
@@ -138,12 +195,14 @@ class Move {
                 for (int dc = -2; dc <= 2; dc += 1) {
                     for (int dr = -2; dr <= 2; dr += 1) {
                         if (dc != 0 || dr != 0) {
-                            ALL_MOVES[c][r][c + dc][r + dr] =
-                                new Move(c, r, c + dc, r + dr);
+                            Move mv = new Move(c, r, c + dc, r + dr);
+                            ALL_MOVES[c][r][c + dc][r + dr] = mv;
+                            PACKED_MOVES[mv.packed()] = mv;
                         }
                     }
                 }
             }
         }
+        PACKED_MOVES[PACKED_PASS] = PASS;
     }
 }
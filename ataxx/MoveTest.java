@@ -34,4 +34,17 @@ public class MoveTest {
         assertFalse("move is extend", m.isExtend());
     }
 
+    @Test
+    public void testPacked() {
+        Move m = move('a', '3', 'c', '5');
+        assertEquals("bad from index", m.fromIndex(),
+                     Move.fromIndex(m.packed()));
+        assertEquals("bad to index", m.toIndex(), Move.toIndex(m.packed()));
+        assertTrue("jump not marked", Move.isJump(m.packed()));
+        assertFalse("extend marked as jump",
+                    Move.isJump(move('a', '3', 'b', '4').packed()));
+        assertSame("bad unpacked move", m, Move.move(m.packed()));
+        assertSame("bad unpacked pass", pass(), Move.move(PACKED_PASS));
+    }
+
 }
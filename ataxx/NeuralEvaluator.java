@@ -0,0 +1,331 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static ataxx.PieceColor.BLUE;
+import static ataxx.PieceColor.EMPTY;
+import static ataxx.PieceColor.RED;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/** An evaluator that scores positions with a small quantized neural
+ *  network ("NNUE").  Its inputs are the 49 squares of the board, each
+ *  in one of three states (empty, a piece of one color, or of the
+ *  other); blocked squares have no input.  The first layer, whose
+ *  weights are 16-bit integers, sums a row of weights for each square's
+ *  state into HIDDEN 16-bit sums, once from Red's point of view (with
+ *  Red's pieces as "mine") and once from Blue's.  The output is a
+ *  weighted sum, with 8-bit weights, of both sets of sums clipped to
+ *  0 .. ACTIVATION_MAX, those of the player on move first.
+ *
+ *  Since a move changes only a few squares, the first-layer sums are
+ *  kept in an Accumulator attached to the Board, which updates them as
+ *  each square changes (in makeMove, and in undo), so that an
+ *  evaluation costs only the output layer.  The sums are updated and
+ *  the output computed with the JDK's Vector API when the
+ *  jdk.incubator.vector module is present (java --add-modules
+ *  jdk.incubator.vector), and otherwise with plain loops.
+ *
+ *  Weights are read from a file: an 8-byte header (MAGIC), the numbers
+ *  of inputs and hidden sums (4-byte integers, which must be INPUTS and
+ *  HIDDEN), the first-layer biases and then weights (2 bytes each, the
+ *  weights in rows of HIDDEN, row 3 * B + S for bit B of the square, as
+ *  for BitBoard.bit, in state S: 0 for empty, 1 for mine, 2 for the
+ *  opponent's), the 2 * HIDDEN output weights (1 byte each), and the
+ *  output bias (4 bytes), all big-endian.
+ *  @author Ahmad Badary
+ */
+class NeuralEvaluator extends Evaluator {
+
+    /** The first eight bytes of a weights file. */
+    static final long MAGIC = 0x41544158584e4e31L;
+
+    /** Number of inputs. */
+    static final int INPUTS = 3 * BitBoard.SQUARES;
+
+    /** Number of first-layer sums per point of view. */
+    static final int HIDDEN = 64;
+
+    /** Largest value of a first-layer sum after clipping. */
+    static final int ACTIVATION_MAX = 255;
+
+    /** Scale of the output weights: an output weight W stands for
+     *  W / OUTPUT_SCALE. */
+    static final int OUTPUT_SCALE = 64;
+
+    /** A network with first-layer weights INPUTWEIGHTS and biases
+     *  INPUTBIAS, output weights OUTPUTWEIGHTS and output bias
+     *  OUTPUTBIAS, laid out as in a weights file, which uses vector
+     *  instructions iff VECTORIZED and the Vector API is available. */
+    NeuralEvaluator(short[] inputWeights, short[] inputBias,
+                    byte[] outputWeights, int outputBias,
+                    boolean vectorized) {
+        if (inputWeights.length != INPUTS * HIDDEN
+            || inputBias.length != HIDDEN
+            || outputWeights.length != 2 * HIDDEN) {
+            throw new IllegalArgumentException("wrong network size");
+        }
+        _inputWeights = inputWeights.clone();
+        _inputBias = inputBias.clone();
+        _outputWeights = new short[outputWeights.length];
+        for (int i = 0; i < outputWeights.length; i += 1) {
+            _outputWeights[i] = outputWeights[i];
+        }
+        _outputBias = outputBias;
+        _kernels = vectorized && VECTOR_KERNELS != null
+            ? VECTOR_KERNELS : SCALAR_KERNELS;
+    }
+
+    /** Return the network whose weights are in FILE, using vector
+     *  instructions if possible.  Throws IOException if FILE cannot
+     *  be read or does not hold weights of the right size. */
+    static NeuralEvaluator load(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, READ)) {
+            if (in.size() != FILE_BYTES) {
+                throw new IOException(file + " is not a network");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(FILE_BYTES);
+            buffer.order(ORDER);
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                continue;
+            }
+            buffer.flip();
+            if (buffer.getLong() != MAGIC || buffer.getInt() != INPUTS
+                || buffer.getInt() != HIDDEN) {
+                throw new IOException(file + " is not a network");
+            }
+            short[] inputBias = new short[HIDDEN];
+            short[] inputWeights = new short[INPUTS * HIDDEN];
+            byte[] outputWeights = new byte[2 * HIDDEN];
+            buffer.asShortBuffer().get(inputBias).get(inputWeights);
+            buffer.position(buffer.position()
+                            + Short.BYTES * (HIDDEN + INPUTS * HIDDEN));
+            buffer.get(outputWeights);
+            return new NeuralEvaluator(inputWeights, inputBias,
+                                       outputWeights, buffer.getInt(),
+                                       true);
+        }
+    }
+
+    /** Write my weights to FILE, replacing its previous contents. */
+    void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_BYTES);
+        buffer.order(ORDER);
+        buffer.putLong(MAGIC).putInt(INPUTS).putInt(HIDDEN);
+        for (short w : _inputBias) {
+            buffer.putShort(w);
+        }
+        for (short w : _inputWeights) {
+            buffer.putShort(w);
+        }
+        for (short w : _outputWeights) {
+            buffer.put((byte) w);
+        }
+        buffer.putInt(_outputBias);
+        buffer.flip();
+        try (FileChannel out = FileChannel.open(file, WRITE, CREATE,
+                                                TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+    }
+
+    /** Return true iff I use the Vector API. */
+    boolean vectorized() {
+        return _kernels != SCALAR_KERNELS;
+    }
+
+    @Override
+    int score(Board board) {
+        Accumulator acc = board.accumulator();
+        if (acc == null || acc._network != this) {
+            acc = new Accumulator(this, board);
+            board.setAccumulator(acc);
+        }
+        return score(acc, board.whoseMove());
+    }
+
+    /** Return the value, in units of 1/PIECE_VALUE pieces, for player
+     *  WHO of the position whose first-layer sums are in ACC. */
+    int score(Accumulator acc, PieceColor who) {
+        short[] mine = acc._sums[who.ordinal()],
+            theirs = acc._sums[who.opposite().ordinal()];
+        int sum = _kernels.dot(mine, _outputWeights, 0)
+            + _kernels.dot(theirs, _outputWeights, HIDDEN)
+            + _outputBias;
+        return sum * PIECE_VALUE / (ACTIVATION_MAX * OUTPUT_SCALE);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("<network of %d sums%s>", HIDDEN,
+                             vectorized() ? ", vectorized" : "");
+    }
+
+    /** Return the number of the input for a square with bit BIT (as for
+     *  BitBoard.bit) containing CONTENTS, from the point of view of
+     *  WHO, or -1 if there is none. */
+    private static int input(int bit, PieceColor contents, PieceColor who) {
+        if (contents == EMPTY) {
+            return 3 * bit;
+        } else if (contents == who) {
+            return 3 * bit + 1;
+        } else if (contents == who.opposite()) {
+            return 3 * bit + 2;
+        }
+        return -1;
+    }
+
+    /** The first-layer sums of a network for the position on a board,
+     *  kept up to date as the board's squares change. */
+    static class Accumulator {
+
+        /** The sums of NETWORK for the position on BOARD. */
+        Accumulator(NeuralEvaluator network, Board board) {
+            _network = network;
+            for (PieceColor who : POINTS_OF_VIEW) {
+                short[] sums = _network._inputBias.clone();
+                for (int sq : Board.PLAYABLE) {
+                    int input = input(BitBoard.bit(sq), board.get(sq), who);
+                    if (input >= 0) {
+                        _network._kernels.add(sums, _network._inputWeights,
+                                              input * HIDDEN);
+                    }
+                }
+                _sums[who.ordinal()] = sums;
+            }
+        }
+
+        /** A copy of ACC. */
+        Accumulator(Accumulator acc) {
+            _network = acc._network;
+            for (PieceColor who : POINTS_OF_VIEW) {
+                _sums[who.ordinal()] = acc._sums[who.ordinal()].clone();
+            }
+        }
+
+        /** Record that the square with linearized index SQ changed from
+         *  containing OLD to containing NOW. */
+        void update(int sq, PieceColor old, PieceColor now) {
+            int bit = BitBoard.bit(sq);
+            Kernels kernels = _network._kernels;
+            short[] weights = _network._inputWeights;
+            for (PieceColor who : POINTS_OF_VIEW) {
+                short[] sums = _sums[who.ordinal()];
+                int removed = input(bit, old, who),
+                    added = input(bit, now, who);
+                if (removed >= 0) {
+                    kernels.subtract(sums, weights, removed * HIDDEN);
+                }
+                if (added >= 0) {
+                    kernels.add(sums, weights, added * HIDDEN);
+                }
+            }
+        }
+
+        /** Return the sums from WHO's point of view. */
+        short[] sums(PieceColor who) {
+            return _sums[who.ordinal()];
+        }
+
+        /** The network whose sums these are. */
+        private final NeuralEvaluator _network;
+        /** Sums, indexed by point of view (a PieceColor ordinal). */
+        private final short[][] _sums =
+            new short[PieceColor.values().length][];
+    }
+
+    /** The loops of an evaluation. */
+    interface Kernels {
+        /** Add W[OFFSET .. OFFSET + SUMS.length - 1] to SUMS. */
+        void add(short[] sums, short[] w, int offset);
+
+        /** Subtract W[OFFSET .. OFFSET + SUMS.length - 1] from SUMS. */
+        void subtract(short[] sums, short[] w, int offset);
+
+        /** Return the dot product of SUMS, each clipped to
+         *  0 .. ACTIVATION_MAX, and W[OFFSET .. OFFSET + SUMS.length
+         *  - 1]. */
+        int dot(short[] sums, short[] w, int offset);
+    }
+
+    /** Kernels written as plain loops. */
+    private static class ScalarKernels implements Kernels {
+        @Override
+        public void add(short[] sums, short[] w, int offset) {
+            for (int i = 0; i < sums.length; i += 1) {
+                sums[i] += w[offset + i];
+            }
+        }
+
+        @Override
+        public void subtract(short[] sums, short[] w, int offset) {
+            for (int i = 0; i < sums.length; i += 1) {
+                sums[i] -= w[offset + i];
+            }
+        }
+
+        @Override
+        public int dot(short[] sums, short[] w, int offset) {
+            int result = 0;
+            for (int i = 0; i < sums.length; i += 1) {
+                int x = Math.max(0, Math.min(sums[i], ACTIVATION_MAX));
+                result += x * w[offset + i];
+            }
+            return result;
+        }
+    }
+
+    /** Return VectorKernels if the Vector API is available, and
+     *  otherwise null.  VectorKernels is loaded by name, so that this
+     *  class does not depend on it. */
+    private static Kernels vectorKernels() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector")
+            .isEmpty()) {
+            return null;
+        }
+        try {
+            return (Kernels) Class.forName("ataxx.VectorKernels")
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError excp) {
+            return null;
+        }
+    }
+
+    /** The points of view of the first-layer sums. */
+    private static final PieceColor[] POINTS_OF_VIEW = { RED, BLUE };
+
+    /** Byte order of a weights file. */
+    private static final ByteOrder ORDER = ByteOrder.BIG_ENDIAN;
+
+    /** Size of a weights file, in bytes. */
+    private static final int FILE_BYTES = Long.BYTES + 2 * Integer.BYTES
+        + Short.BYTES * (HIDDEN + INPUTS * HIDDEN) + 2 * HIDDEN
+        + Integer.BYTES;
+
+    /** Kernels that use plain loops. */
+    private static final Kernels SCALAR_KERNELS = new ScalarKernels();
+
+    /** Kernels that use the Vector API, or null if it is not
+     *  available. */
+    private static final Kernels VECTOR_KERNELS = vectorKernels();
+
+    /** First-layer weights, in rows of HIDDEN, one per input. */
+    private final short[] _inputWeights;
+    /** First-layer biases. */
+    private final short[] _inputBias;
+    /** Output weights: HIDDEN for the player on move's sums, and then
+     *  HIDDEN for the opponent's. */
+    private final short[] _outputWeights;
+    /** Output bias. */
+    private final int _outputBias;
+    /** Computes my evaluations. */
+    private final Kernels _kernels;
+}
@@ -0,0 +1,132 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the NeuralEvaluator class.
+ *  @author Ahmad Badary
+ */
+public class NeuralEvaluatorTest {
+
+    /** Return a network with random weights chosen using SEED, using
+     *  vector instructions iff VECTORIZED. */
+    private static NeuralEvaluator network(long seed, boolean vectorized) {
+        Random rand = new Random(seed);
+        int hidden = NeuralEvaluator.HIDDEN;
+        short[] inputWeights = new short[NeuralEvaluator.INPUTS * hidden];
+        short[] inputBias = new short[hidden];
+        byte[] outputWeights = new byte[2 * hidden];
+        for (int i = 0; i < inputWeights.length; i += 1) {
+            inputWeights[i] = (short) (rand.nextInt(129) - 64);
+        }
+        for (int i = 0; i < hidden; i += 1) {
+            inputBias[i] = (short) rand.nextInt(256);
+        }
+        rand.nextBytes(outputWeights);
+        return new NeuralEvaluator(inputWeights, inputBias, outputWeights,
+                                   rand.nextInt(1000) - 500, vectorized);
+    }
+
+    /** Play a random game from B using RAND, retracting some moves, and
+     *  check at each position that the sums kept for B match sums
+     *  computed from scratch for NET, and that COPY scores alike. */
+    private static void checkGame(Board b, NeuralEvaluator net,
+                                  NeuralEvaluator copy, Random rand) {
+        int[] moves = new int[Board.MAX_MOVES];
+        while (!b.gameOver()) {
+            int score = net.score(b);
+            NeuralEvaluator.Accumulator fresh =
+                new NeuralEvaluator.Accumulator(net, b);
+            for (PieceColor who : new PieceColor[] { PieceColor.RED,
+                                                     PieceColor.BLUE }) {
+                assertTrue("sums differ",
+                           Arrays.equals(fresh.sums(who),
+                                         b.accumulator().sums(who)));
+            }
+            assertEquals("scores differ", net.score(fresh, b.whoseMove()),
+                         score);
+            assertEquals("evaluators differ", score,
+                         copy.score(b.accumulator(), b.whoseMove()));
+            int n = b.generateMoves(moves);
+            b.makeMove(n == 0 ? Move.PACKED_PASS : moves[rand.nextInt(n)]);
+            if (rand.nextInt(3) == 0) {
+                b.retract();
+            }
+        }
+    }
+
+    @Test public void testIncremental() {
+        Random rand = new Random(5);
+        NeuralEvaluator net = network(1, true);
+        for (int game = 0; game < 10; game += 1) {
+            Board b = new Board();
+            if (game % 2 == 1) {
+                b.setBlock("b2");
+            }
+            checkGame(b, net, net, rand);
+        }
+    }
+
+    @Test public void testVectorized() {
+        NeuralEvaluator vector = network(2, true),
+            scalar = network(2, false);
+        assertFalse("scalar network is vectorized", scalar.vectorized());
+        checkGame(new Board(), vector, scalar, new Random(6));
+        checkGame(new Board(), scalar, vector, new Random(7));
+    }
+
+    @Test public void testCopy() {
+        NeuralEvaluator net = network(3, true);
+        Board b0 = new Board();
+        net.score(b0);
+        Board b1 = new Board(b0);
+        b1.makeMove('a', '7', 'b', '7');
+        assertEquals("copy shares sums", net.score(new Board()),
+                     net.score(b0));
+        b1.undo();
+        assertTrue("copy changed",
+                   Arrays.equals(b0.accumulator().sums(PieceColor.RED),
+                                 b1.accumulator().sums(PieceColor.RED)));
+    }
+
+    @Test public void testFile() throws IOException {
+        NeuralEvaluator net = network(4, true);
+        Path file = Files.createTempFile("ataxx", ".nnue");
+        file.toFile().deleteOnExit();
+        net.write(file);
+        NeuralEvaluator loaded = NeuralEvaluator.load(file);
+        checkGame(new Board(), net, loaded, new Random(8));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        try {
+            NeuralEvaluator.load(file);
+            fail("loaded a truncated network");
+        } catch (IOException excp) {
+            /* Expected. */
+        }
+        bytes[0] += 1;
+        Files.write(file, bytes);
+        try {
+            NeuralEvaluator.load(file);
+            fail("loaded a network without the header");
+        } catch (IOException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test public void testSearch() {
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        AI ai = new AI(game, PieceColor.RED);
+        ai.setTable(new TranspositionTable(1));
+        ai.setEvaluator(network(5, true));
+        Move mv = ai.myMove();
+        assertTrue("illegal move " + mv, b.islegalMove(mv));
+    }
+}
@@ -0,0 +1,132 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/** A read-only opening book: a file of fixed-width records, each giving
+ *  a position's Zobrist key (as for Board.zobrist, whose numbers do not
+ *  change from run to run), a move in that position, the move's weight
+ *  (how often it should be chosen), and its score for the player on
+ *  move.  The records follow an 8-byte header (MAGIC), sorted by key
+ *  (as signed longs).  The file is mapped into memory and
+ *  binary-searched in place, so that a book costs no heap space
+ *  however large it is.  Books are made by OpeningBookBuilder.
+ *  @author Ahmad Badary
+ */
+class OpeningBook {
+
+    /** The first eight bytes of a book file. */
+    static final long MAGIC = 0x4154415858424b31L;
+
+    /** Size of the header, in bytes. */
+    static final int HEADER_BYTES = Long.BYTES;
+
+    /** Size of a record, in bytes: key (8), move (2), weight (2) and
+     *  score (4). */
+    static final int RECORD_BYTES = 16;
+
+    /** Byte order of a book file. */
+    static final ByteOrder ORDER = ByteOrder.BIG_ENDIAN;
+
+    /** The book in the file FILE.  Throws IOException if FILE cannot be
+     *  read or is not a book. */
+    OpeningBook(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES
+                || (size - HEADER_BYTES) % RECORD_BYTES != 0
+                || size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not an opening book");
+            }
+            _records = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            _records.order(ORDER);
+            if (_records.getLong(0) != MAGIC) {
+                throw new IOException(file + " is not an opening book");
+            }
+            _size = (int) ((size - HEADER_BYTES) / RECORD_BYTES);
+        }
+    }
+
+    /** Return the number of records in this book. */
+    int size() {
+        return _size;
+    }
+
+    /** Return a move for the position on BOARD chosen from this book
+     *  with probability proportional to its weight, using GAME's random
+     *  numbers, or null if the book has no legal move for BOARD. */
+    Move choose(Board board, Game game) {
+        long key = board.zobrist();
+        int first = find(key);
+        int total = 0;
+        for (int i = first; i < _size && key(i) == key; i += 1) {
+            total += weight(i);
+        }
+        if (total == 0) {
+            return null;
+        }
+        int pick = game.nextRandom(total);
+        for (int i = first; key(i) == key; i += 1) {
+            pick -= weight(i);
+            if (pick < 0) {
+                Move move = Move.move(move(i));
+                return board.islegalMove(move) ? move : null;
+            }
+        }
+        return null;
+    }
+
+    /** Return the number of the first record whose key is at least KEY
+     *  (size() if there is none). */
+    int find(long key) {
+        int lo = 0, hi = _size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (key(mid) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Return the key of record I. */
+    long key(int i) {
+        return _records.getLong(offset(i));
+    }
+
+    /** Return the packed move (as for Move.packed) of record I. */
+    int move(int i) {
+        return _records.getShort(offset(i) + Long.BYTES) & MOVE_MASK;
+    }
+
+    /** Return the weight of record I. */
+    int weight(int i) {
+        return Short.toUnsignedInt(_records.getShort(offset(i)
+                                                     + Long.BYTES + 2));
+    }
+
+    /** Return the score of record I. */
+    int score(int i) {
+        return _records.getInt(offset(i) + Long.BYTES + 4);
+    }
+
+    /** Return the position of record I in the file. */
+    private static int offset(int i) {
+        return HEADER_BYTES + i * RECORD_BYTES;
+    }
+
+    /** Mask for a packed move. */
+    private static final int MOVE_MASK = 0x7fff;
+
+    /** The mapped file. */
+    private final MappedByteBuffer _records;
+    /** Number of records. */
+    private final int _size;
+}
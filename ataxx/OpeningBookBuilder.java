@@ -0,0 +1,213 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/** Builds OpeningBooks offline from self-play.  Each game starts from
+ *  the same position (the initial position with a given block layout)
+ *  and for its first few plies, at each position, records the move an
+ *  AI search finds, and then usually plays it, but sometimes plays a
+ *  random move instead, so that the games cover a variety of
+ *  openings.  A move's weight in the book is the number of games in
+ *  which it was found.
+ *  @author Ahmad Badary
+ */
+public class OpeningBookBuilder {
+
+    /** Build a book.  ARGS are options followed by the name of the book
+     *  file: '--games=N' (number of games; default 200),
+     *  '--plies=N' (length of the book lines; default 10),
+     *  '--depth=N' (search depth; default 5), '--seed=N' (seed for the
+     *  random moves), and '--block=CR' (place a block at CR and its
+     *  reflections; may be repeated). */
+    public static void main(String[] args) {
+        int games = DEFAULT_GAMES, plies = DEFAULT_PLIES;
+        int depth = DEFAULT_DEPTH;
+        long seed = 0;
+        Board start = new Board();
+        if (args.length == 0) {
+            OPTIONS.usage();
+        }
+        for (int i = 0; i < args.length - 1; i += 1) {
+            String arg = args[i];
+            if (arg.startsWith("--games=")) {
+                games = OPTIONS.intOption(arg);
+            } else if (arg.startsWith("--plies=")) {
+                plies = OPTIONS.intOption(arg);
+            } else if (arg.startsWith("--depth=")) {
+                depth = OPTIONS.intOption(arg);
+            } else if (arg.startsWith("--seed=")) {
+                seed = OPTIONS.intOption(arg);
+            } else if (arg.matches("--block=[a-g][1-7]")) {
+                start.setBlock(arg.substring(arg.indexOf('=') + 1));
+            } else {
+                OPTIONS.usage();
+            }
+        }
+        OpeningBookBuilder builder =
+            new OpeningBookBuilder(start, depth, seed);
+        for (int k = 0; k < games; k += 1) {
+            builder.play(plies);
+        }
+        try {
+            builder.write(Paths.get(args[args.length - 1]));
+        } catch (IOException excp) {
+            System.err.printf("Could not write book: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** A builder for games starting from the position on START, which
+     *  searches to depth DEPTH and chooses random moves using SEED. */
+    OpeningBookBuilder(Board start, int depth, long seed) {
+        _start = new Board(start);
+        _depth = depth;
+        _random = new Random(seed);
+    }
+
+    /** Play one game for PLIES plies (or to its end), recording the
+     *  moves found. */
+    void play(int plies) {
+        Board b = new Board(_start);
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int ply = 0; ply < plies && !b.gameOver(); ply += 1) {
+            int n = b.generateMoves(moves);
+            if (n == 0) {
+                b.makeMove(Move.PACKED_PASS);
+                continue;
+            }
+            _table.newSearch();
+            Move best = _searcher.search(b, 1, _depth);
+            record(b.zobrist(), best.packed(), _searcher.score());
+            if (_random.nextInt(RANDOM_ODDS) == 0) {
+                b.makeMove(moves[_random.nextInt(n)]);
+            } else {
+                b.makeMove(best.packed());
+            }
+        }
+    }
+
+    /** Write the book recorded so far to FILE, replacing its previous
+     *  contents. */
+    void write(Path file) throws IOException {
+        ArrayList<Entry> entries = new ArrayList<>();
+        for (ArrayList<Entry> position : _entries.values()) {
+            entries.addAll(position);
+        }
+        entries.sort((e0, e1) -> e0._key != e1._key
+                     ? Long.compare(e0._key, e1._key)
+                     : Integer.compare(e1._weight, e0._weight));
+        try (FileChannel out = FileChannel.open(file, WRITE, CREATE,
+                                                TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+            buffer.order(OpeningBook.ORDER);
+            buffer.putLong(OpeningBook.MAGIC);
+            for (Entry e : entries) {
+                if (buffer.remaining() < OpeningBook.RECORD_BYTES) {
+                    drain(buffer, out);
+                }
+                buffer.putLong(e._key);
+                buffer.putShort((short) e._move);
+                buffer.putShort((short) e._weight);
+                buffer.putInt(e._score);
+            }
+            drain(buffer, out);
+        }
+    }
+
+    /** Return the number of distinct positions recorded. */
+    int positions() {
+        return _entries.size();
+    }
+
+    /** Record that the search found MOVE, with score SCORE, in the
+     *  position with Zobrist key KEY. */
+    private void record(long key, int move, int score) {
+        ArrayList<Entry> position =
+            _entries.computeIfAbsent(key, k -> new ArrayList<>());
+        for (Entry e : position) {
+            if (e._move == move) {
+                e._weight = Math.min(e._weight + 1, MAX_WEIGHT);
+                e._score = score;
+                return;
+            }
+        }
+        position.add(new Entry(key, move, score));
+    }
+
+    /** Write the contents of BUFFER to OUT and clear BUFFER. */
+    private static void drain(ByteBuffer buffer, FileChannel out)
+        throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** A record of the book being built. */
+    private static class Entry {
+        /** A record of MOVE, with score SCORE, in the position with
+         *  key KEY, found once. */
+        Entry(long key, int move, int score) {
+            _key = key;
+            _move = move;
+            _score = score;
+            _weight = 1;
+        }
+
+        /** Zobrist key of the position. */
+        private final long _key;
+        /** Packed move. */
+        private final int _move;
+        /** Number of times the move was found. */
+        private int _weight;
+        /** Most recent score of the move. */
+        private int _score;
+    }
+
+    /** Parses my options, giving my usage message if they are bad. */
+    private static final Options OPTIONS =
+        new Options("Usage: java ataxx.OpeningBookBuilder"
+                    + " [--games=N] [--plies=N] [--depth=N]"
+                    + " [--seed=N] [--block=CR]... FILE");
+
+    /** Default number of games. */
+    static final int DEFAULT_GAMES = 200;
+    /** Default number of plies recorded from each game. */
+    static final int DEFAULT_PLIES = 10;
+    /** Default search depth. */
+    static final int DEFAULT_DEPTH = 5;
+    /** One move in RANDOM_ODDS is chosen at random. */
+    private static final int RANDOM_ODDS = 4;
+    /** Largest weight a record can hold. */
+    private static final int MAX_WEIGHT = 0xffff;
+    /** Size of the output buffer, in bytes. */
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /** Position at the start of each game. */
+    private final Board _start;
+    /** Search depth. */
+    private final int _depth;
+    /** Source of random moves. */
+    private final Random _random;
+    /** The searcher's transposition table. */
+    private final TranspositionTable _table =
+        new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES);
+    /** Finds the moves to record. */
+    private final Searcher _searcher = new Searcher(_table);
+    /** The records so far, by position. */
+    private final HashMap<Long, ArrayList<Entry>> _entries =
+        new HashMap<>();
+}
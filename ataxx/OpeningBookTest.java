@@ -0,0 +1,90 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the OpeningBook and OpeningBookBuilder classes.
+ *  @author Ahmad Badary
+ */
+public class OpeningBookTest {
+
+    /** Return a small book built from the position on START. */
+    private static Path build(Board start) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(start, 2, 61);
+        for (int k = 0; k < 20; k += 1) {
+            builder.play(4);
+        }
+        assertTrue("too few positions", builder.positions() > 4);
+        Path file = Files.createTempFile("ataxx", ".book");
+        file.toFile().deleteOnExit();
+        builder.write(file);
+        return file;
+    }
+
+    @Test public void testBook() throws IOException {
+        OpeningBook book = new OpeningBook(build(new Board()));
+        assertTrue("empty book", book.size() > 4);
+        for (int i = 1; i < book.size(); i += 1) {
+            assertTrue("records out of order",
+                       book.key(i - 1) <= book.key(i));
+        }
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        Move mv = book.choose(b, game);
+        assertNotNull("no move for initial position", mv);
+        assertTrue("illegal move " + mv, b.islegalMove(mv));
+        int i = book.find(b.zobrist());
+        assertEquals(b.zobrist(), book.key(i));
+        assertTrue(book.weight(i) > 0);
+
+        b.makeMove('a', '7', 'a', '5');
+        b.makeMove('a', '1', 'a', '3');
+        b.makeMove('a', '5', 'a', '4');
+        b.makeMove('g', '7', 'e', '5');
+        b.makeMove('g', '1', 'g', '3');
+        assertNull("move for unknown position", book.choose(b, game));
+    }
+
+    @Test public void testBlocks() throws IOException {
+        Board start = new Board();
+        start.setBlock("c3");
+        OpeningBook book = new OpeningBook(build(start));
+        Game game = new Game(start, null, new TextReporter());
+        assertNotNull(book.choose(start, game));
+        assertNull("book used for wrong layout",
+                   book.choose(new Board(), game));
+    }
+
+    @Test public void testAI() throws IOException {
+        OpeningBook book = new OpeningBook(build(new Board()));
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        AI ai = new AI(game, PieceColor.RED);
+        ai.setBook(book);
+        ai.setDepth(1);
+        Move mv = ai.myMove();
+        boolean found = false;
+        for (int i = book.find(b.zobrist()); i < book.size()
+                 && book.key(i) == b.zobrist(); i += 1) {
+            found |= Move.move(book.move(i)) == mv;
+        }
+        assertTrue("AI did not use book", found);
+    }
+
+    @Test public void testNotBook() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".book");
+        file.toFile().deleteOnExit();
+        Files.write(file, new byte[OpeningBook.HEADER_BYTES
+                                   + OpeningBook.RECORD_BYTES]);
+        try {
+            new OpeningBook(file);
+            fail("accepted a file without a header");
+        } catch (IOException excp) {
+            /* Expected. */
+        }
+    }
+}
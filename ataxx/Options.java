@@ -0,0 +1,51 @@
+package ataxx;
+
+/** Parsing of the command-line options of Main and the standalone
+ *  tools.  It is kept out of Main, which depends on the GUI, so that
+ *  the tools, and the benchmarks, can be built without the GUI.  Each
+ *  program keeps an Options that knows its usage message, and gives it
+ *  and exits when an option is bad.
+ *  @author Ahmad Badary
+ */
+class Options {
+
+    /** Options of a program whose usage message is USAGE. */
+    Options(String usage) {
+        _usage = usage;
+    }
+
+    /** Return the non-negative integer value of the option ARG, which
+     *  has the form --NAME=VALUE (or is just VALUE), or give my usage
+     *  message and exit if VALUE is not such an integer. */
+    int intOption(String arg) {
+        int value = intValue(arg);
+        if (value < 0) {
+            usage();
+        }
+        return value;
+    }
+
+    /** Give my usage message and exit. */
+    void usage() {
+        System.err.println(_usage);
+        System.exit(1);
+    }
+
+    /** Return the non-negative integer value of the option ARG, which
+     *  has the form --NAME=VALUE, or -1 if VALUE is not such an
+     *  integer. */
+    static int intValue(String arg) {
+        try {
+            int value = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+            if (value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through. */
+        }
+        return -1;
+    }
+
+    /** My usage message. */
+    private final String _usage;
+}
@@ -0,0 +1,297 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/** Counts the leaves of the tree of legal moves from a position to a
+ *  given depth ("perft"), as a check on the move generator and a
+ *  measure of its speed.  A pass is the only legal move of a player
+ *  who has no other in a game that is not over, as for
+ *  Board.legalMove, and counts as a move; a game that is over has no
+ *  moves, so a position in which the game ends before the given depth
+ *  contributes no leaves.  The subtrees of the moves at the root are
+ *  counted in parallel, each on its own copy of the board, and the
+ *  counts of subtrees may be kept in a table shared by all of them, so
+ *  that transpositions are counted only once.  It walks any Position,
+ *  so that it measures a BitBoard as readily as a Board.
+ *  @author Ahmad Badary
+ */
+public class Perft {
+
+    /** Count leaves.  ARGS are options followed by the depth:
+     *  '--divide' (also print the count under each move at the root),
+     *  '--threads=N' (default: one per processor), '--hash=MB' (size of
+     *  the table of subtree counts; default 16, and 0 for none),
+     *  '--position=SQUARES/S' (the position to start from, with its
+     *  squares as for Board.parse and S, 'r' or 'b', on move; default
+     *  the initial position), and '--bitboard' (count on a BitBoard
+     *  rather than a Board). */
+    public static void main(String[] args) {
+        boolean divide = false, bitboard = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int megabytes = DEFAULT_MEGABYTES;
+        Board board = new Board();
+        if (args.length == 0) {
+            OPTIONS.usage();
+        }
+        for (int i = 0; i < args.length - 1; i += 1) {
+            String arg = args[i];
+            if (arg.equals("--divide")) {
+                divide = true;
+            } else if (arg.equals("--bitboard")) {
+                bitboard = true;
+            } else if (arg.startsWith("--threads=")) {
+                threads = Math.max(1, OPTIONS.intOption(arg));
+            } else if (arg.startsWith("--hash=")) {
+                megabytes = OPTIONS.intOption(arg);
+            } else if (arg.startsWith("--position=")) {
+                board = position(arg.substring(11));
+            } else {
+                OPTIONS.usage();
+            }
+        }
+        int depth = OPTIONS.intOption(args[args.length - 1]);
+        Position root = bitboard ? new BitBoard(board) : board;
+        Perft perft = new Perft(new ForkJoinPool(threads), megabytes);
+        long start = System.nanoTime();
+        long leaves;
+        if (divide) {
+            leaves = 0;
+            for (Map.Entry<Move, Long> entry
+                     : perft.divide(root, depth).entrySet()) {
+                System.out.printf("%s: %d%n", entry.getKey(),
+                                  entry.getValue());
+                leaves += entry.getValue();
+            }
+        } else {
+            leaves = perft.count(root, depth);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("perft %d: %d leaves, %.2f s (%.0f leaves/s)%n",
+                          depth, leaves, seconds, leaves / seconds);
+    }
+
+    /** Return the position described by SPEC, as for the --position
+     *  option. */
+    private static Board position(String spec) {
+        if (!spec.matches("[-rbX]{49}/[rb]")) {
+            OPTIONS.usage();
+        }
+        return Board.parse(spec.substring(0, spec.length() - 2),
+                           spec.charAt(spec.length() - 1));
+    }
+
+    /** A counter that divides its work among the threads of POOL, and
+     *  keeps the counts of subtrees in a table of MEGABYTES megabytes
+     *  (none if MEGABYTES is 0). */
+    Perft(ForkJoinPool pool, int megabytes) {
+        _pool = pool;
+        _table = megabytes > 0 ? new Table(megabytes) : null;
+    }
+
+    /** Return the number of leaves of the tree of legal moves from the
+     *  position on BOARD to depth DEPTH.  BOARD is unchanged. */
+    long count(Position board, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long total = 0;
+        for (long leaves : divide(board, depth).values()) {
+            total += leaves;
+        }
+        return total;
+    }
+
+    /** Return the number of leaves to depth DEPTH > 0 under each legal
+     *  move from the position on BOARD, in the order generated.  BOARD
+     *  is unchanged. */
+    Map<Move, Long> divide(Position board, int depth) {
+        LinkedHashMap<Move, Long> result = new LinkedHashMap<>();
+        if (board.gameOver()) {
+            return result;
+        }
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = board.generateMoves(moves);
+        if (n == 0) {
+            moves[0] = Move.PACKED_PASS;
+            n = 1;
+        }
+        ArrayList<Subtree> subtrees = new ArrayList<>();
+        for (int k = 0; k < n; k += 1) {
+            subtrees.add(new Subtree(board, moves[k], depth - 1));
+        }
+        _pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(subtrees);
+                return null;
+            }
+        });
+        for (Subtree subtree : subtrees) {
+            result.put(Move.move(subtree._move), subtree.join());
+        }
+        return result;
+    }
+
+    /** Return the number of leaves of the tree of legal moves from the
+     *  position on BOARD to depth DEPTH, counting on this thread alone
+     *  and without a table.  BOARD is restored before returning. */
+    static long perft(Position board, int depth) {
+        return perft(board, depth, null, new int[depth + 1][]);
+    }
+
+    /** Return the number of leaves of the tree of legal moves from the
+     *  position on BOARD to depth DEPTH, using and adding to the counts
+     *  in TABLE, if it is not null.  MOVES[D], if not null, is space
+     *  for the moves generated at depth D.  BOARD is restored before
+     *  returning. */
+    private static long perft(Position board, int depth, Table table,
+                              int[][] moves) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (board.gameOver()) {
+            return 0;
+        }
+        if (moves[depth] == null) {
+            moves[depth] = new int[Board.MAX_MOVES];
+        }
+        int n = board.generateMoves(moves[depth]);
+        if (depth == 1) {
+            return Math.max(n, 1);
+        }
+        long key = 0;
+        if (table != null) {
+            key = key(board, depth);
+            long leaves = table.probe(key);
+            if (leaves > 0) {
+                return leaves;
+            }
+        }
+        long leaves = 0;
+        if (n == 0) {
+            board.makeMove(Move.PACKED_PASS);
+            leaves = perft(board, depth - 1, table, moves);
+            board.retract();
+        } else {
+            for (int k = 0; k < n; k += 1) {
+                board.makeMove(moves[depth][k]);
+                leaves += perft(board, depth - 1, table, moves);
+                board.retract();
+            }
+        }
+        if (table != null) {
+            table.store(key, leaves);
+        }
+        return leaves;
+    }
+
+    /** Return the key under which the count of leaves to depth DEPTH
+     *  from the position on BOARD is kept.  Besides the squares and the
+     *  player on move (Position.zobrist), it depends on the jump count
+     *  and whether the last piece move was an extend, since these
+     *  decide when the game ends, and on DEPTH. */
+    private static long key(Position board, int depth) {
+        long state = ((long) depth << STATE_SHIFT)
+            | ((long) board.jumpCount() << 1)
+            | (board.lastExtended() ? 1 : 0);
+        return board.zobrist() ^ (state + 1) * STATE_MULTIPLIER;
+    }
+
+    /** Counts the leaves under one move at the root. */
+    private final class Subtree extends RecursiveTask<Long> {
+
+        /** Counts the leaves to depth DEPTH after MOVE (packed) on a
+         *  copy of BOARD. */
+        Subtree(Position board, int move, int depth) {
+            _board = board.copy();
+            _move = move;
+            _depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            _board.makeMove(_move);
+            return perft(_board, _depth, _table, new int[_depth + 1][]);
+        }
+
+        /** My copy of the board. */
+        private final Position _board;
+        /** The move at the root, packed. */
+        private final int _move;
+        /** Depth of my subtree. */
+        private final int _depth;
+
+        /** Version of the serialized form (which is never used) that
+         *  RecursiveTask, being Serializable, calls for. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** A fixed-size table of counts of leaves, indexed by key.  Each
+     *  entry is a pair of longs: the key exclusive-or'ed with the count,
+     *  and the count, so that threads may store and probe it without
+     *  locks, as in TranspositionTable; a torn entry fails the key
+     *  check.  A new count always replaces the old. */
+    private static final class Table {
+
+        /** An empty table of at most MEGABYTES megabytes (and at least
+         *  one entry). */
+        Table(int megabytes) {
+            long entries = ((long) megabytes << 20) / ENTRY_BYTES;
+            entries = Math.min(entries, Integer.MAX_VALUE / 2);
+            entries = Long.highestOneBit(Math.max(1, entries));
+            _slots = new long[(int) entries * 2];
+            _mask = (int) entries - 1;
+        }
+
+        /** Return the count stored under KEY, or 0 if there is none. */
+        long probe(long key) {
+            int i = entry(key);
+            long leaves = _slots[i + 1];
+            return (_slots[i] ^ leaves) == key ? leaves : 0;
+        }
+
+        /** Record LEAVES as the count under KEY. */
+        void store(long key, long leaves) {
+            int i = entry(key);
+            _slots[i] = key ^ leaves;
+            _slots[i + 1] = leaves;
+        }
+
+        /** Return the index in _slots of the entry for KEY. */
+        private int entry(long key) {
+            return ((int) (key ^ (key >>> 32)) & _mask) * 2;
+        }
+
+        /** Size of an entry in bytes. */
+        private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+        /** Keys and counts. */
+        private final long[] _slots;
+        /** Mask selecting an entry from a key. */
+        private final int _mask;
+    }
+
+    /** Parses my options, giving my usage message if they are bad. */
+    private static final Options OPTIONS =
+        new Options("Usage: java ataxx.Perft [--divide] [--threads=N]"
+                    + " [--hash=MB] [--position=SQUARES/S]"
+                    + " [--bitboard] DEPTH");
+
+    /** Default size of the table of counts, in megabytes. */
+    static final int DEFAULT_MEGABYTES = 16;
+
+    /** Position of the depth in the state mixed into a key. */
+    private static final int STATE_SHIFT = 8;
+    /** Spreads the state mixed into a key over all its bits (an odd
+     *  constant: 2^64 divided by the golden ratio). */
+    private static final long STATE_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /** Divides counting among threads. */
+    private final ForkJoinPool _pool;
+    /** Counts of subtrees, or null if none are kept. */
+    private final Table _table;
+}
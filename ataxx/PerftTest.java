@@ -0,0 +1,128 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the Perft class.
+ *  @author Ahmad Badary
+ */
+public class PerftTest {
+
+    @Test public void testInitialPosition() {
+        Board b = new Board();
+        long[] expected = { 1, 16, 256, 6652, 165656 };
+        for (int depth = 0; depth < expected.length; depth += 1) {
+            assertEquals("wrong count at depth " + depth, expected[depth],
+                         Perft.perft(b, depth));
+        }
+        assertEquals("board changed", new Board(), b);
+    }
+
+    @Test public void testAgainstAllocateAllMoves() {
+        Random rand = new Random(11);
+        Perft serial = new Perft(new ForkJoinPool(1), 0);
+        Perft parallel = new Perft(new ForkJoinPool(4), 1);
+        for (int trial = 0; trial < 12; trial += 1) {
+            Board b = randomPosition(rand);
+            long expected = reference(b, 3);
+            assertEquals("perft differs", expected, Perft.perft(b, 3));
+            assertEquals("serial count differs", expected,
+                         serial.count(b, 3));
+            assertEquals("hashed count differs", expected,
+                         parallel.count(b, 3));
+        }
+    }
+
+    @Test public void testBitBoard() {
+        Random rand = new Random(13);
+        Perft parallel = new Perft(new ForkJoinPool(4), 1);
+        for (int trial = 0; trial < 12; trial += 1) {
+            Board b = randomPosition(rand);
+            BitBoard bb = new BitBoard(b);
+            long expected = Perft.perft(b, 4);
+            assertEquals("perft differs", expected, Perft.perft(bb, 4));
+            assertEquals("hashed count differs", expected,
+                         parallel.count(bb, 4));
+            assertEquals("board changed", new BitBoard(b), bb);
+        }
+    }
+
+    @Test public void testDivide() {
+        Board b = new Board();
+        b.setBlock("c3");
+        Perft perft = new Perft(new ForkJoinPool(2), 1);
+        Map<Move, Long> divide = perft.divide(b, 3);
+        long total = 0;
+        for (Map.Entry<Move, Long> entry : divide.entrySet()) {
+            Board after = new Board(b);
+            after.makeMove(entry.getKey());
+            assertEquals("wrong count after " + entry.getKey(),
+                         reference(after, 2), (long) entry.getValue());
+            total += entry.getValue();
+        }
+        assertEquals("divide does not add up", perft.count(b, 3), total);
+    }
+
+    @Test public void testPass() {
+        Board b = Board.parse("-------" + "rrrrrrr" + "rrrrrrr"
+                                 + "rrrrrrr" + "rrrrrrr" + "rrrrrrr"
+                                 + "rrrrrXb", 'b');
+        assertFalse("game over", b.gameOver());
+        assertFalse("blue can move", b.canMove(PieceColor.BLUE));
+        Perft perft = new Perft(new ForkJoinPool(1), 1);
+        Map<Move, Long> divide = perft.divide(b, 2);
+        assertEquals("pass not the only move", 1, divide.size());
+        assertTrue("pass not counted",
+                   divide.keySet().iterator().next().isPass());
+        assertEquals("wrong count", reference(b, 2), perft.count(b, 2));
+        assertEquals("wrong count at depth 1", 1, Perft.perft(b, 1));
+    }
+
+    /** Return the number of leaves to depth DEPTH from the position on
+     *  B, finding moves with Board.allocateAllMoves and taking a pass
+     *  only where Board.islegalMove allows it. */
+    private static long reference(Board b, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (b.gameOver()) {
+            return 0;
+        }
+        ArrayList<Move> moves = new ArrayList<>();
+        for (int sq : Board.PLAYABLE) {
+            b.allocateAllMoves(moves, sq, b.whoseMove());
+        }
+        if (b.islegalMove(Move.pass())) {
+            moves.add(Move.pass());
+        }
+        long leaves = 0;
+        for (Move mv : moves) {
+            assertTrue("illegal move " + mv, b.islegalMove(mv));
+            b.makeMove(mv);
+            leaves += reference(b, depth - 1);
+            b.undo();
+        }
+        return leaves;
+    }
+
+    /** Return a position reached by random play from the initial
+     *  position with random blocks, using RAND. */
+    private static Board randomPosition(Random rand) {
+        Board b = new Board();
+        if (rand.nextBoolean()) {
+            b.setBlock((char) ('b' + rand.nextInt(2)) + ""
+                       + (char) ('2' + rand.nextInt(2)));
+        }
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = rand.nextInt(30); k > 0 && !b.gameOver(); k -= 1) {
+            int n = b.generateMoves(moves);
+            b.makeMove(n == 0 ? Move.PACKED_PASS : moves[rand.nextInt(n)]);
+        }
+        return b;
+    }
+}
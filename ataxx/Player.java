@@ -31,6 +31,13 @@ abstract class Player {
      *  board.whoseMove() == myColor and that !board.gameOver(). */
     abstract Move myMove();
 
+    /** Called by my game when it needs no more moves from me for now:
+     *  when the game ends or is cleared, or when I am about to be
+     *  replaced.  Stops anything I do in the background.  Does nothing
+     *  by default. */
+    void finish() {
+    }
+
     /** The game I am playing in. */
     private final Game _game;
     /** The color of my pieces. */
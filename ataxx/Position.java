@@ -0,0 +1,48 @@
+package ataxx;
+
+/** A position in a game of Ataxx, as seen by code that walks the tree
+ *  of moves from it by making and retracting packed moves (see
+ *  Move.packed).  Board and BitBoard are the two implementations, so
+ *  that such code (Perft, for one) may be pointed at either.
+ *  @author Ahmad Badary
+ */
+interface Position {
+
+    /** Return a copy of me, with the same counters but no moves to
+     *  retract. */
+    Position copy();
+
+    /** Return the color of the player who has the next move.  The
+     *  value is arbitrary if gameOver(). */
+    PieceColor whoseMove();
+
+    /** Return true iff the game is over. */
+    boolean gameOver();
+
+    /** Store the legal moves other than pass for the player on move in
+     *  MOVES, packed as by Move.packed, and return how many there are
+     *  (0 if the player must pass or has no pieces).  MOVES must have
+     *  room for Board.MAX_MOVES entries. */
+    int generateMoves(int[] moves);
+
+    /** Make the move whose packed form is PACKED, assuming it is
+     *  legal. */
+    void makeMove(int packed);
+
+    /** Undo the last move, assuming there is one. */
+    void retract();
+
+    /** Return the Zobrist key of my squares and player on move, as for
+     *  Board.zobrist.  Equal positions have equal keys whichever
+     *  implementation holds them. */
+    long zobrist();
+
+    /** Return the number of consecutive jumps counted toward
+     *  Board.JUMP_LIMIT. */
+    int jumpCount();
+
+    /** Return true iff the last piece move that affects jumpCount was
+     *  an extend. */
+    boolean lastExtended();
+
+}
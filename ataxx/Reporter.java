@@ -17,4 +17,8 @@ interface Reporter {
      *  formed from FORMAT and OPERANDS as for String.format. */
     void moveMsg(String format, Object... operands);
 
+    /** Display an informational message, such as statistics of a
+     *  search, formed from FORMAT and OPERANDS as for String.format. */
+    void infoMsg(String format, Object... operands);
+
 }
@@ -0,0 +1,138 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Statistics of one AI search, gathered from its Searchers when the
+ *  search is over.  Each Searcher keeps its own counters as it goes,
+ *  in plain fields that only its thread touches, so that collecting
+ *  them costs nothing during the search.
+ *  @author Ahmad Badary
+ */
+class SearchStats {
+
+    /** The statistics of a search that took NANOS nanoseconds, in which
+     *  MAIN chose the move and HELPERS helped, and whose principal
+     *  variation is PV. */
+    SearchStats(Searcher main, Searcher[] helpers, long nanos,
+                List<Move> pv) {
+        _nanos = nanos;
+        _depth = main.finishedDepth();
+        _score = main.score();
+        _threads = 1 + helpers.length;
+        _pv = new ArrayList<>(pv);
+        _iterationNanos = new long[_depth + 1];
+        _iterationNodes = new long[_depth + 1];
+        for (int d = 1; d <= _depth; d += 1) {
+            _iterationNanos[d] = main.iterationNanos(d);
+            _iterationNodes[d] = main.iterationNodes(d);
+        }
+        for (Searcher.Technique t : Searcher.Technique.values()) {
+            _uses[t.ordinal()] = main.uses(t);
+            _successes[t.ordinal()] = main.successes(t);
+        }
+        add(main);
+        for (Searcher helper : helpers) {
+            add(helper);
+        }
+    }
+
+    /** Add the counters of SEARCHER to my totals. */
+    private void add(Searcher searcher) {
+        _nodes += searcher.nodes();
+        _ttProbes += searcher.ttProbes();
+        _ttHits += searcher.ttHits();
+        _ttCutoffs += searcher.ttCutoffs();
+    }
+
+    /** Return the number of positions visited by all threads. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return the number of positions visited per second. */
+    long nodesPerSecond() {
+        return _nanos == 0 ? 0 : _nodes * NANOS_PER_SECOND / _nanos;
+    }
+
+    /** Return the depth of the deepest finished iteration. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the effective branching factor: the ratio of the numbers
+     *  of positions visited by the last two finished iterations of the
+     *  thread that chose the move, or 0 if there were not two. */
+    double branchingFactor() {
+        if (_depth < 2 || _iterationNodes[_depth - 1] == 0) {
+            return 0;
+        }
+        return (double) _iterationNodes[_depth]
+            / _iterationNodes[_depth - 1];
+    }
+
+    /** Return the principal variation. */
+    List<Move> principalVariation() {
+        return _pv;
+    }
+
+    /** Report these statistics as messages to REPORTER, each prefixed
+     *  by PREFIX. */
+    void report(Reporter reporter, String prefix) {
+        reporter.infoMsg("%sdepth %d, score %d, %d nodes in %.3f s"
+                         + " (%d nodes/s, %d thread%s)",
+                         prefix, _depth, _score, _nodes,
+                         (double) _nanos / NANOS_PER_SECOND,
+                         nodesPerSecond(), _threads,
+                         _threads == 1 ? "" : "s");
+        reporter.infoMsg("%stable: %d probes, %d hits (%.1f%%), %d cutoffs;"
+                         + " branching factor %.2f",
+                         prefix, _ttProbes, _ttHits,
+                         _ttProbes == 0 ? 0.0 : 100.0 * _ttHits / _ttProbes,
+                         _ttCutoffs, branchingFactor());
+        StringBuilder line = new StringBuilder();
+        for (int d = 1; d <= _depth; d += 1) {
+            if (_iterationNodes[d] > 0) {
+                line.append(String.format(" %d:%.1f", d,
+                                          _iterationNanos[d] / 1e6));
+            }
+        }
+        reporter.infoMsg("%siterations (depth:ms):%s", prefix, line);
+        line.setLength(0);
+        for (Move mv : _pv) {
+            line.append(' ').append(mv);
+        }
+        reporter.infoMsg("%sprincipal variation:%s", prefix, line);
+        line.setLength(0);
+        for (Searcher.Technique t : Searcher.Technique.values()) {
+            line.append(String.format(" %s %d/%d", t.name().toLowerCase(),
+                                      _successes[t.ordinal()],
+                                      _uses[t.ordinal()]));
+        }
+        reporter.infoMsg("%stechniques (successes/uses):%s", prefix, line);
+    }
+
+    /** Nanoseconds per second. */
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /** Duration of the search, in nanoseconds. */
+    private final long _nanos;
+    /** Depth of the deepest finished iteration. */
+    private final int _depth;
+    /** Value found for the player on move. */
+    private final int _score;
+    /** Number of search threads. */
+    private final int _threads;
+    /** Principal variation. */
+    private final List<Move> _pv;
+    /** Times (in nanoseconds) and positions visited of the iterations
+     *  of the thread that chose the move, indexed by depth. */
+    private final long[] _iterationNanos, _iterationNodes;
+    /** Uses and successes of each Searcher.Technique by that thread,
+     *  indexed by ordinal. */
+    private final long[] _uses = new long[Searcher.TECHNIQUES],
+        _successes = new long[Searcher.TECHNIQUES];
+    /** Totals over all threads of positions visited and of
+     *  transposition-table probes, hits, and cutoffs. */
+    private long _nodes, _ttProbes, _ttHits, _ttCutoffs;
+}
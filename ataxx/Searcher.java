@@ -0,0 +1,939 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** The state of one thread of an AI's game-tree search, and the search
+ *  itself: an iterative-deepening negamax alpha-beta search that plays
+ *  and retracts moves in place on its own board, consults a (possibly
+ *  shared) transposition table, and orders moves using its own killer
+ *  and history tables.  Several Searchers may work on the same position
+ *  in parallel, sharing only the transposition table.
+ *
+ *  On top of plain alpha-beta, the search uses the Techniques below,
+ *  each of which may be switched off, and each of which counts how
+ *  often it was used and how often that paid off.
+ *  @author Ahmad Badary
+ */
+class Searcher {
+
+    /**
+     * A position magnitude indicating a win (for red if positive, blue
+     * if negative).
+     */
+    static final int WINNING_VALUE = Integer.MAX_VALUE - 1;
+    /**
+     * A magnitude greater than a normal value.  Since beta - alpha
+     * overflows for the window -INFTY..INFTY, window widths are tested
+     * by comparing alpha + 1 with beta.
+     */
+    static final int INFTY = Integer.MAX_VALUE;
+    /**
+     * Maximum number of plies from the root that a search looks at.
+     */
+    static final int MAX_PLY = 64;
+    /**
+     * Values at least this large in magnitude denote won or lost
+     * positions (a win WINNING_VALUE - N being a win N plies from the
+     * root).
+     */
+    static final int WIN_THRESHOLD = WINNING_VALUE - MAX_PLY;
+    /**
+     * Number of Techniques.
+     */
+    static final int TECHNIQUES = Technique.values().length;
+
+    /** Refinements of the alpha-beta search. */
+    enum Technique {
+        /** Principal variation search: search each move after the first
+         *  with a null window, to prove it no better than the best so
+         *  far, and re-search it with the full window only if that
+         *  fails.  Counts null-window searches, and those that needed
+         *  no re-search. */
+        PVS,
+        /** Aspiration windows: start each iteration after the second
+         *  with a narrow window around the value found two iterations
+         *  before (values swing between odd and even depths, since a
+         *  move gains pieces for the player who makes it), widening it
+         *  if the value falls outside.  Counts iterations so started,
+         *  and those that needed no re-search. */
+        ASPIRATION,
+        /** Late-move reductions: search jumps that capture nothing and
+         *  come late in the move order one or two plies shallower, and
+         *  re-search them at full depth only if they turn out better
+         *  than the best so far.  Counts reduced searches, and those
+         *  that needed no re-search. */
+        LMR,
+        /** Futility pruning: one or two plies from the horizon, in
+         *  null-window searches, skip moves that cannot raise the
+         *  static value above alpha even with a margin.  Counts moves
+         *  considered for pruning, and those pruned. */
+        FUTILITY,
+        /** ProbCut: in deep null-window searches, first search to a much
+         *  shallower depth with a window raised by a margin, and cut
+         *  off at once if even that beats beta.  Counts such probes,
+         *  and those that cut off. */
+        PROBCUT
+    }
+
+    /**
+     * A new Searcher using TABLE as its transposition table.
+     */
+    Searcher(TranspositionTable table) {
+        _table = table;
+        Arrays.fill(_enabled, true);
+    }
+
+    /**
+     * Use TABLE as my transposition table.
+     */
+    void setTable(TranspositionTable table) {
+        _table = table;
+    }
+
+    /**
+     * Use EVALUATOR to evaluate the positions at the leaves of my
+     * searches.
+     */
+    void setEvaluator(Evaluator evaluator) {
+        _evaluator = evaluator;
+    }
+
+    /**
+     * Consult TIMER (none if null) after each iteration of my searches
+     * about whether to start another.
+     */
+    void setTimeManager(TimeManager timer) {
+        _timer = timer;
+    }
+
+    /**
+     * Use TECHNIQUE in my searches iff ON (all are used by default).
+     */
+    void setEnabled(Technique technique, boolean on) {
+        _enabled[technique.ordinal()] = on;
+    }
+
+    /**
+     * Return true iff I use TECHNIQUE.
+     */
+    boolean enabled(Technique technique) {
+        return _enabled[technique.ordinal()];
+    }
+
+    /**
+     * Return the number of times the current or last search used
+     * TECHNIQUE (see Technique for what each counts).
+     */
+    long uses(Technique technique) {
+        return _uses[technique.ordinal()];
+    }
+
+    /**
+     * Return the number of times that a use of TECHNIQUE by the current
+     * or last search paid off (see Technique for what each counts).
+     */
+    long successes(Technique technique) {
+        return _successes[technique.ordinal()];
+    }
+
+    /**
+     * Search BOARD, whose player on move has a legal move other than a
+     * pass, with iterative deepening from depth FIRSTDEPTH to depth
+     * LASTDEPTH, until stop() is called, or until my TimeManager, if
+     * any, says to stop.  Return the best move found by the deepest
+     * iteration that finished, or null if none did.
+     * BOARD is left as it was found.  Stops early if stop() has
+     * been called since the last call to resume().
+     */
+    Move search(Board board, int firstDepth, int lastDepth) {
+        startSearch();
+        Move best = null;
+        int previous = 0;
+        for (int depth = firstDepth; depth <= lastDepth && !_stopped;
+             depth += 1) {
+            long start = System.nanoTime(), nodes0 = _nodes;
+            int value;
+            if (depth > firstDepth + 1 && enabled(Technique.ASPIRATION)
+                && Math.abs(previous) < WIN_THRESHOLD) {
+                value = aspirationSearch(board, depth, previous);
+            } else {
+                value = negamax(board, depth, 0, -INFTY, INFTY, true);
+            }
+            if (_aborted) {
+                break;
+            }
+            best = _lastFoundMove;
+            _finishedDepth = depth;
+            _iterationNanos[depth] = System.nanoTime() - start;
+            _iterationNodes[depth] = _nodes - nodes0;
+            previous = _score;
+            _score = value;
+            if (_timer != null && !_timer.nextIteration(best)) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Analyze BOARD, whose player on move has a legal move other than a
+     * pass, with iterative deepening to depth LASTDEPTH or until stop()
+     * is called, finding the LINES best moves rather than just the
+     * best.  After each iteration that finishes, report the best moves
+     * found, best first, to LISTENER.  All moves are searched in one
+     * pass at the root: the first LINES with the full window, and the
+     * rest with PVS against the value of the LINES-th best so far, so
+     * that only the moves that beat it need a full search.  BOARD is
+     * left as it was found.
+     */
+    void analyze(Board board, int lines, int lastDepth, Listener listener) {
+        startSearch();
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = board.generateMoves(moves);
+        int[] values = new int[n];
+        long entry = _table.probe(board.zobrist());
+        scoreMoves(board, moves, values, n, 0,
+                   entry == 0 ? Move.PACKED_PASS
+                   : TranspositionTable.move(entry));
+        for (int i = 0; i < n; i += 1) {
+            nextMove(moves, values, i, n);
+        }
+        lines = Math.max(1, Math.min(lines, n));
+        for (int depth = 1; depth <= lastDepth && !_stopped; depth += 1) {
+            long start = System.nanoTime(), nodes0 = _nodes;
+            for (int i = 0; i < n && !_aborted; i += 1) {
+                int move = moves[i];
+                board.makeMove(move);
+                int value;
+                if (i < lines) {
+                    value = -negamax(board, depth - 1, 1, -INFTY, INFTY,
+                                     false);
+                } else {
+                    value = searchMove(board, depth - 1, 1,
+                                       values[lines - 1], INFTY, true, 0);
+                }
+                board.retract();
+                int k;
+                for (k = i; k > 0 && values[k - 1] < value; k -= 1) {
+                    moves[k] = moves[k - 1];
+                    values[k] = values[k - 1];
+                }
+                moves[k] = move;
+                values[k] = value;
+            }
+            if (_aborted) {
+                break;
+            }
+            _finishedDepth = depth;
+            _iterationNanos[depth] = System.nanoTime() - start;
+            _iterationNodes[depth] = _nodes - nodes0;
+            _score = values[0];
+            _lastFoundMove = Move.move(moves[0]);
+            ArrayList<Line> best = new ArrayList<>();
+            for (int i = 0; i < lines; i += 1) {
+                best.add(new Line(values[i],
+                                  principalVariation(board,
+                                                     Move.move(moves[i]),
+                                                     depth)));
+            }
+            listener.iteration(depth, best);
+        }
+    }
+
+    /** One of the best moves found by analyze, and what follows it. */
+    static final class Line {
+
+        /** A line whose first move has value VALUE for the player
+         *  making it, and whose principal variation is MOVES. */
+        Line(int value, List<Move> moves) {
+            _value = value;
+            _moves = moves;
+        }
+
+        /** Return the value of my first move for the player making
+         *  it. */
+        int value() {
+            return _value;
+        }
+
+        /** Return my principal variation, starting with the move
+         *  analyzed. */
+        List<Move> moves() {
+            return _moves;
+        }
+
+        /** Value of my first move. */
+        private final int _value;
+        /** Principal variation. */
+        private final List<Move> _moves;
+    }
+
+    /** Receives the results of analyze as it deepens. */
+    interface Listener {
+        /** Report that the iteration to depth DEPTH has found LINES, the
+         *  best moves and their principal variations, best first. */
+        void iteration(int depth, List<Line> lines);
+    }
+
+    /**
+     * Reset my statistics and age my move-ordering tables for a new
+     * search.
+     */
+    private void startSearch() {
+        _aborted = false;
+        _nodes = _ttProbes = _ttHits = _ttCutoffs = 0;
+        _finishedDepth = 0;
+        _lastFoundMove = null;
+        Arrays.fill(_iterationNanos, 0);
+        Arrays.fill(_iterationNodes, 0);
+        Arrays.fill(_uses, 0);
+        Arrays.fill(_successes, 0);
+        for (int i = 0; i < _history.length; i += 1) {
+            _history[i] /= 2;
+        }
+        for (int[] killers : _killers) {
+            killers[0] = killers[1] = Move.PACKED_PASS;
+        }
+    }
+
+    /**
+     * Return the value of BOARD for the player on move, searching to
+     * depth DEPTH and recording the best move in _lastFoundMove, with
+     * windows around GUESS, widened until the value falls inside.
+     */
+    private int aspirationSearch(Board board, int depth, int guess) {
+        _uses[Technique.ASPIRATION.ordinal()] += 1;
+        long delta = ASPIRATION_WINDOW;
+        long alpha = guess - delta, beta = guess + delta;
+        while (true) {
+            int value = negamax(board, depth, 0, clamp(alpha), clamp(beta),
+                                true);
+            if (_aborted) {
+                return 0;
+            } else if (value <= alpha) {
+                delta *= ASPIRATION_GROWTH;
+                alpha = guess - delta;
+            } else if (value >= beta) {
+                delta *= ASPIRATION_GROWTH;
+                beta = guess + delta;
+            } else {
+                if (delta == ASPIRATION_WINDOW) {
+                    _successes[Technique.ASPIRATION.ordinal()] += 1;
+                }
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Return the bound X of an aspiration window, limited to -INFTY ..
+     * INFTY, and widened to the limit if it is beyond the values of
+     * positions not won or lost.
+     */
+    private static int clamp(long x) {
+        if (x <= -WIN_THRESHOLD) {
+            return -INFTY;
+        } else if (x >= WIN_THRESHOLD) {
+            return INFTY;
+        }
+        return (int) x;
+    }
+
+    /**
+     * Stop the current search as soon as possible.  May be called from
+     * any thread.
+     */
+    void stop() {
+        _stopped = true;
+    }
+
+    /**
+     * Allow searches to run again after a call to stop().
+     */
+    void resume() {
+        _stopped = false;
+    }
+
+    /**
+     * Return the number of positions visited by the current or last
+     * search.
+     */
+    long nodes() {
+        return _nodes;
+    }
+
+    /**
+     * Return the number of transposition-table probes made by the
+     * current or last search.
+     */
+    long ttProbes() {
+        return _ttProbes;
+    }
+
+    /**
+     * Return the number of transposition-table probes by the current
+     * or last search that found an entry.
+     */
+    long ttHits() {
+        return _ttHits;
+    }
+
+    /**
+     * Return the number of transposition-table probes by the current
+     * or last search whose entry cut the search off.
+     */
+    long ttCutoffs() {
+        return _ttCutoffs;
+    }
+
+    /**
+     * Return the time taken by the iteration of the current or last
+     * search to depth DEPTH, in nanoseconds, or 0 if it did not
+     * finish.
+     */
+    long iterationNanos(int depth) {
+        return _iterationNanos[depth];
+    }
+
+    /**
+     * Return the number of positions visited by the iteration of the
+     * current or last search to depth DEPTH, or 0 if it did not
+     * finish.
+     */
+    long iterationNodes(int depth) {
+        return _iterationNodes[depth];
+    }
+
+    /**
+     * Return the principal variation of the position on BOARD: the
+     * line of best play for both sides starting with FIRST, the best
+     * move found for BOARD, and continuing as far as my transposition
+     * table records it, at most MAXLENGTH moves long.  BOARD is left
+     * as it was found.
+     */
+    List<Move> principalVariation(Board board, Move first, int maxLength) {
+        ArrayList<Move> result = new ArrayList<>();
+        int[] moves = new int[Board.MAX_MOVES];
+        int move = first.packed();
+        while (result.size() < maxLength && !board.gameOver()) {
+            int n = board.generateMoves(moves);
+            boolean legal = n == 0;
+            if (n == 0) {
+                move = Move.PACKED_PASS;
+            }
+            for (int i = 0; i < n && !legal; i += 1) {
+                legal = moves[i] == move;
+            }
+            if (!legal) {
+                break;
+            }
+            result.add(Move.move(move));
+            board.makeMove(move);
+            long entry = _table.probe(board.zobrist());
+            move = entry == 0 ? -1 : TranspositionTable.move(entry);
+        }
+        for (int i = 0; i < result.size(); i += 1) {
+            board.retract();
+        }
+        return result;
+    }
+
+    /**
+     * Return the depth of the deepest iteration of the current or last
+     * search that finished, or 0 if none did.
+     */
+    int finishedDepth() {
+        return _finishedDepth;
+    }
+
+    /**
+     * Return the value, for the player on move, that the deepest
+     * finished iteration of the current or last search found for its
+     * position.
+     */
+    int score() {
+        return _score;
+    }
+
+    /**
+     * Order the moves in my searches (see scoreMoves) iff ON, as by
+     * default, and otherwise try them in the order generated.  Move
+     * order changes only how much is searched, never the value found.
+     */
+    void setOrdering(boolean on) {
+        _ordering = on;
+    }
+
+    /**
+     * Used to communicate best moves found by findMove, when asked for.
+     */
+    private Move _lastFoundMove;
+
+    /**
+     * Find a move from position BOARD and return its value, recording
+     * the move found in _lastFoundMove iff SAVEMOVE. The move
+     * should have maximal value or have value >= BETA if SENSE==1,
+     * and minimal value or value <= ALPHA if SENSE==-1. Searches up to
+     * DEPTH levels before using a static estimate.  BOARD is left as
+     * it was found.
+     */
+    int findMove(Board board, int depth, boolean saveMove, int sense,
+                 int alpha, int beta) {
+        if (sense == 1) {
+            return negamax(board, depth, 0, alpha, beta, saveMove);
+        } else {
+            return -negamax(board, depth, 0, -beta, -alpha, saveMove);
+        }
+    }
+
+    /**
+     * Return the value of BOARD, PLY plies from the root, for the
+     * player on move, searching DEPTH more plies with the alpha-beta
+     * window ALPHA..BETA.  The value is exact if it lies strictly
+     * inside the window; otherwise it is only a bound on the exact
+     * value on the same side of the window.  Moves are made and
+     * retracted on BOARD itself.  Records the best move in
+     * _lastFoundMove iff SAVEMOVE.
+     */
+    private int negamax(Board board, int depth, int ply, int alpha,
+                        int beta, boolean saveMove) {
+        _nodes += 1;
+        if (_aborted
+            || (_nodes % STOP_CHECK_INTERVAL == 0 && _stopped)) {
+            _aborted = true;
+            return 0;
+        }
+        if (board.gameOver()) {
+            return finalScore(board, ply);
+        }
+        if (depth == 0 || ply >= MAX_PLY - 1) {
+            return staticScore(board);
+        }
+        boolean nullWindow = alpha + 1 == beta && !saveMove;
+        long key = board.zobrist();
+        long entry = _table.probe(key);
+        _ttProbes += 1;
+        int hashMove = Move.PACKED_PASS;
+        if (entry != 0) {
+            _ttHits += 1;
+            hashMove = TranspositionTable.move(entry);
+            if (!saveMove && TranspositionTable.depth(entry) >= depth) {
+                int value = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && value >= beta)
+                    || (bound == TranspositionTable.UPPER
+                        && value <= alpha)) {
+                    _ttCutoffs += 1;
+                    return value;
+                }
+            }
+        }
+        if (nullWindow && depth >= PROBCUT_DEPTH && enabled(Technique.PROBCUT)
+            && Math.abs(beta) < WIN_THRESHOLD - PROBCUT_MARGIN) {
+            _uses[Technique.PROBCUT.ordinal()] += 1;
+            int probe = beta + PROBCUT_MARGIN;
+            int value = negamax(board, depth - PROBCUT_REDUCTION, ply,
+                                probe - 1, probe, false);
+            if (_aborted) {
+                return 0;
+            } else if (value >= probe) {
+                _successes[Technique.PROBCUT.ordinal()] += 1;
+                return value;
+            }
+        }
+        int[] moves = _moves[ply];
+        int n = board.generateMoves(moves);
+        if (n == 0) {
+            board.makeMove(Move.PACKED_PASS);
+            int value = -negamax(board, depth - 1, ply + 1, -beta, -alpha,
+                                 false);
+            board.retract();
+            return value;
+        }
+        if (saveMove && _lastFoundMove != null) {
+            hashMove = _lastFoundMove.packed();
+        }
+        int[] scores = _scores[ply];
+        if (_ordering) {
+            scoreMoves(board, moves, scores, n, ply, hashMove);
+        } else {
+            Arrays.fill(scores, 0, n, 0);
+        }
+        int futilityBase = -INFTY;
+        if (nullWindow && depth <= FUTILITY_DEPTH
+            && enabled(Technique.FUTILITY)
+            && Math.abs(alpha) < WIN_THRESHOLD) {
+            futilityBase = staticScore(board) + depth * FUTILITY_MARGIN;
+        }
+        int alpha0 = alpha;
+        int best = -INFTY, bestMove = moves[0];
+        for (int i = 0; i < n; i += 1) {
+            int move = nextMove(moves, scores, i, n);
+            int captures = board.captures(Move.toIndex(move));
+            if (i > 0 && futilityBase > -INFTY) {
+                _uses[Technique.FUTILITY.ordinal()] += 1;
+                int gain = 2 * captures + (Move.isJump(move) ? 0 : 1);
+                if (futilityBase + gain * Evaluator.PIECE_VALUE <= alpha) {
+                    _successes[Technique.FUTILITY.ordinal()] += 1;
+                    continue;
+                }
+            }
+            int reduction = 0;
+            if (i >= LMR_MOVES && depth >= LMR_DEPTH
+                && Move.isJump(move) && captures == 0
+                && scores[i] < KILLER_BONUS && enabled(Technique.LMR)) {
+                reduction = i >= 2 * LMR_MOVES && depth > LMR_DEPTH ? 2 : 1;
+            }
+            board.makeMove(move);
+            int value = searchMove(board, depth - 1, ply + 1, alpha, beta,
+                                   i > 0, reduction);
+            board.retract();
+            if (_aborted) {
+                return 0;
+            }
+            if (value > best) {
+                best = value;
+                bestMove = move;
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        recordCutoff(move, depth, ply, hashMove);
+                        break;
+                    }
+                }
+            }
+        }
+        if (saveMove) {
+            _lastFoundMove = Move.move(bestMove);
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+            : best > alpha0 ? TranspositionTable.EXACT
+            : TranspositionTable.UPPER;
+        _table.store(key, depth, bound, toTable(best, ply), bestMove);
+        return best;
+    }
+
+    /**
+     * Return the value, for the player who has just moved, of a move
+     * from a position with window ALPHA..BETA, where BOARD is the
+     * position after the move, PLY plies from the root, to be searched
+     * DEPTH more plies.  If LATE, the move is not the first tried from
+     * its position, and if REDUCTION > 0 it may be searched that many
+     * plies less deep.  Uses PVS and LMR, if enabled, and so is exact
+     * and a bound only as for negamax.
+     */
+    private int searchMove(Board board, int depth, int ply, int alpha,
+                           int beta, boolean late, int reduction) {
+        boolean pvs = late && enabled(Technique.PVS) && alpha + 1 < beta;
+        int value;
+        if (reduction > 0) {
+            _uses[Technique.LMR.ordinal()] += 1;
+            value = -negamax(board, depth - reduction, ply, -alpha - 1,
+                             -alpha, false);
+            if (_aborted) {
+                return 0;
+            } else if (value <= alpha) {
+                _successes[Technique.LMR.ordinal()] += 1;
+                return value;
+            }
+        }
+        if (pvs) {
+            _uses[Technique.PVS.ordinal()] += 1;
+            value = -negamax(board, depth, ply, -alpha - 1, -alpha, false);
+            if (_aborted) {
+                return 0;
+            } else if (value <= alpha || value >= beta) {
+                _successes[Technique.PVS.ordinal()] += 1;
+                return value;
+            }
+        }
+        return -negamax(board, depth, ply, -beta, -alpha, false);
+    }
+
+    /**
+     * Return VALUE, found PLY plies from the root, in the form stored in
+     * the transposition table, where wins and losses are measured from
+     * the position in which they are stored rather than from the root.
+     */
+    private static int toTable(int value, int ply) {
+        if (value >= WIN_THRESHOLD) {
+            return value + ply;
+        } else if (value <= -WIN_THRESHOLD) {
+            return value - ply;
+        }
+        return value;
+    }
+
+    /**
+     * Return the value stored in the transposition table as VALUE, for a
+     * position PLY plies from the root.
+     */
+    private static int fromTable(int value, int ply) {
+        if (value >= WIN_THRESHOLD) {
+            return value - ply;
+        } else if (value <= -WIN_THRESHOLD) {
+            return value + ply;
+        }
+        return value;
+    }
+
+    /**
+     * Set SCORES[0 .. N-1] to the ordering priorities of the packed
+     * moves MOVES[0 .. N-1] on BOARD, PLY plies from the root, where
+     * HASHMOVE is the best move recorded for BOARD, if any.  HASHMOVE
+     * comes first; then moves that capture more pieces; among equal
+     * captures, extends before jumps; and then killer moves, followed
+     * by the rest in order of their history scores.
+     */
+    private void scoreMoves(Board board, int[] moves, int[] scores, int n,
+                            int ply, int hashMove) {
+        int[] killers = _killers[ply];
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i];
+            int score;
+            if (move == hashMove) {
+                score = Integer.MAX_VALUE;
+            } else {
+                score = board.captures(Move.toIndex(move)) << CAPTURE_SHIFT;
+                if (!Move.isJump(move)) {
+                    score |= EXTEND_BONUS;
+                }
+                if (move == killers[0] || move == killers[1]) {
+                    score |= KILLER_BONUS;
+                }
+                score |= Math.min(_history[historyIndex(move)],
+                                  KILLER_BONUS - 1);
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Move the highest-scoring of the packed moves MOVES[I .. N-1] (with
+     * scores SCORES[I .. N-1]) to position I, and return it.
+     */
+    private static int nextMove(int[] moves, int[] scores, int i, int n) {
+        int best = i;
+        for (int k = i + 1; k < n; k += 1) {
+            if (scores[k] > scores[best]) {
+                best = k;
+            }
+        }
+        int move = moves[best], score = scores[best];
+        moves[best] = moves[i];
+        scores[best] = scores[i];
+        moves[i] = move;
+        scores[i] = score;
+        return move;
+    }
+
+    /**
+     * Record that the packed move MOVE caused a beta cutoff in a search
+     * to depth DEPTH, PLY plies from the root, where HASHMOVE was tried
+     * first.
+     */
+    private void recordCutoff(int move, int depth, int ply, int hashMove) {
+        _history[historyIndex(move)] += depth * depth;
+        int[] killers = _killers[ply];
+        if (move != hashMove && move != killers[0]) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+    }
+
+    /**
+     * Return the index in _history of the packed move MOVE.
+     */
+    private static int historyIndex(int move) {
+        return move & ~Move.PACKED_JUMP;
+    }
+
+    /**
+     * Return the value of the finished game on BOARD, PLY plies from
+     * the root, for the player on move: a win or loss by piece count,
+     * with nearer wins and more distant losses preferred.
+     */
+    private static int finalScore(Board board, int ply) {
+        PieceColor me = board.whoseMove();
+        int diff = board.numPieces(me) - board.numPieces(me.opposite());
+        if (diff > 0) {
+            return WINNING_VALUE - ply;
+        } else if (diff < 0) {
+            return -WINNING_VALUE + ply;
+        }
+        return 0;
+    }
+
+    /**
+     * Return a heuristic value for BOARD, for the player on move.
+     * @param  board is the current board.
+     * @return int is the current static score.
+     */
+    private int staticScore(Board board) {
+        return _evaluator.score(board);
+    }
+
+    /**
+     * True iff my searches order their moves.
+     */
+    private boolean _ordering = true;
+
+    /**
+     * Buffers for the moves generated at each ply of the search.
+     */
+    private final int[][] _moves = new int[MAX_PLY][Board.MAX_MOVES];
+
+    /**
+     * Ordering priorities of the moves in _moves.
+     */
+    private final int[][] _scores = new int[MAX_PLY][Board.MAX_MOVES];
+
+    /**
+     * The two most recent moves that caused a beta cutoff at each
+     * ply, most recent first.
+     */
+    private final int[][] _killers = new int[MAX_PLY][2];
+
+    /**
+     * History scores, indexed by historyIndex: the sum of the squared
+     * depths of the searches in which a move caused a beta cutoff,
+     * halved at the start of each search.
+     */
+    private final int[] _history = new int[Move.PACKED_JUMP];
+
+    /**
+     * Position of the capture count in a move's ordering priority.
+     */
+    private static final int CAPTURE_SHIFT = 24;
+
+    /**
+     * Ordering bonus for extends.
+     */
+    private static final int EXTEND_BONUS = 1 << 23;
+
+    /**
+     * Ordering bonus for killer moves.
+     */
+    private static final int KILLER_BONUS = 1 << 22;
+
+    /**
+     * Half the width of the first aspiration window of an iteration.
+     */
+    private static final int ASPIRATION_WINDOW = Evaluator.PIECE_VALUE;
+
+    /**
+     * Factor by which a failed aspiration window is widened.
+     */
+    private static final int ASPIRATION_GROWTH = 4;
+
+    /**
+     * Moves before this one in the move order are never reduced.
+     */
+    private static final int LMR_MOVES = 4;
+
+    /**
+     * Least depth at which moves are reduced.
+     */
+    private static final int LMR_DEPTH = 3;
+
+    /**
+     * Greatest depth at which moves are pruned as futile.
+     */
+    private static final int FUTILITY_DEPTH = 2;
+
+    /**
+     * Margin per ply of depth by which a move must fail to reach alpha
+     * to be futile.
+     */
+    private static final int FUTILITY_MARGIN = 2 * Evaluator.PIECE_VALUE;
+
+    /**
+     * Least depth at which ProbCut probes.
+     */
+    private static final int PROBCUT_DEPTH = 5;
+
+    /**
+     * Plies by which a ProbCut probe is shallower than the search.
+     */
+    private static final int PROBCUT_REDUCTION = 4;
+
+    /**
+     * Amount by which a ProbCut probe must beat beta.
+     */
+    private static final int PROBCUT_MARGIN = 2 * Evaluator.PIECE_VALUE;
+
+    /**
+     * Number of positions between checks for a stop request.
+     */
+    private static final int STOP_CHECK_INTERVAL = 1024;
+
+    /**
+     * My transposition table.
+     */
+    private TranspositionTable _table;
+
+    /**
+     * Evaluates the positions at the leaves of the search.
+     */
+    private Evaluator _evaluator = new Evaluator();
+
+    /**
+     * Decides whether to start each new iteration, or null.
+     */
+    private TimeManager _timer;
+
+    /**
+     * Whether each Technique is used, indexed by ordinal.
+     */
+    private final boolean[] _enabled = new boolean[TECHNIQUES];
+
+    /**
+     * Uses and successes of each Technique in the current search,
+     * indexed by ordinal.
+     */
+    private final long[] _uses = new long[TECHNIQUES],
+        _successes = new long[TECHNIQUES];
+
+    /**
+     * Number of positions visited by the current search.
+     */
+    private long _nodes;
+
+    /**
+     * Numbers of transposition-table probes, hits, and cutoffs in the
+     * current search.
+     */
+    private long _ttProbes, _ttHits, _ttCutoffs;
+
+    /**
+     * Times, in nanoseconds, and numbers of positions visited, of the
+     * iterations of the current search, indexed by depth.
+     */
+    private final long[] _iterationNanos = new long[MAX_PLY],
+        _iterationNodes = new long[MAX_PLY];
+
+    /**
+     * Depth of the deepest iteration of the current search that has
+     * finished.
+     */
+    private int _finishedDepth;
+
+    /**
+     * Value found by the deepest finished iteration.
+     */
+    private int _score;
+
+    /**
+     * True iff stop() has been called since the last resume().
+     */
+    private volatile boolean _stopped;
+
+    /**
+     * True iff the current iteration was cut short by stop(), so that
+     * its results are meaningless.
+     */
+    private boolean _aborted;
+}
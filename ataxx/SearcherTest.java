@@ -0,0 +1,381 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the Searcher class.
+ *  @author Ahmad Badary
+ */
+public class SearcherTest {
+
+    @Test public void testSearch() {
+        Board b = new Board();
+        Board b0 = new Board(b);
+        Searcher s = new Searcher(new TranspositionTable(1));
+        Move mv = s.search(b, 1, 4);
+        assertNotNull("no move found", mv);
+        assertTrue("illegal move " + mv, b.islegalMove(mv));
+        assertEquals("board changed by search", b0, b);
+        assertTrue("no nodes counted", s.nodes() > 0);
+    }
+
+    @Test public void testStop() {
+        Searcher s = new Searcher(new TranspositionTable(1));
+        s.stop();
+        assertNull("stopped search finished", s.search(new Board(), 1, 60));
+        s.resume();
+        assertNotNull("resumed search failed", s.search(new Board(), 1, 2));
+    }
+
+    @Test public void testThreads() {
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        AI ai = new AI(game, PieceColor.RED);
+        ai.setTable(new TranspositionTable(1));
+        ai.setThreads(3);
+        for (int k = 0; k < 4; k += 1) {
+            Move mv = ai.myMove();
+            assertTrue("illegal move " + mv, b.islegalMove(mv));
+            b.makeMove(mv);
+            b.makeMove(new AI(game, PieceColor.BLUE).myMove());
+        }
+    }
+
+    /** Check that AIs share their search threads, so that AIs that are
+     *  no longer used leave none behind. */
+    @Test public void testSharedThreads() {
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        for (int k = 0; k < 20; k += 1) {
+            AI ai = new AI(game, PieceColor.RED);
+            ai.setTable(new TranspositionTable(1));
+            ai.setThreads(3);
+            ai.setDepth(2);
+            ai.setPondering(true);
+            ai.myMove();
+        }
+        int threads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("ataxx-search")) {
+                threads += 1;
+            }
+        }
+        assertTrue("search threads left behind: " + threads, threads < 20);
+    }
+
+    @Test public void testPondering() {
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        AI red = new AI(game, PieceColor.RED);
+        red.setTable(new TranspositionTable(1));
+        red.setPondering(true);
+        AI blue = new AI(game, PieceColor.BLUE);
+        blue.setTable(new TranspositionTable(1));
+        for (int k = 0; k < 6; k += 1) {
+            Move mv = red.myMove();
+            assertTrue("illegal move " + mv, b.islegalMove(mv));
+            b.makeMove(mv);
+            b.makeMove(blue.myMove());
+        }
+        red.setPondering(false);
+    }
+
+    /** Check that a clocked AI plays the move found by pondering when
+     *  the opponent makes the expected reply, and that finish stops its
+     *  pondering. */
+    @Test public void testClockedPondering() throws InterruptedException {
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        TranspositionTable table = new TranspositionTable(1);
+        AI red = new AI(game, PieceColor.RED);
+        red.setTable(table);
+        red.setBook(null);
+        red.setTimeLimits(3000, 0);
+        red.setPondering(true);
+        b.makeMove(red.myMove());
+        SearchStats stats = red.lastStats();
+        int[] replies = new int[Board.MAX_MOVES];
+        int n = b.generateMoves(replies);
+        int reply = TranspositionTable.move(table.probe(b.zobrist()));
+        boolean expected = false;
+        for (int i = 0; i < n; i += 1) {
+            expected |= replies[i] == reply;
+        }
+        assertTrue("no expected reply", expected);
+        b.makeMove(reply);
+        Thread.sleep(1000);
+        Move mv = red.myMove();
+        assertTrue("illegal move " + mv, b.islegalMove(mv));
+        assertSame("searched after a ponder hit", stats, red.lastStats());
+        b.makeMove(mv);
+        red.finish();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            for (StackTraceElement frame : thread.getStackTrace()) {
+                assertNotEquals("still pondering", Searcher.class.getName(),
+                                frame.getClassName());
+            }
+        }
+    }
+
+    @Test public void testStats() {
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        AI ai = new AI(game, PieceColor.RED);
+        ai.setTable(new TranspositionTable(1));
+        ai.setDepth(4);
+        assertNull("stats before search", ai.lastStats());
+        Move mv = ai.myMove();
+        SearchStats stats = ai.lastStats();
+        assertNotNull("no stats", stats);
+        assertEquals("wrong depth", 4, stats.depth());
+        assertTrue("no nodes counted", stats.nodes() > 0);
+        assertTrue("no branching factor", stats.branchingFactor() > 0);
+        assertEquals("PV does not start with move", mv,
+                     stats.principalVariation().get(0));
+        Board pv = new Board(b);
+        for (Move m : stats.principalVariation()) {
+            assertTrue("illegal PV move " + m, pv.islegalMove(m));
+            pv.makeMove(m);
+        }
+        StringBuilder out = new StringBuilder();
+        stats.report(new Reporter() {
+                @Override
+                public void errMsg(String format, Object... args) {
+                    fail("error reported");
+                }
+
+                @Override
+                public void outcomeMsg(String format, Object... args) {
+                    fail("outcome reported");
+                }
+
+                @Override
+                public void moveMsg(String format, Object... args) {
+                    fail("move reported");
+                }
+
+                @Override
+                public void infoMsg(String format, Object... args) {
+                    out.append(String.format(format, args)).append('\n');
+                }
+            }, "Red: ");
+        assertTrue("no report", out.toString().startsWith("Red: depth 4"));
+        assertTrue("no PV reported", out.toString().contains(mv.toString()));
+    }
+
+    /** Return a Searcher with a fresh table that uses TECHNIQUES and no
+     *  others. */
+    private static Searcher searcher(Searcher.Technique... techniques) {
+        Searcher s = new Searcher(new TranspositionTable(1));
+        for (Searcher.Technique t : Searcher.Technique.values()) {
+            s.setEnabled(t, false);
+        }
+        for (Searcher.Technique t : techniques) {
+            s.setEnabled(t, true);
+        }
+        return s;
+    }
+
+    @Test public void testTechniques() {
+        Board b = new Board();
+        Searcher plain = searcher();
+        plain.search(b, 1, 5);
+        Searcher all = searcher(Searcher.Technique.values());
+        Move mv = all.search(b, 1, 5);
+        assertTrue("illegal move " + mv, b.islegalMove(mv));
+        assertTrue("no nodes saved", all.nodes() < plain.nodes());
+        for (Searcher.Technique t : Searcher.Technique.values()) {
+            assertEquals("disabled technique used", 0, plain.uses(t));
+            assertTrue("successes exceed uses",
+                       all.successes(t) <= all.uses(t));
+            Searcher one = searcher(t);
+            mv = one.search(b, 1, 5);
+            assertTrue("illegal move " + mv, b.islegalMove(mv));
+            if (t != Searcher.Technique.PROBCUT) {
+                assertTrue(t + " not used", one.uses(t) > 0);
+            }
+        }
+    }
+
+    @Test public void testExactTechniques() {
+        Board b = new Board();
+        makeMoves(b, "a7-b7", "g7-f6", "g1-e3", "a1-c3");
+        Searcher plain = searcher();
+        plain.search(b, 1, 4);
+        Searcher exact = searcher(Searcher.Technique.PVS,
+                                  Searcher.Technique.ASPIRATION);
+        exact.search(b, 1, 4);
+        assertEquals("PVS and aspiration changed the value",
+                     plain.score(), exact.score());
+    }
+
+    /** Check that PVS is tried on every root move after the first when
+     *  the root is searched with the full window, even when the value
+     *  of the first move is negative. */
+    @Test public void testFullWindowPVS() {
+        Board b = new Board(1L, ((1L << 21) - 1) << 28, 0L, PieceColor.RED);
+        int[] moves = new int[Board.MAX_MOVES];
+        Searcher s = searcher(Searcher.Technique.PVS);
+        s.search(b, 1, 1);
+        assertTrue("value not negative", s.score() < 0);
+        assertEquals("PVS not tried in full window",
+                     b.generateMoves(moves) - 1,
+                     s.uses(Searcher.Technique.PVS));
+    }
+
+    /** Check that the lines found by analyze are those of searching
+     *  each root move separately, best first, and that the best agrees
+     *  with an ordinary search. */
+    @Test public void testAnalyze() {
+        Board b = new Board();
+        makeMoves(b, "a7-b7", "g7-f6", "g1-e3", "a1-c3");
+        int depth = 3, lines = 4;
+        ArrayList<List<Searcher.Line>> found = new ArrayList<>();
+        searcher().analyze(b, lines, depth,
+                           (d, best) -> {
+                               assertEquals("wrong depth", found.size() + 1,
+                                            d);
+                               found.add(best);
+                           });
+        assertEquals("wrong number of iterations", depth, found.size());
+        List<Searcher.Line> best = found.get(depth - 1);
+        assertEquals("wrong number of lines", lines, best.size());
+        for (int k = 0; k < lines; k += 1) {
+            Searcher.Line line = best.get(k);
+            if (k > 0) {
+                assertTrue("lines out of order",
+                           best.get(k - 1).value() >= line.value());
+            }
+            Board after = new Board(b);
+            after.makeMove(line.moves().get(0));
+            int value = -searcher().findMove(after, depth - 1, false, 1,
+                                             -Searcher.INFTY,
+                                             Searcher.INFTY);
+            assertEquals("wrong value of " + line.moves().get(0), value,
+                         line.value());
+        }
+        Searcher s = searcher();
+        s.search(b, 1, depth);
+        assertEquals("wrong best value", s.score(), best.get(0).value());
+    }
+
+    /** Make the moves MOVES, of the form C0R0-C1R1, on B. */
+    private static void makeMoves(Board b, String... moves) {
+        for (String mv : moves) {
+            b.makeMove(mv.charAt(0), mv.charAt(1), mv.charAt(3),
+                       mv.charAt(4));
+        }
+    }
+
+    /** Check that alpha-beta search finds the same root values as
+     *  plain minimax, in random positions and in one where the player
+     *  on move must pass, and leaves the board as it was. */
+    @Test public void testMinimax() {
+        Evaluator eval = new Evaluator();
+        List<Board> positions = randomPositions(new Random(7), 6);
+        positions.add(passPosition(new Random(7)));
+        for (Board b : positions) {
+            Board b0 = new Board(b);
+            int expected = minimax(b, 3, 0, eval);
+            assertEquals("board changed by minimax", b0, b);
+            int value = searcher().findMove(b, 3, true, 1, -Searcher.INFTY,
+                                            Searcher.INFTY);
+            assertEquals("wrong root value", expected, value);
+            assertEquals("board changed by search", b0, b);
+        }
+    }
+
+    /** Check that move ordering changes how much is searched but not
+     *  the values found. */
+    @Test public void testOrdering() {
+        long orderedNodes = 0, unorderedNodes = 0;
+        for (Board b : randomPositions(new Random(9), 6)) {
+            Searcher ordered = searcher();
+            Searcher unordered = searcher();
+            unordered.setOrdering(false);
+            assertEquals("ordering changed the value",
+                         unordered.findMove(b, 4, true, 1, -Searcher.INFTY,
+                                            Searcher.INFTY),
+                         ordered.findMove(b, 4, true, 1, -Searcher.INFTY,
+                                          Searcher.INFTY));
+            orderedNodes += ordered.nodes();
+            unorderedNodes += unordered.nodes();
+        }
+        assertTrue("ordering saved no nodes", orderedNodes < unorderedNodes);
+    }
+
+    /** Return the value of B, PLY plies from the root, for the player
+     *  on move, by plain minimax (in negamax form) to depth DEPTH,
+     *  valuing the leaves with EVAL and finished games as Searcher
+     *  does. */
+    private static int minimax(Board b, int depth, int ply, Evaluator eval) {
+        if (b.gameOver()) {
+            PieceColor me = b.whoseMove();
+            int diff = b.numPieces(me) - b.numPieces(me.opposite());
+            return diff > 0 ? Searcher.WINNING_VALUE - ply
+                : diff < 0 ? -Searcher.WINNING_VALUE + ply : 0;
+        } else if (depth == 0) {
+            return eval.score(b);
+        }
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.generateMoves(moves);
+        if (n == 0) {
+            b.makeMove(Move.PACKED_PASS);
+            int value = -minimax(b, depth - 1, ply + 1, eval);
+            b.retract();
+            return value;
+        }
+        int best = -Searcher.INFTY;
+        for (int i = 0; i < n; i += 1) {
+            b.makeMove(moves[i]);
+            best = Math.max(best, -minimax(b, depth - 1, ply + 1, eval));
+            b.retract();
+        }
+        return best;
+    }
+
+    /** Return COUNT positions reached by between 4 and 15 random plies
+     *  from the initial position, possibly with blocks, chosen with
+     *  RAND, in which the player on move has a move other than a
+     *  pass. */
+    private static List<Board> randomPositions(Random rand, int count) {
+        ArrayList<Board> result = new ArrayList<>();
+        int[] moves = new int[Board.MAX_MOVES];
+        while (result.size() < count) {
+            Board b = new Board();
+            if (rand.nextBoolean()) {
+                b.setBlock("c3");
+            }
+            for (int k = 4 + rand.nextInt(12); k > 0 && !b.gameOver();
+                 k -= 1) {
+                int n = b.generateMoves(moves);
+                b.makeMove(n == 0 ? Move.PACKED_PASS
+                           : moves[rand.nextInt(n)]);
+            }
+            if (!b.gameOver() && b.canMove(b.whoseMove())) {
+                result.add(b);
+            }
+        }
+        return result;
+    }
+
+    /** Return a position reached by random play, chosen with RAND, in
+     *  which the player on move must pass. */
+    private static Board passPosition(Random rand) {
+        int[] moves = new int[Board.MAX_MOVES];
+        while (true) {
+            Board b = new Board();
+            while (!b.gameOver()) {
+                if (!b.canMove(b.whoseMove())) {
+                    return b;
+                }
+                int n = b.generateMoves(moves);
+                b.makeMove(moves[rand.nextInt(n)]);
+            }
+        }
+    }
+}
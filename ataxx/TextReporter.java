@@ -23,5 +23,11 @@ class TextReporter implements Reporter {
         System.out.println();
     }
 
+    @Override
+    public void infoMsg(String format, Object... args) {
+        System.out.printf(format, args);
+        System.out.println();
+    }
+
 }
 
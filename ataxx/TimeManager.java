@@ -0,0 +1,165 @@
+package ataxx;
+
+/** Decides how long an AI may think about each of its moves.  A game
+ *  may give a player a total time for all its moves (the game clock)
+ *  and a hard limit for any one move.  For each move, the manager sets
+ *  a soft budget: the time left on the clock shared among the moves
+ *  the player can still expect to make, which are fewer as the board
+ *  fills.  The search checks in after each iteration of its iterative
+ *  deepening, and the budget shrinks while the best move stays the
+ *  same and grows when it changes.  The search stops starting new
+ *  iterations once the budget is spent, or if the next iteration
+ *  could not finish before the hard deadline, which is well inside
+ *  both the per-move limit and the time left on the clock.  At the
+ *  hard deadline itself, the AI stops the search outright.
+ *  @author Ahmad Badary
+ */
+class TimeManager {
+
+    /** A manager for a player who has GAMEMILLIS milliseconds for all
+     *  its moves (none if 0) and MOVEMILLIS for any one move (no limit
+     *  if 0). */
+    TimeManager(long gameMillis, long moveMillis) {
+        _clocked = gameMillis > 0;
+        _remaining = gameMillis * MILLION;
+        _moveLimit = moveMillis > 0 ? moveMillis * MILLION : Long.MAX_VALUE;
+    }
+
+    /** Return true iff I limit the time of a move in any way. */
+    boolean limited() {
+        return _clocked || _moveLimit != Long.MAX_VALUE;
+    }
+
+    /** Return true iff the player has a game clock. */
+    boolean clocked() {
+        return _clocked;
+    }
+
+    /** Start timing a move from the position on BOARD, setting its
+     *  budget and hard deadline. */
+    void startMove(Board board) {
+        _start = System.nanoTime();
+        _lastIteration = _iterationBefore = _iterationsTotal = 0;
+        _lastBest = null;
+        _stableIterations = 0;
+        long hard = _moveLimit - Math.min(_moveLimit / 10, MAX_SAFETY);
+        if (_clocked) {
+            long share =
+                Math.max(0, _remaining - MAX_SAFETY) / movesLeft(board);
+            _soft = Math.min(share, hard);
+            hard = Math.min(hard, Math.min(HARD_FACTOR * share,
+                                           _remaining / HARD_SHARE));
+        } else {
+            _soft = hard;
+        }
+        _hard = Math.max(hard, MIN_MOVE);
+        _soft = Math.max(Math.min(_soft, _hard), MIN_MOVE);
+    }
+
+    /** Record that the move started by the last startMove is done, and
+     *  charge its time to the clock. */
+    void endMove() {
+        _remaining -= System.nanoTime() - _start;
+    }
+
+    /** Return the System.nanoTime value at which the current move must
+     *  be stopped, assuming limited(). */
+    long hardDeadline() {
+        return _start + _hard;
+    }
+
+    /** Return the number of milliseconds left on the clock (which may
+     *  be negative if it has run out), or 0 if there is no clock. */
+    long remainingMillis() {
+        return _remaining / MILLION;
+    }
+
+    /** Return the current budget of the current move, in milliseconds,
+     *  as adjusted for the stability of the search so far. */
+    long budgetMillis() {
+        return budget() / MILLION;
+    }
+
+    /** Record that the search has just finished an iteration, finding
+     *  BEST as the best move, and return true iff it should start
+     *  another. */
+    boolean nextIteration(Move best) {
+        long now = System.nanoTime(), elapsed = now - _start;
+        _iterationBefore = _lastIteration;
+        _lastIteration = elapsed - _iterationsTotal;
+        _iterationsTotal = elapsed;
+        if (best != null && best.equals(_lastBest)) {
+            _stableIterations += 1;
+        } else {
+            _stableIterations = 0;
+        }
+        _lastBest = best;
+        long growth = MAX_GROWTH;
+        if (_iterationBefore > 0) {
+            growth = Math.max(MIN_GROWTH,
+                              Math.min(MAX_GROWTH,
+                                       _lastIteration / _iterationBefore));
+        }
+        return elapsed < budget()
+            && elapsed + growth * _lastIteration < _hard;
+    }
+
+    /** Return the budget of the current move, in nanoseconds, adjusted
+     *  for the stability of the search so far. */
+    private long budget() {
+        long budget = _soft;
+        if (_lastBest != null && _stableIterations == 0) {
+            budget += budget / 2;
+        } else if (_stableIterations >= STABLE_ITERATIONS) {
+            budget -= budget * 2 / 5;
+        }
+        return Math.min(budget, _hard);
+    }
+
+    /** Return the number of moves the player on move on BOARD can
+     *  expect to make in the rest of the game.  An extend fills one
+     *  square and jumps fill none, so each player makes roughly one
+     *  move for every two empty squares, plus a reserve. */
+    private static int movesLeft(Board board) {
+        return board.numEmpties() / 2 + MOVES_RESERVE;
+    }
+
+    /** Nanoseconds per millisecond. */
+    private static final long MILLION = 1000000;
+    /** Moves assumed to remain beyond those estimated from the empty
+     *  squares. */
+    private static final int MOVES_RESERVE = 4;
+    /** A move's hard deadline is at most HARD_FACTOR times its share
+     *  of the clock... */
+    private static final int HARD_FACTOR = 4;
+    /** ...and at most 1/HARD_SHARE of the time left. */
+    private static final int HARD_SHARE = 4;
+    /** Most time held back from the limits to answer in time. */
+    private static final long MAX_SAFETY = 100 * MILLION;
+    /** Least time for any move. */
+    private static final long MIN_MOVE = 5 * MILLION;
+    /** Number of iterations without a change of best move after which
+     *  the budget shrinks. */
+    private static final int STABLE_ITERATIONS = 3;
+    /** Bounds on the assumed ratio of the time of an iteration to that
+     *  of the one before. */
+    private static final long MIN_GROWTH = 2, MAX_GROWTH = 8;
+
+    /** True iff there is a game clock. */
+    private final boolean _clocked;
+    /** Limit on any one move, in nanoseconds. */
+    private final long _moveLimit;
+    /** Time left on the clock, in nanoseconds. */
+    private long _remaining;
+    /** System.nanoTime() at the start of the current move. */
+    private long _start;
+    /** Budget and hard limit of the current move, in nanoseconds. */
+    private long _soft, _hard;
+    /** Times of the last two iterations, and the total time of all
+     *  iterations, of the current move, in nanoseconds. */
+    private long _lastIteration, _iterationBefore, _iterationsTotal;
+    /** Best move found by the last iteration. */
+    private Move _lastBest;
+    /** Number of iterations since the best move last changed. */
+    private int _stableIterations;
+}
@@ -0,0 +1,89 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the TimeManager class and of timed AIs.
+ *  @author Ahmad Badary
+ */
+public class TimeManagerTest {
+
+    @Test public void testBudget() {
+        TimeManager time = new TimeManager(60000, 2000);
+        assertTrue("not limited", time.limited());
+        Board b = new Board();
+        time.startMove(b);
+        long budget = time.budgetMillis();
+        assertTrue("budget too large: " + budget,
+                   budget <= 60000 / (b.numEmpties() / 2));
+        assertTrue("budget too small: " + budget, budget > 100);
+        long hard = (time.hardDeadline() - System.nanoTime()) / 1000000;
+        assertTrue("hard limit beyond move limit", hard < 2000);
+        assertTrue("hard limit within budget", hard + 50 >= budget);
+        time.endMove();
+        assertTrue("clock not charged", time.remainingMillis() <= 60000);
+
+        TimeManager moveOnly = new TimeManager(0, 1000);
+        assertFalse("clocked without clock", moveOnly.clocked());
+        assertFalse("unlimited limited", new TimeManager(0, 0).limited());
+    }
+
+    @Test public void testLateBudget() {
+        TimeManager time = new TimeManager(60000, 0);
+        Board b = new Board();
+        time.startMove(b);
+        long early = time.budgetMillis();
+        for (char c = 'b'; c <= 'f'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                if (b.legalBlock(c, r)) {
+                    b.setBlock(c, r);
+                }
+            }
+        }
+        time.startMove(b);
+        assertTrue("budget did not grow as the board filled",
+                   time.budgetMillis() > early);
+    }
+
+    @Test public void testDeadline() {
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        AI red = new AI(game, PieceColor.RED);
+        red.setTable(new TranspositionTable(1));
+        red.setDepth(Searcher.MAX_PLY - 1);
+        red.setTimeLimits(0, 300);
+        AI blue = new AI(game, PieceColor.BLUE);
+        blue.setTable(new TranspositionTable(1));
+        blue.setTimeLimits(3000, 1000);
+        for (int k = 0; k < 3; k += 1) {
+            long start = System.nanoTime();
+            Move mv = red.myMove();
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            assertTrue("move took " + elapsed + "ms", elapsed < 400);
+            assertTrue("illegal move " + mv, b.islegalMove(mv));
+            b.makeMove(mv);
+            start = System.nanoTime();
+            mv = blue.myMove();
+            elapsed = (System.nanoTime() - start) / 1000000;
+            assertTrue("move took " + elapsed + "ms", elapsed < 1000);
+            assertTrue("illegal move " + mv, b.islegalMove(mv));
+            b.makeMove(mv);
+        }
+    }
+
+    /** Check that an AI with only a limit on each move searches as deep
+     *  as that allows, rather than to its fixed depth, unless setDepth
+     *  limits it. */
+    @Test public void testMoveLimitDepth() {
+        Board b = new Board();
+        Game game = new Game(b, null, new TextReporter());
+        AI ai = new AI(game, PieceColor.RED);
+        ai.setTable(new TranspositionTable(1));
+        ai.setTimeLimits(0, 1000);
+        ai.myMove();
+        assertTrue("stopped at the fixed depth", ai.lastStats().depth() > 4);
+        ai.setDepth(3);
+        ai.myMove();
+        assertEquals("depth not limited", 3, ai.lastStats().depth());
+    }
+}
@@ -0,0 +1,508 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Plays matches between two AI configurations without a user
+ *  interface, to measure the difference in their strengths.  Games
+ *  are played in pairs from the same opening, a few random plies from
+ *  the initial position, with each engine playing red once, and many
+ *  games are played at once on a thread pool.  Results are given as
+ *  wins, draws, and losses of the first engine, an estimate of the
+ *  difference in Elo rating with its 95% confidence interval, and the
+ *  log-likelihood ratio of a sequential probability ratio test
+ *  (SPRT), which stops the match as soon as it is confident that the
+ *  difference is at most one bound or at least another.
+ *  @author Ahmad Badary
+ */
+public class Tournament {
+
+    /** Run a match.  ARGS are options: '--first=SPEC' and
+     *  '--second=SPEC' (the engines; see Engine for SPEC),
+     *  '--games=N' (most games to play; default 1000), '--seed=N'
+     *  (seed for the openings), '--plies=N' (random plies of each
+     *  opening; default 4), '--concurrency=N' (games played at once;
+     *  by default, one per processor), '--report=N' (report progress
+     *  every N games; default 100, or never if 0), '--elo0=N' and
+     *  '--elo1=N' (the Elo differences of the SPRT's two hypotheses;
+     *  default 0 and 5, and no SPRT if equal), and '--alpha=P' and
+     *  '--beta=P' (its error probabilities; default 0.05). */
+    public static void main(String[] args) {
+        Engine first = new Engine(""), second = new Engine("");
+        int games = DEFAULT_GAMES, plies = DEFAULT_PLIES;
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        int report = DEFAULT_REPORT;
+        long seed = 0;
+        double elo0 = 0, elo1 = DEFAULT_ELO1;
+        double alpha = DEFAULT_ERROR, beta = DEFAULT_ERROR;
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--first=")) {
+                    first = new Engine(value);
+                } else if (arg.startsWith("--second=")) {
+                    second = new Engine(value);
+                } else if (arg.startsWith("--games=")) {
+                    games = OPTIONS.intOption(arg);
+                } else if (arg.startsWith("--seed=")) {
+                    seed = OPTIONS.intOption(arg);
+                } else if (arg.startsWith("--plies=")) {
+                    plies = OPTIONS.intOption(arg);
+                } else if (arg.startsWith("--concurrency=")) {
+                    concurrency = Math.max(1, OPTIONS.intOption(arg));
+                } else if (arg.startsWith("--report=")) {
+                    report = OPTIONS.intOption(arg);
+                } else if (arg.startsWith("--elo0=")) {
+                    elo0 = Double.parseDouble(value);
+                } else if (arg.startsWith("--elo1=")) {
+                    elo1 = Double.parseDouble(value);
+                } else if (arg.startsWith("--alpha=")) {
+                    alpha = Double.parseDouble(value);
+                } else if (arg.startsWith("--beta=")) {
+                    beta = Double.parseDouble(value);
+                } else {
+                    OPTIONS.usage();
+                }
+            }
+        } catch (IllegalArgumentException excp) {
+            System.err.printf("Bad option: %s%n", excp.getMessage());
+            OPTIONS.usage();
+        }
+        Tournament match = new Tournament(first, second, seed, plies);
+        Sprt sprt = elo0 == elo1 ? null : new Sprt(elo0, elo1, alpha, beta);
+        long start = System.nanoTime();
+        Results results = match.run(games, concurrency, sprt, report);
+        System.out.printf("%s vs %s: %s%n", first, second, results);
+        if (sprt != null) {
+            System.out.printf("SPRT: %s%n", sprt.describe(results));
+        }
+        System.out.printf("%d games in %.1f s%n", results.games(),
+                          (System.nanoTime() - start) / 1e9);
+    }
+
+    /** A match between FIRST and SECOND, whose openings are PLIES
+     *  random plies chosen using SEED. */
+    Tournament(Engine first, Engine second, long seed, int plies) {
+        _first = first;
+        _second = second;
+        _seed = seed;
+        _plies = plies;
+    }
+
+    /** Play GAMES games (fewer if SPRT, if not null, reaches a decision
+     *  first), CONCURRENCY at a time, and return the results.  Report
+     *  progress on the standard output every REPORT games, unless REPORT
+     *  is 0. */
+    Results run(int games, int concurrency, Sprt sprt, int report) {
+        ExecutorService pool =
+            Executors.newFixedThreadPool(concurrency, Tournament::daemon);
+        CompletionService<Integer> done =
+            new ExecutorCompletionService<>(pool);
+        _stopped = false;
+        for (int k = 0; k < games; k += 1) {
+            int game = k;
+            done.submit(() -> play(game));
+        }
+        Results results = new Results();
+        try {
+            for (int k = 0; k < games; k += 1) {
+                results.add(done.take().get());
+                if (report > 0 && results.games() % report == 0) {
+                    System.out.printf("%s%s%n", results,
+                                      sprt == null ? ""
+                                      : "; LLR " + sprt.describe(results));
+                }
+                if (sprt != null && sprt.decision(results) != 0) {
+                    break;
+                }
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new Error("tournament game failed", excp);
+        } finally {
+            _stopped = true;
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    /** Play game number GAME of the match, and return its result for
+     *  the first engine: 1 for a win, 0 for a draw, and -1 for a loss.
+     *  Games 2k and 2k+1 start from the same opening, with the first
+     *  engine playing red in game 2k and blue in game 2k+1.  A game
+     *  still going after MAX_PLIES plies is decided by the piece
+     *  count. */
+    int play(int game) {
+        Board board = opening(game / 2);
+        Game host = new Game(board, null, new TextReporter());
+        boolean firstIsRed = game % 2 == 0;
+        Player red = (firstIsRed ? _first : _second)
+            .player(host, PieceColor.RED);
+        Player blue = (firstIsRed ? _second : _first)
+            .player(host, PieceColor.BLUE);
+        for (int ply = 0; ply < MAX_PLIES && !board.gameOver() && !_stopped;
+             ply += 1) {
+            Player player = board.whoseMove() == PieceColor.RED ? red : blue;
+            board.makeMove(player.myMove());
+        }
+        int diff = board.numPieces(PieceColor.RED)
+            - board.numPieces(PieceColor.BLUE);
+        return Integer.signum(firstIsRed ? diff : -diff);
+    }
+
+    /** Return the opening of the games of pair PAIR: the initial
+     *  position followed by _plies random legal plies (fewer if the game
+     *  ends), chosen by a generator seeded from _seed and PAIR alone, so
+     *  that the openings do not depend on the order of play. */
+    Board opening(int pair) {
+        SplittableRandom random =
+            new SplittableRandom(_seed * PAIR_STRIDE + pair);
+        Board board = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int ply = 0; ply < _plies && !board.gameOver(); ply += 1) {
+            int n = board.generateMoves(moves);
+            board.makeMove(n == 0 ? Move.PACKED_PASS
+                           : moves[random.nextInt(n)]);
+        }
+        return board;
+    }
+
+    /** Return a daemon thread for the game pool, to run R. */
+    private static Thread daemon(Runnable r) {
+        Thread thread = new Thread(r, "ataxx-tournament");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /** A configuration of AI players, described by a comma-separated
+     *  list of settings: 'depth=N' (search depth), 'time=MS' and
+     *  'move-time=MS' (milliseconds for all moves of a game and for
+     *  each move; none by default), 'hash=MB' (transposition-table
+     *  size; default 4), 'endgame=N' (see AI.setEndgameThreshold),
+     *  'nnue=FILE' (evaluate with the network in FILE), 'weights=FILE'
+     *  (evaluate with the Evaluator weights in FILE), and
+     *  'no-TECHNIQUE' (do not use that Searcher.Technique, as in
+     *  'no-lmr').  Each AI gets its own table, plays with one thread,
+     *  and neither ponders nor uses a book. */
+    static final class Engine {
+
+        /** The configuration described by SPEC.  Throws
+         *  IllegalArgumentException if SPEC is malformed. */
+        Engine(String spec) {
+            _spec = spec;
+            for (String item : spec.split(",")) {
+                if (item.isEmpty()) {
+                    continue;
+                }
+                int eq = item.indexOf('=');
+                String key = eq < 0 ? item : item.substring(0, eq);
+                String value = eq < 0 ? "" : item.substring(eq + 1);
+                switch (key) {
+                case "depth":
+                    _depth = number(item, value);
+                    break;
+                case "time":
+                    _gameMillis = number(item, value);
+                    break;
+                case "move-time":
+                    _moveMillis = number(item, value);
+                    break;
+                case "hash":
+                    _megabytes = number(item, value);
+                    break;
+                case "endgame":
+                    _endgame = number(item, value);
+                    break;
+                case "nnue":
+                    try {
+                        _evaluator = NeuralEvaluator.load(Paths.get(value));
+                    } catch (IOException excp) {
+                        throw new IllegalArgumentException(
+                            "cannot read network: " + excp.getMessage());
+                    }
+                    break;
+                case "weights":
+                    try {
+                        _evaluator = Evaluator.load(Paths.get(value));
+                    } catch (IOException excp) {
+                        throw new IllegalArgumentException(
+                            "cannot read weights: " + excp.getMessage());
+                    }
+                    break;
+                default:
+                    if (!key.startsWith("no-") || eq >= 0) {
+                        throw new IllegalArgumentException(item);
+                    }
+                    _disabled.add(Searcher.Technique.valueOf(
+                                      key.substring(3).toUpperCase()));
+                    break;
+                }
+            }
+        }
+
+        /** Return the non-negative integer VALUE of the setting ITEM,
+         *  throwing IllegalArgumentException if it is not one. */
+        private static int number(String item, String value) {
+            try {
+                int result = Integer.parseInt(value);
+                if (result >= 0) {
+                    return result;
+                }
+            } catch (NumberFormatException excp) {
+                /* Fall through. */
+            }
+            throw new IllegalArgumentException(item);
+        }
+
+        /** Return a new AI so configured, playing COLOR in GAME. */
+        AI player(Game game, PieceColor color) {
+            AI ai = new AI(game, color);
+            ai.setTable(new TranspositionTable(_megabytes));
+            ai.setThreads(1);
+            ai.setPondering(false);
+            ai.setBook(null);
+            ai.setEndgameThreshold(_endgame);
+            ai.setTimeLimits(_gameMillis, _moveMillis);
+            if (_depth > 0) {
+                ai.setDepth(_depth);
+            }
+            if (_evaluator != null) {
+                ai.setEvaluator(_evaluator);
+            }
+            for (Searcher.Technique technique : _disabled) {
+                ai.setEnabled(technique, false);
+            }
+            return ai;
+        }
+
+        @Override
+        public String toString() {
+            return _spec.isEmpty() ? "default" : _spec;
+        }
+
+        /** My description. */
+        private final String _spec;
+        /** Search depth, or 0 for the AI's default. */
+        private int _depth;
+        /** Time limits on a game and on a move, in milliseconds (none
+         *  if 0). */
+        private int _gameMillis, _moveMillis;
+        /** Size of each AI's transposition table, in megabytes. */
+        private int _megabytes = DEFAULT_MEGABYTES;
+        /** Endgame threshold. */
+        private int _endgame = EndgameSolver.DEFAULT_THRESHOLD;
+        /** Evaluator, or null for the AI's default. */
+        private Evaluator _evaluator;
+        /** Techniques not used. */
+        private final EnumSet<Searcher.Technique> _disabled =
+            EnumSet.noneOf(Searcher.Technique.class);
+    }
+
+    /** The wins, draws, and losses of the first engine in a match, and
+     *  the statistics derived from them. */
+    static final class Results {
+
+        /** Record a game whose result for the first engine is RESULT: 1
+         *  for a win, 0 for a draw, and -1 for a loss. */
+        void add(int result) {
+            if (result > 0) {
+                _wins += 1;
+            } else if (result < 0) {
+                _losses += 1;
+            } else {
+                _draws += 1;
+            }
+        }
+
+        /** Return the number of games recorded. */
+        int games() {
+            return _wins + _draws + _losses;
+        }
+
+        /** Return the number of wins. */
+        int wins() {
+            return _wins;
+        }
+
+        /** Return the number of draws. */
+        int draws() {
+            return _draws;
+        }
+
+        /** Return the number of losses. */
+        int losses() {
+            return _losses;
+        }
+
+        /** Return the mean score per game: 1 for a win, 1/2 for a draw,
+         *  and 0 for a loss. */
+        double score() {
+            return games() == 0 ? 0.5 : (_wins + 0.5 * _draws) / games();
+        }
+
+        /** Return the variance of the score of one game. */
+        double variance() {
+            double s = score();
+            if (games() == 0) {
+                return 0;
+            }
+            return (_wins * (1 - s) * (1 - s)
+                    + _draws * (0.5 - s) * (0.5 - s)
+                    + _losses * s * s) / games();
+        }
+
+        /** Return the estimated difference in Elo rating of the first
+         *  engine over the second. */
+        double elo() {
+            return elo(score());
+        }
+
+        /** Return half the width of the 95% confidence interval of
+         *  elo(). */
+        double eloError() {
+            if (games() == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double delta = Z95 * Math.sqrt(variance() / games());
+            return (elo(score() + delta) - elo(score() - delta)) / 2;
+        }
+
+        /** Return the Elo difference at which the expected score per game
+         *  is SCORE. */
+        static double elo(double score) {
+            if (score <= 0) {
+                return Double.NEGATIVE_INFINITY;
+            } else if (score >= 1) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return -ELO_SCALE * Math.log10(1 / score - 1);
+        }
+
+        /** Return the expected score per game at an Elo difference of
+         *  ELO. */
+        static double expectedScore(double elo) {
+            return 1 / (1 + Math.pow(10, -elo / ELO_SCALE));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games, W/D/L %d/%d/%d, Elo %.1f +- %.1f",
+                                 games(), _wins, _draws, _losses, elo(),
+                                 eloError());
+        }
+
+        /** Numbers of wins, draws, and losses. */
+        private int _wins, _draws, _losses;
+    }
+
+    /** A sequential probability ratio test of whether the first engine
+     *  is ahead of the second by at most one Elo difference (the null
+     *  hypothesis) or by at least another.  The log-likelihood ratio of
+     *  the results uses a normal approximation to the distribution of
+     *  the mean score (the "generalized" SPRT). */
+    static final class Sprt {
+
+        /** A test of the hypotheses that the Elo difference is ELO0 and
+         *  that it is ELO1, with probabilities ALPHA of wrongly
+         *  accepting the second and BETA of wrongly accepting the
+         *  first. */
+        Sprt(double elo0, double elo1, double alpha, double beta) {
+            _score0 = Results.expectedScore(elo0);
+            _score1 = Results.expectedScore(elo1);
+            _lower = Math.log(beta / (1 - alpha));
+            _upper = Math.log((1 - beta) / alpha);
+        }
+
+        /** Return the log-likelihood ratio of the second hypothesis to
+         *  the first, given RESULTS. */
+        double llr(Results results) {
+            double variance = results.variance();
+            if (variance == 0) {
+                return 0;
+            }
+            return results.games() * (_score1 - _score0)
+                * (2 * results.score() - _score0 - _score1)
+                / (2 * variance);
+        }
+
+        /** Return 1 if RESULTS accept the second hypothesis, -1 if they
+         *  accept the first, and 0 if the test should go on. */
+        int decision(Results results) {
+            double llr = llr(results);
+            return llr >= _upper ? 1 : llr <= _lower ? -1 : 0;
+        }
+
+        /** Return a description of the state of the test, given
+         *  RESULTS. */
+        String describe(Results results) {
+            String verdict;
+            switch (decision(results)) {
+            case 1:
+                verdict = "H1 accepted";
+                break;
+            case -1:
+                verdict = "H0 accepted";
+                break;
+            default:
+                verdict = "undecided";
+                break;
+            }
+            return String.format("%.2f (%.2f, %.2f), %s", llr(results),
+                                 _lower, _upper, verdict);
+        }
+
+        /** Expected scores per game under the two hypotheses. */
+        private final double _score0, _score1;
+        /** Bounds on the log-likelihood ratio at which the test accepts
+         *  the first and the second hypothesis. */
+        private final double _lower, _upper;
+    }
+
+    /** Parses my options, giving my usage message if they are bad. */
+    private static final Options OPTIONS =
+        new Options("Usage: java ataxx.Tournament [--first=SPEC]"
+                    + " [--second=SPEC] [--games=N] [--seed=N]"
+                    + " [--plies=N] [--concurrency=N] [--report=N]"
+                    + " [--elo0=N] [--elo1=N] [--alpha=P]"
+                    + " [--beta=P]\n"
+                    + "SPEC: comma-separated depth=N, time=MS,"
+                    + " move-time=MS, hash=MB, endgame=N,"
+                    + " nnue=FILE, weights=FILE, no-TECHNIQUE");
+
+    /** Default number of games. */
+    static final int DEFAULT_GAMES = 1000;
+    /** Default number of random plies in each opening. */
+    static final int DEFAULT_PLIES = 4;
+    /** Default number of games between progress reports. */
+    static final int DEFAULT_REPORT = 100;
+    /** Default Elo difference of the SPRT's second hypothesis. */
+    static final double DEFAULT_ELO1 = 5;
+    /** Default error probabilities of the SPRT. */
+    static final double DEFAULT_ERROR = 0.05;
+    /** Default size of each AI's transposition table, in megabytes. */
+    static final int DEFAULT_MEGABYTES = 4;
+    /** Longest game, in plies, before it is decided by piece count. */
+    static final int MAX_PLIES = 400;
+    /** Elo difference at which the expected score is 10/11. */
+    private static final double ELO_SCALE = 400;
+    /** Standard normal quantile of a two-sided 95% interval. */
+    private static final double Z95 = 1.959964;
+    /** Separates the opening seeds of matches with different seeds. */
+    private static final long PAIR_STRIDE = 1L << 32;
+
+    /** The engines. */
+    private final Engine _first, _second;
+    /** Seed of the openings. */
+    private final long _seed;
+    /** Random plies of each opening. */
+    private final int _plies;
+    /** True once the current run no longer needs the games still
+     *  being played. */
+    private volatile boolean _stopped;
+}
@@ -0,0 +1,81 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the Tournament class.
+ *  @author Ahmad Badary
+ */
+public class TournamentTest {
+
+    @Test public void testResults() {
+        Tournament.Results results = new Tournament.Results();
+        for (int k = 0; k < 60; k += 1) {
+            results.add(1);
+        }
+        for (int k = 0; k < 30; k += 1) {
+            results.add(0);
+        }
+        for (int k = 0; k < 10; k += 1) {
+            results.add(-1);
+        }
+        assertEquals(100, results.games());
+        assertEquals(60, results.wins());
+        assertEquals(30, results.draws());
+        assertEquals(10, results.losses());
+        assertEquals(0.75, results.score(), 1e-9);
+        assertEquals(190.85, results.elo(), 0.01);
+        assertEquals(62.05, results.eloError(), 0.01);
+        assertEquals(0, Tournament.Results.elo(0.5), 1e-9);
+        assertEquals(0.5, Tournament.Results.expectedScore(0), 1e-9);
+    }
+
+    @Test public void testSprt() {
+        Tournament.Sprt sprt = new Tournament.Sprt(0, 10, 0.05, 0.05);
+        Tournament.Results results = new Tournament.Results();
+        assertEquals("decided without games", 0, sprt.decision(results));
+        for (int k = 0; k < 200; k += 1) {
+            results.add(k % 4 == 0 ? -1 : 1);
+        }
+        assertEquals("strong engine not accepted", 1,
+                     sprt.decision(results));
+        Tournament.Results even = new Tournament.Results();
+        for (int k = 0; k < 10000; k += 1) {
+            even.add(k % 2 == 0 ? -1 : 1);
+        }
+        assertEquals("even engines not rejected", -1, sprt.decision(even));
+    }
+
+    @Test public void testOpenings() {
+        Tournament.Engine engine = new Tournament.Engine("depth=1");
+        Tournament match = new Tournament(engine, engine, 7, 4);
+        assertEquals("openings not reproducible", match.opening(3),
+                     new Tournament(engine, engine, 7, 4).opening(3));
+        assertEquals("wrong opening length", 4,
+                     match.opening(3).numMoves());
+        assertNotEquals("openings all alike", match.opening(0),
+                        match.opening(1));
+    }
+
+    @Test public void testMatch() {
+        Tournament.Engine weak = new Tournament.Engine("depth=1,no-lmr");
+        Tournament.Engine strong = new Tournament.Engine("depth=2,hash=1");
+        Tournament match = new Tournament(strong, weak, 1, 2);
+        Tournament.Results results = match.run(4, 2, null, 0);
+        assertEquals("wrong number of games", 4, results.games());
+        assertEquals("play not reproducible", match.play(1),
+                     match.play(1));
+        try {
+            new Tournament.Engine("depth=x");
+            fail("bad depth accepted");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+        try {
+            new Tournament.Engine("no-such");
+            fail("bad technique accepted");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/** Files ("shards") of positions from self-play games, for tuning
+ *  evaluations and training networks.  A shard is an 8-byte header
+ *  (MAGIC) followed by fixed-width records, one per position, so that
+ *  a shard can be read as an array by other tools.  A record holds, in
+ *  order: the red pieces, the blue pieces, and the blocks, each as a
+ *  bitboard (a long whose bit BitBoard.bit(SQ) is set iff square SQ
+ *  holds one); the value the search found for the player on move, in
+ *  the units of Evaluator.score, limited to +-SCORE_LIMIT (a 16-bit
+ *  short); the player on move (0 for red, 1 for blue); what that player
+ *  scored in the game, in half points (2 for a win, 1 for a draw, 0 for
+ *  a loss); the ply of the position in its game (a short); the depth
+ *  of the search; and a byte of padding.  Shards are written by
+ *  Writer, and made by DataGenerator.
+ *  @author Ahmad Badary
+ */
+class TrainingData {
+
+    /** The first eight bytes of a shard. */
+    static final long MAGIC = 0x4154415858544431L;
+
+    /** Size of the header, in bytes. */
+    static final int HEADER_BYTES = Long.BYTES;
+
+    /** Size of a record, in bytes: three bitboards (24), score (2),
+     *  player (1), result (1), ply (2), depth (1), and padding (1). */
+    static final int RECORD_BYTES = 32;
+
+    /** Byte order of a shard. */
+    static final ByteOrder ORDER = ByteOrder.BIG_ENDIAN;
+
+    /** Largest magnitude of a recorded score; wins and losses are
+     *  recorded as +-SCORE_LIMIT. */
+    static final int SCORE_LIMIT = Short.MAX_VALUE;
+
+    /** Receives the records of a shard. */
+    interface Visitor {
+        /** Accept the record of a position with RED, BLUE, and BLOCKS
+         *  as its bitboards and SIDE on move, whose value for SIDE is
+         *  SCORE, and in which SIDE scored RESULT half points in the
+         *  game. */
+        void visit(long red, long blue, long blocks, PieceColor side,
+                   int score, int result);
+    }
+
+    /** Return true iff FILE starts like a shard. */
+    static boolean isShard(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.order(ORDER);
+            while (header.hasRemaining() && in.read(header) >= 0) {
+                continue;
+            }
+            return !header.hasRemaining() && header.getLong(0) == MAGIC;
+        }
+    }
+
+    /** Pass each record of the shard FILE, in order, to VISITOR.  Throws
+     *  IOException if FILE cannot be read or is not a shard. */
+    static void read(Path file, Visitor visitor) throws IOException {
+        try (FileChannel in = FileChannel.open(file, READ)) {
+            long size = in.size();
+            if (size < HEADER_BYTES
+                || (size - HEADER_BYTES) % RECORD_BYTES != 0) {
+                throw new IOException(file + " is not a shard");
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.order(ORDER);
+            buffer.limit(HEADER_BYTES);
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                continue;
+            }
+            if (buffer.hasRemaining() || buffer.getLong(0) != MAGIC) {
+                throw new IOException(file + " is not a shard");
+            }
+            buffer.clear();
+            while (in.read(buffer) > 0 || buffer.position() > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_BYTES) {
+                    long red = buffer.getLong(), blue = buffer.getLong();
+                    long blocks = buffer.getLong();
+                    int score = buffer.getShort();
+                    PieceColor side = buffer.get() == 0 ? PieceColor.RED
+                        : PieceColor.BLUE;
+                    int result = buffer.get();
+                    buffer.position(buffer.position() + RECORD_BYTES
+                                    - 3 * Long.BYTES - Short.BYTES - 2);
+                    visitor.visit(red, blue, blocks, side, score, result);
+                }
+                buffer.compact();
+                if (buffer.position() > 0 && in.position() == size) {
+                    throw new IOException(file + " is truncated");
+                }
+            }
+        }
+    }
+
+    /** Return the bitboard of the squares on BOARD that hold
+     *  CONTENTS. */
+    static long bits(Board board, PieceColor contents) {
+        long result = 0;
+        for (int sq : Board.PLAYABLE) {
+            if (board.get(sq) == contents) {
+                result |= 1L << BitBoard.bit(sq);
+            }
+        }
+        return result;
+    }
+
+    /** Writes records to a numbered series of shards, starting a new
+     *  shard when the current one holds a given number of records.
+     *  Records are collected in a direct buffer and written to the
+     *  shard's FileChannel when it fills.  Not safe for use by several
+     *  threads at once. */
+    static final class Writer implements Closeable {
+
+        /** A writer of shards named PREFIX-00000.bin, PREFIX-00001.bin,
+         *  and so on, each holding at most PERSHARD records. */
+        Writer(String prefix, long perShard) {
+            _prefix = prefix;
+            _perShard = Math.max(1, perShard);
+            _buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            _buffer.order(ORDER);
+        }
+
+        /** Append the record of a position with RED, BLUE, and BLOCKS as
+         *  its bitboards and SIDE on move, PLY plies into its game,
+         *  whose value for SIDE found by a search to depth DEPTH is
+         *  SCORE, and in which SIDE scored RESULT half points. */
+        void append(long red, long blue, long blocks, PieceColor side,
+                    int ply, int depth, int score, int result)
+            throws IOException {
+            if (_channel == null || _inShard == _perShard) {
+                startShard();
+            }
+            if (_buffer.remaining() < RECORD_BYTES) {
+                flush();
+            }
+            _buffer.putLong(red).putLong(blue).putLong(blocks)
+                .putShort((short) Math.max(-SCORE_LIMIT,
+                                           Math.min(score, SCORE_LIMIT)))
+                .put((byte) (side == PieceColor.RED ? 0 : 1))
+                .put((byte) result)
+                .putShort((short) ply)
+                .put((byte) depth)
+                .put((byte) 0);
+            _inShard += 1;
+            _records += 1;
+        }
+
+        /** Return the number of records written. */
+        long records() {
+            return _records;
+        }
+
+        /** Return the number of shards started. */
+        int shards() {
+            return _shards;
+        }
+
+        /** Return the name of shard number K. */
+        Path shard(int k) {
+            return Paths.get(String.format("%s-%05d.bin", _prefix, k));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (_channel != null) {
+                flush();
+                _channel.close();
+                _channel = null;
+            }
+        }
+
+        /** Finish the current shard, if any, and start the next. */
+        private void startShard() throws IOException {
+            close();
+            _channel = FileChannel.open(shard(_shards), WRITE, CREATE,
+                                        TRUNCATE_EXISTING);
+            _shards += 1;
+            _inShard = 0;
+            _buffer.putLong(MAGIC);
+        }
+
+        /** Write out the contents of my buffer. */
+        private void flush() throws IOException {
+            _buffer.flip();
+            while (_buffer.hasRemaining()) {
+                _channel.write(_buffer);
+            }
+            _buffer.clear();
+        }
+
+        /** Start of the names of the shards. */
+        private final String _prefix;
+        /** Most records in a shard. */
+        private final long _perShard;
+        /** Records waiting to be written. */
+        private final ByteBuffer _buffer;
+        /** The current shard, or null if none. */
+        private FileChannel _channel;
+        /** Number of shards started. */
+        private int _shards;
+        /** Number of records in the current shard. */
+        private long _inShard;
+        /** Number of records written. */
+        private long _records;
+    }
+
+    /** Size of the buffers for reading and writing shards, in bytes (a
+     *  multiple of RECORD_BYTES). */
+    private static final int BUFFER_BYTES = 2048 * RECORD_BYTES;
+}
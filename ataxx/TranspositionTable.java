@@ -0,0 +1,146 @@
+package ataxx;
+
+import java.util.Arrays;
+
+/** A fixed-size table of search results, indexed by Zobrist key
+ *  (see Board.zobrist).
+ *
+ *  The table is an array of longs, whose size is a power of two.  Each
+ *  bucket holds two entries: one that is replaced only by results of
+ *  searches at least as deep (or left over from earlier searches), and
+ *  one that is always replaced, so that recent shallow results are not
+ *  lost either.  An entry is a pair of longs: the data (packed as
+ *  described below) and the key exclusive-or'ed with the data.  Several
+ *  threads may store and probe concurrently without locks; an entry
+ *  torn by simultaneous writes fails the key check and is treated as a
+ *  miss.
+ *
+ *  Probes return the data long, or 0 for a miss.  The static methods
+ *  score, move, depth and bound unpack it.
+ *  @author Ahmad Badary
+ */
+class TranspositionTable {
+
+    /** Bound type of an entry whose score is a lower bound. */
+    static final int LOWER = 1;
+    /** Bound type of an entry whose score is an upper bound. */
+    static final int UPPER = 2;
+    /** Bound type of an entry whose score is exact. */
+    static final int EXACT = LOWER | UPPER;
+
+    /** Default size of a table, in megabytes. */
+    static final int DEFAULT_MEGABYTES = 16;
+
+    /** A new, empty table of at most MEGABYTES megabytes (and at least
+     *  one bucket). */
+    TranspositionTable(int megabytes) {
+        long buckets = ((long) megabytes << 20) / BUCKET_BYTES;
+        buckets = Math.min(buckets, Integer.MAX_VALUE / BUCKET_LONGS);
+        buckets = Long.highestOneBit(Math.max(1, buckets));
+        _slots = new long[(int) buckets * BUCKET_LONGS];
+        _mask = (int) buckets - 1;
+    }
+
+    /** Return the size of this table in megabytes. */
+    int megabytes() {
+        return (int) (((long) _slots.length * Long.BYTES) >> 20);
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_slots, 0);
+        _generation = 0;
+    }
+
+    /** Indicate the start of a new search, so that entries stored by
+     *  previous ones become the first to be replaced. */
+    void newSearch() {
+        _generation = (_generation + 1) & GENERATION_MASK;
+    }
+
+    /** Return the data stored under KEY, or 0 if there is none. */
+    long probe(long key) {
+        int i = bucket(key);
+        for (int k = i; k < i + BUCKET_LONGS; k += 2) {
+            long data = _slots[k + 1];
+            if ((_slots[k] ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /** Record under KEY that a search to depth DEPTH found the score
+     *  SCORE, a bound of type BOUND (LOWER, UPPER or EXACT), with
+     *  best move MOVE (packed as by Move.packed). */
+    void store(long key, int depth, int bound, int score, int move) {
+        long data = (score & SCORE_MASK)
+            | ((long) (move & MOVE_MASK) << MOVE_SHIFT)
+            | ((long) Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT)
+            | ((long) bound << BOUND_SHIFT)
+            | ((long) _generation << GENERATION_SHIFT);
+        int i = bucket(key);
+        long old = _slots[i + 1];
+        if ((_slots[i] ^ old) == key || old == 0
+            || depth >= depth(old) || generation(old) != _generation) {
+            _slots[i] = key ^ data;
+            _slots[i + 1] = data;
+        } else {
+            _slots[i + 2] = key ^ data;
+            _slots[i + 3] = data;
+        }
+    }
+
+    /** Return the score recorded in DATA. */
+    static int score(long data) {
+        return (int) data;
+    }
+
+    /** Return the packed best move recorded in DATA. */
+    static int move(long data) {
+        return (int) (data >>> MOVE_SHIFT) & MOVE_MASK;
+    }
+
+    /** Return the search depth recorded in DATA. */
+    static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    /** Return the bound type recorded in DATA. */
+    static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & BOUND_MASK;
+    }
+
+    /** Return the search generation recorded in DATA. */
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    /** Return the index in _slots of the bucket for KEY. */
+    private int bucket(long key) {
+        return ((int) (key ^ (key >>> 32)) & _mask) * BUCKET_LONGS;
+    }
+
+    /** Number of longs in a bucket. */
+    private static final int BUCKET_LONGS = 4;
+    /** Number of bytes in a bucket. */
+    private static final int BUCKET_BYTES = BUCKET_LONGS * Long.BYTES;
+
+    /** Mask for the score in a data long. */
+    private static final long SCORE_MASK = 0xffffffffL;
+    /** Position and mask of the best move in a data long. */
+    private static final int MOVE_SHIFT = 32, MOVE_MASK = 0x7fff;
+    /** Position and mask of the depth in a data long. */
+    private static final int DEPTH_SHIFT = 47, DEPTH_MASK = 0x7f;
+    /** Position and mask of the bound type in a data long. */
+    private static final int BOUND_SHIFT = 54, BOUND_MASK = 0x3;
+    /** Position and mask of the search generation in a data long. */
+    private static final int GENERATION_SHIFT = 56, GENERATION_MASK = 0xff;
+
+    /** The buckets. */
+    private final long[] _slots;
+    /** Mask selecting a bucket number from a hash. */
+    private final int _mask;
+    /** Generation of the current search. */
+    private volatile int _generation;
+}
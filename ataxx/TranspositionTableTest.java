@@ -0,0 +1,44 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.TranspositionTable.*;
+
+/** Tests of the TranspositionTable class.
+ *  @author Ahmad Badary
+ */
+public class TranspositionTableTest {
+
+    @Test public void testStoreProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.move('a', '1', 'c', '3').packed();
+        assertEquals("empty table hit", 0, table.probe(12345L));
+        table.store(12345L, 5, LOWER, -1234, move);
+        long data = table.probe(12345L);
+        assertNotEquals("missed stored entry", 0, data);
+        assertEquals("bad score", -1234, score(data));
+        assertEquals("bad move", move, move(data));
+        assertEquals("bad depth", 5, depth(data));
+        assertEquals("bad bound", LOWER, bound(data));
+        assertEquals("false hit", 0, table.probe(54321L));
+        table.clear();
+        assertEquals("hit after clear", 0, table.probe(12345L));
+    }
+
+    @Test public void testReplacement() {
+        TranspositionTable table = new TranspositionTable(0);
+        long deep = 1L << 40, shallow = 2L << 40, newer = 3L << 40;
+        table.store(deep, 8, EXACT, 10, 0);
+        table.store(shallow, 2, EXACT, 20, 0);
+        assertNotEquals("deep entry replaced", 0, table.probe(deep));
+        assertNotEquals("shallow entry dropped", 0, table.probe(shallow));
+        table.store(newer, 1, UPPER, 30, 0);
+        assertNotEquals("deep entry replaced", 0, table.probe(deep));
+        assertEquals("always-replace entry kept", 0, table.probe(shallow));
+        table.newSearch();
+        table.store(shallow, 1, EXACT, 40, 0);
+        assertEquals("old deep entry kept", 0, table.probe(deep));
+        assertEquals("wrong entry", 40, score(table.probe(shallow)));
+    }
+}
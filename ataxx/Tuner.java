@@ -0,0 +1,354 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/** Fits the weights of an Evaluator to positions labelled with the
+ *  results of the games they came from ("Texel tuning").  The
+ *  evaluation of a position, divided by a scale, is taken as the log
+ *  odds that the player on move wins, and the weights are chosen to
+ *  minimize the logistic loss (cross-entropy) of those predictions
+ *  against the results, by gradient descent with Adam steps.  The
+ *  material weight stays PIECE_VALUE, since the search's margins are
+ *  measured in its units; the scale absorbs it, and is fitted to the
+ *  starting weights first.
+ *
+ *  The features of each position are computed once, when it is
+ *  loaded, and kept in flat primitive arrays, so that an evaluation
+ *  of the loss and its gradient is a pass over arrays, split among
+ *  threads by fork/join.
+ *  @author Ahmad Badary
+ */
+public class Tuner {
+
+    /** Tune weights.  ARGS are options, then files of positions, then
+     *  the file to write the weights to (which Main's '--weights'
+     *  option reads): '--iterations=N' (gradient steps; default 500),
+     *  '--threads=N' (default: one per processor), and
+     *  '--initial=FILE' (weights to start from; default the
+     *  Evaluator's).  See read for the form of the position files. */
+    public static void main(String[] args) {
+        int iterations = DEFAULT_ITERATIONS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Evaluator initial = new Evaluator();
+        int k;
+        for (k = 0; k < args.length && args[k].startsWith("--"); k += 1) {
+            String arg = args[k];
+            if (arg.startsWith("--iterations=")) {
+                iterations = OPTIONS.intOption(arg);
+            } else if (arg.startsWith("--threads=")) {
+                threads = Math.max(1, OPTIONS.intOption(arg));
+            } else if (arg.startsWith("--initial=")) {
+                try {
+                    initial = Evaluator.load(Paths.get(arg.substring(10)));
+                } catch (IOException excp) {
+                    System.err.printf("Cannot read weights: %s%n",
+                                      excp.getMessage());
+                    System.exit(1);
+                }
+            } else {
+                OPTIONS.usage();
+            }
+        }
+        if (args.length - k < 2) {
+            OPTIONS.usage();
+        }
+        Tuner tuner = new Tuner(new ForkJoinPool(threads));
+        try {
+            for (; k < args.length - 1; k += 1) {
+                tuner.read(Paths.get(args[k]));
+            }
+        } catch (IOException excp) {
+            System.err.printf("Cannot read positions: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+        }
+        double[] weights = toDoubles(initial.weights());
+        double scale = tuner.fitScale(weights);
+        System.out.printf("%d positions; scale %.1f, loss %.6f%n",
+                          tuner.size(), scale, tuner.loss(weights, scale));
+        weights = tuner.tune(weights, scale, iterations);
+        Evaluator tuned = new Evaluator(round(weights));
+        double loss = tuner.loss(toDoubles(tuned.weights()), scale);
+        System.out.printf("weights %s; loss %.6f%n", tuned, loss);
+        try {
+            tuned.write(Paths.get(args[args.length - 1]),
+                        String.format("tuned on %d positions, scale %.1f,"
+                                      + " loss %.6f", tuner.size(), scale,
+                                      loss));
+        } catch (IOException excp) {
+            System.err.printf("Could not write weights: %s%n",
+                              excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** A tuner with no positions, which computes on POOL. */
+    Tuner(ForkJoinPool pool) {
+        _pool = pool;
+    }
+
+    /** Return the number of positions loaded. */
+    int size() {
+        return _size;
+    }
+
+    /** Add the position on BOARD, from a game in which red scored
+     *  REDSCORE (1 for a win, 1/2 for a draw, 0 for a loss). */
+    void add(Board board, double redScore) {
+        if (_size == _results.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, 2 * _size);
+            _results = Arrays.copyOf(_results, capacity);
+            _features = Arrays.copyOf(_features, capacity * FEATURES);
+        }
+        PieceColor me = board.whoseMove(), opp = me.opposite();
+        for (int f = 0; f < FEATURES; f += 1) {
+            _features[_size * FEATURES + f] =
+                (short) (Evaluator.feature(board, f, me)
+                         - Evaluator.feature(board, f, opp));
+        }
+        double score = me == PieceColor.RED ? redScore : 1 - redScore;
+        _results[_size] = (byte) Math.round(2 * score);
+        _size += 1;
+    }
+
+    /** Add the positions in FILE, which is either a shard of
+     *  TrainingData, as made by DataGenerator, or a text file with one
+     *  position per line, of the form 'SQUARES SIDE SCORE'.  SQUARES
+     *  and SIDE, the player on move, are as for Board.parse, and SCORE
+     *  is what red scored in the game: 1, 1/2 (or 0.5), or 0.  Blank
+     *  lines and lines starting with '#' are ignored. */
+    void read(Path file) throws IOException {
+        if (TrainingData.isShard(file)) {
+            TrainingData.read(file, (red, blue, blocks, side, score, result)
+                              -> {
+                    double mine = result / 2.0;
+                    add(new Board(red, blue, blocks, side),
+                        side == PieceColor.RED ? mine : 1 - mine);
+                });
+            return;
+        }
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                Board board = null;
+                if (fields.length == 3 && fields[1].length() == 1) {
+                    try {
+                        board = Board.parse(fields[0], fields[1].charAt(0));
+                    } catch (GameException excp) {
+                        /* Reported below. */
+                    }
+                }
+                if (board == null) {
+                    throw new IOException(file + ": bad position: "
+                                          + line);
+                }
+                add(board, score(file, fields[2]));
+            }
+        }
+    }
+
+    /** Return the score SCORE, read from FILE, as a number. */
+    private static double score(Path file, String score)
+        throws IOException {
+        switch (score) {
+        case "1":
+            return 1;
+        case "0":
+            return 0;
+        case "1/2": case "0.5":
+            return 0.5;
+        default:
+            throw new IOException(file + ": bad score: " + score);
+        }
+    }
+
+    /** Return the mean logistic loss, over my positions, of the
+     *  predictions of WEIGHTS, with evaluations divided by SCALE. */
+    double loss(double[] weights, double scale) {
+        return _pool.invoke(new Batch(weights, scale, 0, _size))[FEATURES]
+            / Math.max(1, _size);
+    }
+
+    /** Return the scale that minimizes the loss of WEIGHTS, found by
+     *  golden-section search over the logarithm of the scale. */
+    double fitScale(double[] weights) {
+        double lo = Math.log(MIN_SCALE), hi = Math.log(MAX_SCALE);
+        double a = hi - GOLDEN * (hi - lo), b = lo + GOLDEN * (hi - lo);
+        double la = loss(weights, Math.exp(a));
+        double lb = loss(weights, Math.exp(b));
+        while (hi - lo > SCALE_TOLERANCE) {
+            if (la < lb) {
+                hi = b;
+                b = a;
+                lb = la;
+                a = hi - GOLDEN * (hi - lo);
+                la = loss(weights, Math.exp(a));
+            } else {
+                lo = a;
+                a = b;
+                la = lb;
+                b = lo + GOLDEN * (hi - lo);
+                lb = loss(weights, Math.exp(b));
+            }
+        }
+        return Math.exp((lo + hi) / 2);
+    }
+
+    /** Return the weights found by ITERATIONS Adam steps of gradient
+     *  descent from WEIGHTS, with evaluations divided by SCALE.  The
+     *  material weight is left as it is. */
+    double[] tune(double[] weights, double scale, int iterations) {
+        double[] w = weights.clone();
+        double[] mean = new double[FEATURES], square = new double[FEATURES];
+        for (int t = 1; t <= iterations; t += 1) {
+            double[] sums =
+                _pool.invoke(new Batch(w, scale, 0, _size));
+            for (int f = 0; f < FEATURES; f += 1) {
+                if (f == Evaluator.MATERIAL) {
+                    continue;
+                }
+                double g = sums[f] / Math.max(1, _size);
+                mean[f] = BETA1 * mean[f] + (1 - BETA1) * g;
+                square[f] = BETA2 * square[f] + (1 - BETA2) * g * g;
+                double m = mean[f] / (1 - Math.pow(BETA1, t));
+                double v = square[f] / (1 - Math.pow(BETA2, t));
+                w[f] -= RATE * m / (Math.sqrt(v) + EPSILON);
+            }
+        }
+        return w;
+    }
+
+    /** The sums, over a range of my positions, of the gradient of the
+     *  loss with respect to each weight (indexed by feature number)
+     *  followed by the loss itself.  Ranges larger than BATCH are split
+     *  in two and done in parallel. */
+    private final class Batch extends RecursiveTask<double[]> {
+
+        /** The sums for positions LO .. HI-1, for WEIGHTS and SCALE. */
+        Batch(double[] weights, double scale, int lo, int hi) {
+            _weights = weights;
+            _scale = scale;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (_hi - _lo > BATCH) {
+                int mid = (_lo + _hi) >>> 1;
+                Batch left = new Batch(_weights, _scale, _lo, mid);
+                left.fork();
+                double[] sums =
+                    new Batch(_weights, _scale, mid, _hi).compute();
+                double[] other = left.join();
+                for (int i = 0; i < sums.length; i += 1) {
+                    sums[i] += other[i];
+                }
+                return sums;
+            }
+            double[] sums = new double[FEATURES + 1];
+            short[] x = _features;
+            for (int p = _lo, i = _lo * FEATURES; p < _hi;
+                 p += 1, i += FEATURES) {
+                double eval = 0;
+                for (int f = 0; f < FEATURES; f += 1) {
+                    eval += _weights[f] * x[i + f];
+                }
+                double y = _results[p] * 0.5;
+                double prob = 1 / (1 + Math.exp(-eval / _scale));
+                prob = Math.min(Math.max(prob, MIN_PROB), 1 - MIN_PROB);
+                double error = (prob - y) / _scale;
+                for (int f = 0; f < FEATURES; f += 1) {
+                    sums[f] += error * x[i + f];
+                }
+                sums[FEATURES] -= y * Math.log(prob)
+                    + (1 - y) * Math.log(1 - prob);
+            }
+            return sums;
+        }
+
+        /** Weights being evaluated. */
+        private final double[] _weights;
+        /** Divisor of the evaluations. */
+        private final double _scale;
+        /** Range of positions. */
+        private final int _lo, _hi;
+        /** Version of the serialized form (which is never used) that
+         *  RecursiveTask, being Serializable, calls for. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Return WEIGHTS as doubles. */
+    static double[] toDoubles(int[] weights) {
+        double[] result = new double[weights.length];
+        for (int i = 0; i < weights.length; i += 1) {
+            result[i] = weights[i];
+        }
+        return result;
+    }
+
+    /** Return WEIGHTS rounded to integers. */
+    static int[] round(double[] weights) {
+        int[] result = new int[weights.length];
+        for (int i = 0; i < weights.length; i += 1) {
+            result[i] = (int) Math.round(weights[i]);
+        }
+        return result;
+    }
+
+    /** Parses my options, giving my usage message if they are bad. */
+    private static final Options OPTIONS =
+        new Options("Usage: java ataxx.Tuner [--iterations=N]"
+                    + " [--threads=N] [--initial=FILE]"
+                    + " POSITIONS... WEIGHTS");
+
+    /** Number of features. */
+    private static final int FEATURES = Evaluator.FEATURES;
+    /** Default number of gradient steps. */
+    static final int DEFAULT_ITERATIONS = 500;
+    /** Most positions summed by one fork/join task. */
+    private static final int BATCH = 1 << 14;
+    /** Positions allocated for at first. */
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    /** Bounds on the scale, in units of evaluation per unit of log
+     *  odds. */
+    private static final double MIN_SCALE = 10, MAX_SCALE = 10000;
+    /** Precision of the fitted log scale. */
+    private static final double SCALE_TOLERANCE = 1e-3;
+    /** The golden ratio, less one. */
+    private static final double GOLDEN = (Math.sqrt(5) - 1) / 2;
+    /** Step size of Adam, in units of weight. */
+    private static final double RATE = 0.5;
+    /** Decay rates of Adam's moving averages of the gradient and of its
+     *  square. */
+    private static final double BETA1 = 0.9, BETA2 = 0.999;
+    /** Keeps Adam's steps finite. */
+    private static final double EPSILON = 1e-12;
+    /** Bound on how near a prediction may be to 0 or 1, to keep the
+     *  loss finite. */
+    private static final double MIN_PROB = 1e-12;
+
+    /** Runs the fork/join tasks. */
+    private final ForkJoinPool _pool;
+    /** Number of positions loaded. */
+    private int _size;
+    /** For position P and feature F, _features[P * FEATURES + F] is the
+     *  difference between the values of F for the player on move and
+     *  for the opponent. */
+    private short[] _features = new short[0];
+    /** _results[P] is what the player on move in position P scored, in
+     *  half points: 2 for a win, 1 for a draw, and 0 for a loss. */
+    private byte[] _results = new byte[0];
+}
@@ -0,0 +1,94 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the Tuner class and of Evaluator weights files.
+ *  @author Ahmad Badary
+ */
+public class TunerTest {
+
+    @Test public void testWeightsFile() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".weights");
+        try {
+            Evaluator eval = new Evaluator(new int[] { 100, 7, -2, -9, 1, 3 });
+            eval.write(file, "test");
+            assertTrue("weights changed",
+                       Arrays.equals(eval.weights(),
+                                     Evaluator.load(file).weights()));
+            Files.write(file, Arrays.asList("material 100", "mobility 4"));
+            try {
+                Evaluator.load(file);
+                fail("missing weights accepted");
+            } catch (IOException excp) {
+                /* Expected. */
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test public void testPosition() {
+        Board b = Board.parse("r-----b" + "-------" + "---X---"
+                                 + "-------" + "---X---" + "-------"
+                                 + "b-----r", 'b');
+        assertEquals("wrong position", blockedStart(), b);
+        assertEquals("wrong player", PieceColor.BLUE, b.whoseMove());
+    }
+
+    /** Return the initial board with blocks at d3 and d5. */
+    private static Board blockedStart() {
+        Board b = new Board();
+        b.setBlock("d3");
+        return b;
+    }
+
+    @Test public void testTune() throws IOException {
+        Tuner serial = new Tuner(new ForkJoinPool(1));
+        Tuner parallel = new Tuner(new ForkJoinPool(4));
+        Random rand = new Random(5);
+        int[] packed = new int[Board.MAX_MOVES];
+        for (int game = 0; game < 40; game += 1) {
+            Board b = new Board();
+            int plies = 0;
+            while (!b.gameOver()) {
+                int n = b.generateMoves(packed);
+                int move = n == 0 ? Move.PACKED_PASS : packed[0];
+                for (int i = 1; i < n && rand.nextInt(3) > 0; i += 1) {
+                    if (b.captures(Move.toIndex(packed[i]))
+                        > b.captures(Move.toIndex(move))) {
+                        move = packed[i];
+                    }
+                }
+                b.makeMove(n > 0 && rand.nextInt(4) == 0
+                           ? packed[rand.nextInt(n)] : move);
+                plies += 1;
+            }
+            int diff = b.redPieces() - b.bluePieces();
+            double red = diff > 0 ? 1 : diff < 0 ? 0 : 0.5;
+            for (int k = plies; k > 0; k -= 1) {
+                b.undo();
+                serial.add(b, red);
+                parallel.add(b, red);
+            }
+        }
+        assertTrue("too few positions", serial.size() > 1000);
+        double[] w = Tuner.toDoubles(new Evaluator().weights());
+        double scale = serial.fitScale(w);
+        assertEquals("parallel loss differs", serial.loss(w, scale),
+                     parallel.loss(w, scale), 1e-9);
+        double before = serial.loss(w, scale);
+        double[] tuned = parallel.tune(w, scale, 50);
+        assertEquals("material weight changed", w[Evaluator.MATERIAL],
+                     tuned[Evaluator.MATERIAL], 0);
+        assertTrue("loss not reduced",
+                   serial.loss(tuned, scale) < before);
+    }
+}
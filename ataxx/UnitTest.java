@@ -11,7 +11,14 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         textui.runClasses(CommandTest.class, MoveTest.class,
-                          BoardTest.class);
+                          BoardTest.class, BitBoardTest.class,
+                          TranspositionTableTest.class, SearcherTest.class,
+                          MCTSPlayerTest.class, EndgameSolverTest.class,
+                          OpeningBookTest.class,
+                          NeuralEvaluatorTest.class,
+                          TimeManagerTest.class, TournamentTest.class,
+                          TunerTest.class, DataGeneratorTest.class,
+                          PerftTest.class);
     }
 
 }
@@ -0,0 +1,76 @@
+package ataxx;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** The loops of a NeuralEvaluator written with the JDK's Vector API,
+ *  which compiles them to the widest SIMD instructions the processor
+ *  has.  Requires the jdk.incubator.vector module, both to compile and
+ *  to run; NeuralEvaluator only loads this class when that module is
+ *  present.
+ *  @author Ahmad Badary
+ */
+class VectorKernels implements NeuralEvaluator.Kernels {
+
+    @Override
+    public void add(short[] sums, short[] w, int offset) {
+        int i = 0;
+        for (int end = SHORTS.loopBound(sums.length); i < end;
+             i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, sums, i)
+                .add(ShortVector.fromArray(SHORTS, w, offset + i))
+                .intoArray(sums, i);
+        }
+        for (; i < sums.length; i += 1) {
+            sums[i] += w[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] sums, short[] w, int offset) {
+        int i = 0;
+        for (int end = SHORTS.loopBound(sums.length); i < end;
+             i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, sums, i)
+                .sub(ShortVector.fromArray(SHORTS, w, offset + i))
+                .intoArray(sums, i);
+        }
+        for (; i < sums.length; i += 1) {
+            sums[i] -= w[offset + i];
+        }
+    }
+
+    /** {@inheritDoc}  The products of clipped sums and 8-bit weights fit
+     *  in 16 bits, so they are formed in 16-bit lanes and widened to 32
+     *  bits only to be added. */
+    @Override
+    public int dot(short[] sums, short[] w, int offset) {
+        IntVector total = IntVector.zero(INTS);
+        int i = 0;
+        for (int end = SHORTS.loopBound(sums.length); i < end;
+             i += SHORTS.length()) {
+            ShortVector products = ShortVector.fromArray(SHORTS, sums, i)
+                .max((short) 0).min((short) NeuralEvaluator.ACTIVATION_MAX)
+                .mul(ShortVector.fromArray(SHORTS, w, offset + i));
+            total = total
+                .add(products.convert(VectorOperators.S2I, 0))
+                .add(products.convert(VectorOperators.S2I, 1));
+        }
+        int result = total.reduceLanes(VectorOperators.ADD);
+        for (; i < sums.length; i += 1) {
+            int x = Math.max(0, Math.min(sums[i],
+                                         NeuralEvaluator.ACTIVATION_MAX));
+            result += x * w[offset + i];
+        }
+        return result;
+    }
+
+    /** Shape of the 16-bit vectors. */
+    private static final VectorSpecies<Short> SHORTS =
+        ShortVector.SPECIES_PREFERRED;
+    /** 32-bit vectors of the same size as SHORTS. */
+    private static final VectorSpecies<Integer> INTS =
+        SHORTS.withLanes(int.class);
+}
@@ -0,0 +1,29 @@
+package ataxx;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Runs the benchmarks, always with JMH's allocation profiler, so that
+ *  each result comes with the bytes allocated per operation
+ *  (gc.alloc.rate.norm) and the collections it caused.
+ *  @author Ahmad Badary
+ */
+public class Benchmarks {
+
+    /** Run the benchmarks.  ARGS are JMH's command-line options (see
+     *  -h), which select the benchmarks, set their parameters, and may
+     *  add more profilers. */
+    public static void main(String[] args)
+        throws CommandLineOptionException, RunnerException {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
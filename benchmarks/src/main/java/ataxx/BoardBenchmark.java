@@ -0,0 +1,123 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks of the operations on Board that searches and the game
+ *  loop use most.  Each invocation applies the operation once to each
+ *  of the Positions, and the times are per operation.  The operations
+ *  that change a board undo their changes, so the positions stay the
+ *  same from one invocation to the next.
+ *  @author Ahmad Badary
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@OperationsPerInvocation(Positions.SIZE)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    /** Set up the positions and a move in each. */
+    @Setup
+    public void setUp() {
+        _boards = Positions.boards();
+        _packed = Positions.moves(_boards);
+        _moves = new Move[_packed.length];
+        for (int k = 0; k < _packed.length; k += 1) {
+            _moves[k] = Move.move(_packed[k]);
+        }
+    }
+
+    /** Make a move as the game does (checked, with observers
+     *  notified), and undo it. */
+    @Benchmark
+    public void makeMoveUndo(Blackhole bh) {
+        for (int k = 0; k < _boards.length; k += 1) {
+            _boards[k].makeMove(_moves[k]);
+            bh.consume(_boards[k].zobrist());
+            _boards[k].undo();
+        }
+    }
+
+    /** Make a packed move as the searches do, and retract it. */
+    @Benchmark
+    public void makeMoveRetract(Blackhole bh) {
+        for (int k = 0; k < _boards.length; k += 1) {
+            _boards[k].makeMove(_packed[k]);
+            bh.consume(_boards[k].zobrist());
+            _boards[k].retract();
+        }
+    }
+
+    /** Ask whether the player on move can move. */
+    @Benchmark
+    public void canMove(Blackhole bh) {
+        for (Board b : _boards) {
+            bh.consume(b.canMove(b.whoseMove()));
+        }
+    }
+
+    /** Ask whether the game is over. */
+    @Benchmark
+    public void gameOver(Blackhole bh) {
+        for (Board b : _boards) {
+            bh.consume(b.gameOver());
+        }
+    }
+
+    /** Collect the legal moves as Move objects, square by square, with
+     *  Board.allocateAllMoves. */
+    @Benchmark
+    public void allocateAllMoves(Blackhole bh) {
+        for (Board b : _boards) {
+            _list.clear();
+            for (int sq : Board.PLAYABLE) {
+                b.allocateAllMoves(_list, sq, b.whoseMove());
+            }
+            bh.consume(_list.size());
+        }
+    }
+
+    /** Collect the legal moves, packed, with Board.generateMoves, for
+     *  comparison with allocateAllMoves. */
+    @Benchmark
+    public void generateMoves(Blackhole bh) {
+        for (Board b : _boards) {
+            bh.consume(b.generateMoves(_buffer));
+        }
+    }
+
+    /** Copy a board. */
+    @Benchmark
+    public void copy(Blackhole bh) {
+        for (Board b : _boards) {
+            bh.consume(new Board(b));
+        }
+    }
+
+    /** The positions. */
+    private Board[] _boards;
+    /** A move in each position, packed. */
+    private int[] _packed;
+    /** The same moves. */
+    private Move[] _moves;
+    /** Receives the moves from allocateAllMoves. */
+    private final ArrayList<Move> _list = new ArrayList<>();
+    /** Receives the moves from generateMoves. */
+    private final int[] _buffer = new int[Board.MAX_MOVES];
+}
@@ -0,0 +1,39 @@
+package ataxx;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Command.parseCommand, which tries the pattern of each
+ *  type of command in turn, on commands that match early, late, and
+ *  not at all (an ERROR).
+ *  @author Ahmad Badary
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Thread)
+public class CommandBenchmark {
+
+    /** The command to parse. */
+    @Param({ "auto red", "block c3", "-", "a7-b6", "g1-e3", "load moves",
+             "analyze 3 2.5", "dump", "no such command" })
+    public String command;
+
+    /** Parse the command. */
+    @Benchmark
+    public Command parse() {
+        return Command.parseCommand(command);
+    }
+}
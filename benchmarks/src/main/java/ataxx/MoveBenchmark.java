@@ -0,0 +1,85 @@
+package ataxx;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks of looking up Move objects, from packed moves (as the
+ *  searches do) and from square names (as commands do).  Each
+ *  invocation looks up LOOKUPS moves: the legal moves of the Positions,
+ *  repeated as needed, and the times are per lookup.
+ *  @author Ahmad Badary
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@OperationsPerInvocation(MoveBenchmark.LOOKUPS)
+@State(Scope.Thread)
+public class MoveBenchmark {
+
+    /** Number of lookups in an invocation. */
+    static final int LOOKUPS = 512;
+
+    /** Collect the moves to look up. */
+    @Setup
+    public void setUp() {
+        int[] all = new int[LOOKUPS];
+        int n = 0;
+        int[] moves = new int[Board.MAX_MOVES];
+        for (Board b : Positions.boards()) {
+            int count = b.generateMoves(moves);
+            for (int k = 0; k < count && n < LOOKUPS; k += 1) {
+                all[n] = moves[k];
+                n += 1;
+            }
+        }
+        for (int k = n; k < LOOKUPS; k += 1) {
+            all[k] = all[k % n];
+        }
+        _packed = all;
+        _squares = new char[4 * LOOKUPS];
+        for (int k = 0; k < LOOKUPS; k += 1) {
+            Move mv = Move.move(all[k]);
+            _squares[4 * k] = mv.col0();
+            _squares[4 * k + 1] = mv.row0();
+            _squares[4 * k + 2] = mv.col1();
+            _squares[4 * k + 3] = mv.row1();
+        }
+    }
+
+    /** Look up moves by their packed forms. */
+    @Benchmark
+    public void packed(Blackhole bh) {
+        for (int packed : _packed) {
+            bh.consume(Move.move(packed));
+        }
+    }
+
+    /** Look up moves by the columns and rows of their squares. */
+    @Benchmark
+    public void squares(Blackhole bh) {
+        for (int k = 0; k < _squares.length; k += 4) {
+            bh.consume(Move.move(_squares[k], _squares[k + 1],
+                                 _squares[k + 2], _squares[k + 3]));
+        }
+    }
+
+    /** The moves to look up, packed. */
+    private int[] _packed;
+    /** The same moves, as the column and row of their starting squares
+     *  followed by those of their destinations. */
+    private char[] _squares;
+}
@@ -0,0 +1,49 @@
+package ataxx;
+
+/** The positions on which the benchmarks run: mid-game positions from
+ *  self-play between shallow searches after random openings, with and
+ *  without blocks, with between 24 and 34 empty squares, and with
+ *  either player on move.  They are written out as for Tuner.read,
+ *  rather than generated, so that they stay the same as the engine
+ *  changes.
+ *  @author Ahmad Badary
+ */
+class Positions {
+
+    /** Number of positions. */
+    static final int SIZE = 8;
+
+    /** The squares of each position, from a7 across and down to g1, and
+     *  the player on move. */
+    private static final String[][] CORPUS = {
+        { "-----bb--bb--brr----brr----brrr--bb--------------", "r" },
+        { "-----rrrrr--rr--XbXr---bb-----XrX---bbrr--bbb----", "b" },
+        { "r----rrrX---X----rr-----rr----rr----X-bbX---bbb-b", "r" },
+        { "-------rbbX---rbbbr----rrrrr---bbbrrrbXbbr-------", "r" },
+        { "b-----r-b--rrrbb---rr-bX-X--b-------------rrr----", "r" },
+        { "---r--b--bb------b---X-rrb-X--rrb----r-b---rrrb--", "b" },
+        { "----bb-------br-rr--br-rr---------r-----bb-----bb", "r" },
+        { "r----------bbb-X--rXb-r-r---rXr--X--b---r-b-----r", "b" },
+    };
+
+    /** Return new boards holding the positions, in order. */
+    static Board[] boards() {
+        Board[] result = new Board[SIZE];
+        for (int k = 0; k < SIZE; k += 1) {
+            result[k] = Board.parse(CORPUS[k][0], CORPUS[k][1].charAt(0));
+        }
+        return result;
+    }
+
+    /** Return a legal move, packed, in each of BOARDS: one from the
+     *  middle of the moves Board.generateMoves finds. */
+    static int[] moves(Board[] boards) {
+        int[] result = new int[boards.length];
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int k = 0; k < boards.length; k += 1) {
+            int n = boards[k].generateMoves(moves);
+            result[k] = moves[n / 2];
+        }
+        return result;
+    }
+}
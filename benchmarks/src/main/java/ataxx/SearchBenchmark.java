@@ -0,0 +1,84 @@
+package ataxx;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks of AI move choice (AI.myMove, and so AI.findMove) at
+ *  fixed depths.  Each invocation finds a move in each of the
+ *  Positions, and the times are per move.  The AIs, one per position,
+ *  are built once per trial, each with one thread, no time limit, no
+ *  opening book, and no endgame solving, and share a transposition
+ *  table, which is emptied before each invocation so that none finds
+ *  the previous one's results there.  Their move-ordering history
+ *  carries over, as it does from one move of a game to the next.
+ *  @author Ahmad Badary
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@OperationsPerInvocation(Positions.SIZE)
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+    /** Depth of the searches. */
+    @Param({ "2", "4", "6" })
+    public int depth;
+
+    /** Set up the games, the table, and the AIs. */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Board[] boards = Positions.boards();
+        _table = new TranspositionTable(TABLE_MEGABYTES);
+        _players = new AI[boards.length];
+        for (int k = 0; k < boards.length; k += 1) {
+            Game game = new Game(boards[k], null, new TextReporter());
+            AI ai = new AI(game, game.board().whoseMove());
+            ai.setTable(_table);
+            ai.setThreads(1);
+            ai.setPondering(false);
+            ai.setBook(null);
+            ai.setEndgameThreshold(0);
+            ai.setTimeLimits(0, 0);
+            ai.setDepth(depth);
+            _players[k] = ai;
+        }
+    }
+
+    /** Start the next invocation with an empty table. */
+    @Setup(Level.Invocation)
+    public void startInvocation() {
+        _table.clear();
+    }
+
+    /** Find a move in each position. */
+    @Benchmark
+    public void findMove(Blackhole bh) {
+        for (AI ai : _players) {
+            bh.consume(ai.myMove());
+        }
+    }
+
+    /** Size of the transposition table, in megabytes. */
+    private static final int TABLE_MEGABYTES = 16;
+
+    /** An AI to move in each game. */
+    private AI[] _players;
+    /** The AIs' transposition table. */
+    private TranspositionTable _table;
+}